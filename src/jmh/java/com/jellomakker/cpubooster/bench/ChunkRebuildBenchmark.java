@@ -0,0 +1,89 @@
+package com.jellomakker.cpubooster.bench;
+
+import com.jellomakker.cpubooster.optimize.SmartChunkRebuildThrottler;
+import com.jellomakker.cpubooster.state.StateChangeCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+
+/**
+ * Chunk rebuild prioritization: a tick's worth of enqueues followed by draining the queue,
+ * re-prioritizing queued chunks at far render distance, and re-scoring the pending
+ * set after a camera turn.
+ */
+@State(Scope.Thread)
+public class ChunkRebuildBenchmark {
+    private static final int CHUNKS_PER_TICK = 64;
+    private static final int DIRTY_SECTIONS = 8192; // roughly a 32-chunk render distance after a lighting change
+    private static final int RESCORE_SECTIONS = 10_000;
+
+    private final long[] hashes = new long[CHUNKS_PER_TICK];
+    private final double[] distances = new double[CHUNKS_PER_TICK];
+    private final boolean[] inFront = new boolean[CHUNKS_PER_TICK];
+    private final long[] dirtyHashes = new long[DIRTY_SECTIONS];
+    private final double[] dirtyDistances = new double[DIRTY_SECTIONS];
+
+    private SmartChunkRebuildThrottler throttler;
+    private SmartChunkRebuildThrottler rescoreThrottler;
+    private final StateChangeCache changeCache = new StateChangeCache();
+    private float yaw = 0.0f;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42);
+        for (int i = 0; i < CHUNKS_PER_TICK; i++) {
+            hashes[i] = random.nextLong();
+            distances[i] = random.nextDouble() * 256.0;
+            inFront[i] = random.nextBoolean();
+        }
+        for (int i = 0; i < DIRTY_SECTIONS; i++) {
+            dirtyHashes[i] = random.nextLong();
+            dirtyDistances[i] = random.nextDouble() * 512.0;
+        }
+        throttler = new SmartChunkRebuildThrottler();
+
+        rescoreThrottler = new SmartChunkRebuildThrottler();
+        for (int i = 0; i < RESCORE_SECTIONS; i++) {
+            rescoreThrottler.enqueueSection(SmartChunkRebuildThrottler.packSection(
+                    random.nextInt(65) - 32, random.nextInt(24) - 4, random.nextInt(65) - 32));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CHUNKS_PER_TICK)
+    public void enqueueAndDrain(Blackhole bh) {
+        for (int i = 0; i < CHUNKS_PER_TICK; i++) {
+            throttler.enqueueChunk(hashes[i], distances[i], inFront[i]);
+        }
+        for (int i = 0; i < CHUNKS_PER_TICK; i++) {
+            bh.consume(throttler.pollNextChunk());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DIRTY_SECTIONS)
+    public void requeueDirtySections(Blackhole bh) {
+        // First pass inserts, second pass re-prioritizes the same sections (player moved)
+        for (int i = 0; i < DIRTY_SECTIONS; i++) {
+            throttler.enqueueChunk(dirtyHashes[i], dirtyDistances[i], (i & 1) == 0);
+        }
+        for (int i = 0; i < DIRTY_SECTIONS; i++) {
+            throttler.enqueueChunk(dirtyHashes[i], dirtyDistances[i] * 0.5, (i & 1) != 0);
+        }
+        bh.consume(throttler.getQueueSize());
+        throttler.clear();
+    }
+
+    @Benchmark
+    public boolean rescoreAfterCameraTurn() {
+        // 45 degree turn every call, so every call re-scores the whole pending set
+        yaw = (yaw + 45.0f) % 360.0f;
+        return rescoreThrottler.onCamera(changeCache, 0.5, 70.0, 0.5, yaw, 10.0f, 70.0f, 1920, 1080);
+    }
+}
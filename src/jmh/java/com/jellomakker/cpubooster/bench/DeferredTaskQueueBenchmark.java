@@ -0,0 +1,55 @@
+package com.jellomakker.cpubooster.bench;
+
+import com.jellomakker.cpubooster.optimize.DeferredTaskQueue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Queue overhead of a tick that runs a batch of trivial deferred tasks, and of an idle tick.
+ */
+@State(Scope.Thread)
+public class DeferredTaskQueueBenchmark {
+    private static final int TASKS_PER_TICK = 16;
+
+    private DeferredTaskQueue queue;
+    private DeferredTaskQueue idleQueue;
+    private DeferredTaskQueue.DeferredTask task;
+    private long executed = 0;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        queue = new DeferredTaskQueue();
+        queue.setWorldReady(true);
+        idleQueue = new DeferredTaskQueue();
+        idleQueue.setWorldReady(true);
+        task = new DeferredTaskQueue.DeferredTask() {
+            @Override
+            public boolean execute() {
+                executed++;
+                return true;
+            }
+
+            @Override
+            public String getName() {
+                return "bench";
+            }
+        };
+    }
+
+    @Benchmark
+    public long onTickWithTasks() {
+        for (int i = 0; i < TASKS_PER_TICK; i++) {
+            queue.queueTask(task);
+        }
+        queue.onTick();
+        return executed;
+    }
+
+    @Benchmark
+    public void onTickIdle() {
+        idleQueue.onTick();
+    }
+}
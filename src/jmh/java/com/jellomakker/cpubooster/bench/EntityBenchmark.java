@@ -0,0 +1,90 @@
+package com.jellomakker.cpubooster.bench;
+
+import com.jellomakker.cpubooster.config.CpuBoosterConfig;
+import com.jellomakker.cpubooster.optimize.BlockEntityColdStorage;
+import com.jellomakker.cpubooster.optimize.EntitySpatialGrid;
+import com.jellomakker.cpubooster.optimize.InvisibleEntityFreezer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Per-entity and per-block-entity lookups made for every candidate each tick, and the
+ * per-tick freeze evaluation over a grid of entities.
+ */
+@State(Scope.Thread)
+public class EntityBenchmark {
+    private static final int PROBES = 4096; // power of two
+    private static final int EVALUATED_ENTITIES = 2048;
+
+    @Param({"256", "4096"})
+    public int population;
+
+    private final int[] probeIds = new int[PROBES];
+    private int cursor = 0;
+    private final double[] entityX = new double[EVALUATED_ENTITIES];
+    private final double[] entityY = new double[EVALUATED_ENTITIES];
+    private final double[] entityZ = new double[EVALUATED_ENTITIES];
+    private final CpuBoosterConfig evaluateConfig = new CpuBoosterConfig();
+
+    private InvisibleEntityFreezer freezer;
+    private BlockEntityColdStorage coldStorage;
+    private InvisibleEntityFreezer evaluatingFreezer;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42);
+        CpuBoosterConfig cfg = new CpuBoosterConfig();
+        cfg.enableBlockEntityColdStorage = true;
+        freezer = new InvisibleEntityFreezer();
+        coldStorage = new BlockEntityColdStorage();
+        for (int i = 0; i < population; i++) {
+            int id = random.nextInt(population * 4);
+            if (random.nextBoolean()) freezer.registerFrozenEntity(id);
+            coldStorage.updateEntity(id);
+        }
+        // Age the cache so some entries are past the idle threshold
+        for (int t = 0; t < 50; t++) {
+            coldStorage.onTick(cfg);
+        }
+        for (int i = 0; i < PROBES; i++) {
+            // Half hits, half misses
+            probeIds[i] = random.nextInt(population * 4);
+        }
+
+        // Farm-style clustering around the player at the origin
+        evaluatingFreezer = new InvisibleEntityFreezer();
+        evaluatingFreezer.setCamera(0.0, 70.0, 0.0, 30.0f, 10.0f, 70.0f, 1920, 1080);
+        for (int i = 0; i < EVALUATED_ENTITIES; i++) {
+            entityX[i] = random.nextGaussian() * 80.0;
+            entityY[i] = 64.0 + random.nextGaussian() * 8.0;
+            entityZ[i] = random.nextGaussian() * 80.0;
+        }
+    }
+
+    @Benchmark
+    public boolean entityFreezerIsFrozen() {
+        return freezer.isFrozen(probeIds[cursor++ & (PROBES - 1)]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVALUATED_ENTITIES)
+    public int entityFreezerEvaluate() {
+        EntitySpatialGrid grid = evaluatingFreezer.getGrid();
+        for (int i = 0; i < EVALUATED_ENTITIES; i++) {
+            grid.add(i + 1, entityX[i], entityY[i], entityZ[i], (i & 7) == 0);
+        }
+        return evaluatingFreezer.evaluate(evaluateConfig, 0.0, 70.0, 0.0);
+    }
+
+    @Benchmark
+    public boolean coldStorageLookup() {
+        return coldStorage.canUseCachedData(probeIds[cursor++ & (PROBES - 1)], 20);
+    }
+}
@@ -0,0 +1,73 @@
+package com.jellomakker.cpubooster.bench;
+
+import com.jellomakker.cpubooster.config.CpuBoosterConfig;
+import com.jellomakker.cpubooster.metrics.PerformanceMetrics;
+import com.jellomakker.cpubooster.optimize.FrameTimeVarianceOptimizer;
+import com.jellomakker.cpubooster.perf.FrameTimeTracker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Per-frame cost of the frame-time bookkeeping run on every client tick.
+ */
+@State(Scope.Thread)
+public class FrameTimingBenchmark {
+    private static final int SAMPLES = 4096; // power of two
+
+    private final double[] frameTimes = new double[SAMPLES];
+    private int cursor = 0;
+
+    private FrameTimeTracker tracker;
+    private PerformanceMetrics metrics;
+    private FrameTimeVarianceOptimizer varianceOptimizer;
+    private CpuBoosterConfig cfg;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42);
+        for (int i = 0; i < SAMPLES; i++) {
+            // Mostly 60 FPS with an occasional spike
+            frameTimes[i] = random.nextInt(50) == 0 ? 40.0 + random.nextDouble() * 40.0 : 16.6 + random.nextGaussian();
+        }
+        cfg = new CpuBoosterConfig();
+        tracker = new FrameTimeTracker(2400);
+        metrics = new PerformanceMetrics();
+        varianceOptimizer = new FrameTimeVarianceOptimizer();
+        // Fill windows so steady-state behavior is measured
+        for (int i = 0; i < SAMPLES; i++) {
+            tracker.recordFrameTime(frameTimes[i]);
+            metrics.onFrameTime(frameTimes[i], 1.0);
+            varianceOptimizer.onFrame(frameTimes[i], cfg);
+        }
+    }
+
+    private double nextFrameTime() {
+        return frameTimes[cursor++ & (SAMPLES - 1)];
+    }
+
+    @Benchmark
+    public void frameTimeTrackerRecord() {
+        tracker.recordFrameTime(nextFrameTime());
+    }
+
+    @Benchmark
+    public double frameTimeTrackerPercentile() {
+        return tracker.getPercentile(99.0);
+    }
+
+    @Benchmark
+    public void performanceMetricsOnFrameTime() {
+        metrics.onFrameTime(nextFrameTime(), 1.0);
+    }
+
+    @Benchmark
+    public boolean varianceOptimizerOnFrame() {
+        varianceOptimizer.onFrame(nextFrameTime(), cfg);
+        return varianceOptimizer.isDeferralActive();
+    }
+}
@@ -0,0 +1,65 @@
+package com.jellomakker.cpubooster.bench;
+
+import com.jellomakker.cpubooster.config.CpuBoosterConfig;
+import com.jellomakker.cpubooster.optimize.GpuBatchingOptimizer;
+import com.jellomakker.cpubooster.optimize.RenderStateDeduplicator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+
+/**
+ * Render-path decisions made once per draw call or state change.
+ */
+@State(Scope.Thread)
+public class RenderBatchingBenchmark {
+    private static final int DRAWS_PER_FRAME = 256;
+
+    private final int[] textures = new int[DRAWS_PER_FRAME];
+    private final int[] shaders = new int[DRAWS_PER_FRAME];
+    private final int[] vertexCounts = new int[DRAWS_PER_FRAME];
+    private final int[] blendSrc = new int[DRAWS_PER_FRAME];
+
+    private GpuBatchingOptimizer batching;
+    private RenderStateDeduplicator deduplicator;
+    private CpuBoosterConfig cfg;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42);
+        for (int i = 0; i < DRAWS_PER_FRAME; i++) {
+            textures[i] = random.nextInt(32);
+            shaders[i] = random.nextInt(4);
+            vertexCounts[i] = 4 + random.nextInt(1024);
+            // Runs of identical state, as in a real frame
+            blendSrc[i] = (i / 8) % 3;
+        }
+        cfg = new CpuBoosterConfig();
+        cfg.enableGPUBatching = true;
+        batching = new GpuBatchingOptimizer();
+        deduplicator = new RenderStateDeduplicator();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DRAWS_PER_FRAME)
+    public void gpuBatchingCanBatch(Blackhole bh) {
+        batching.onFrameStart(cfg);
+        for (int i = 0; i < DRAWS_PER_FRAME; i++) {
+            bh.consume(batching.canBatch(textures[i], shaders[i], vertexCounts[i]));
+        }
+        batching.onFrameEnd();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DRAWS_PER_FRAME)
+    public void renderStateDedup(Blackhole bh) {
+        for (int i = 0; i < DRAWS_PER_FRAME; i++) {
+            bh.consume(deduplicator.shouldApplyRenderState(blendSrc[i], 771, 515, true, blendSrc[i] != 0));
+        }
+    }
+}
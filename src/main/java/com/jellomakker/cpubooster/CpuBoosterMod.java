@@ -8,17 +8,25 @@ import com.jellomakker.cpubooster.config.CpuBoosterConfig;
 import com.jellomakker.cpubooster.hud.DebugOverlayHud;
 import com.jellomakker.cpubooster.key.Commands;
 import com.jellomakker.cpubooster.key.Keybinds;
+import com.jellomakker.cpubooster.metrics.GcTelemetry;
 import com.jellomakker.cpubooster.metrics.ModCompatibilityDetector;
 import com.jellomakker.cpubooster.metrics.PerformanceMetrics;
+import com.jellomakker.cpubooster.optimize.ChunkRebuildController;
+import com.jellomakker.cpubooster.optimize.ChunkRebuildCostModel;
+import com.jellomakker.cpubooster.optimize.ChunkRebuildGate;
 import com.jellomakker.cpubooster.optimize.ChunkRebuildLimiter;
 import com.jellomakker.cpubooster.optimize.ChunkRebuildThrottler;
 import com.jellomakker.cpubooster.optimize.DeferredTaskQueue;
+import com.jellomakker.cpubooster.optimize.FrameBudgetGovernor;
 import com.jellomakker.cpubooster.optimize.FramePacingThrottler;
 import com.jellomakker.cpubooster.optimize.HudThrottler;
 import com.jellomakker.cpubooster.optimize.StutterSmoother;
 import com.jellomakker.cpubooster.optimize.FrameTimeVarianceOptimizer;
 import com.jellomakker.cpubooster.optimize.SmartChunkRebuildThrottler;
 import com.jellomakker.cpubooster.optimize.InvisibleEntityFreezer;
+import com.jellomakker.cpubooster.optimize.EntitySpatialGrid;
+import com.jellomakker.cpubooster.optimize.EntityTickScheduler;
+import com.jellomakker.cpubooster.optimize.IdleBlockEntityBaker;
 import com.jellomakker.cpubooster.optimize.AllocationPoolManager;
 import com.jellomakker.cpubooster.optimize.InputRenderDecoupler;
 import com.jellomakker.cpubooster.optimize.RenderStateDeduplicator;
@@ -28,6 +36,9 @@ import com.jellomakker.cpubooster.optimize.BlockEntityColdStorage;
 import com.jellomakker.cpubooster.patches.FramePacingPatch;
 import com.jellomakker.cpubooster.patches.PatchManager;
 import com.jellomakker.cpubooster.perf.FrameTimeTracker;
+import com.jellomakker.cpubooster.perf.PerformanceComparator;
+import com.jellomakker.cpubooster.perf.SectionProfiler;
+import com.jellomakker.cpubooster.perf.SessionRecorder;
 import com.jellomakker.cpubooster.perf.TickTimeTracker;
 import com.jellomakker.cpubooster.profiles.OptimizationProfile;
 import com.jellomakker.cpubooster.profiles.GameProfile;
@@ -40,8 +51,14 @@ import com.jellomakker.cpubooster.compat.AdvancedCompatibilityDetector;
 import net.fabricmc.api.ClientModInitializer;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientLifecycleEvents;
 import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
 import net.fabricmc.fabric.api.client.rendering.v1.HudRenderCallback;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.render.Camera;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.mob.Monster;
+import net.minecraft.util.math.Vec3d;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -52,29 +69,43 @@ public class CpuBoosterMod implements ClientModInitializer {
     private static final AdaptiveParticleGovernor GOVERNOR = new AdaptiveParticleGovernor();
     
     // Performance tracking
-    private static final FrameTimeTracker FRAME_TIME_TRACKER = new FrameTimeTracker(120);
+    private static final FrameTimeTracker FRAME_TIME_TRACKER = new FrameTimeTracker(2400); // last 2400 render frames, ~40 s at 60 FPS
     private static final TickTimeTracker TICK_TIME_TRACKER = new TickTimeTracker(200);
     private static final StutterSmoother STUTTER_SMOOTHER = new StutterSmoother();
     private static final PerformanceMetrics PERFORMANCE_METRICS = new PerformanceMetrics();
+    private static final GcTelemetry GC_TELEMETRY = new GcTelemetry();
+    private static final SessionRecorder SESSION_RECORDER = new SessionRecorder(8);
+    private static final PerformanceComparator PERFORMANCE_COMPARATOR = new PerformanceComparator();
+    private static double gcPauseMsSinceRecord = 0.0;
+    private static double tickMsSinceRenderFrame = 0.0;
+    private static boolean sessionAutoStartAttempted = false;
     
     // Optimization systems
     private static final ChunkRebuildThrottler CHUNK_THROTTLER = new ChunkRebuildThrottler();
     private static final HudThrottler HUD_THROTTLER = new HudThrottler();
     private static final DeferredTaskQueue DEFERRED_TASK_QUEUE = new DeferredTaskQueue();
+    private static final FrameBudgetGovernor FRAME_BUDGET_GOVERNOR = new FrameBudgetGovernor();
     
     // Frame pacing and chunk rebuild limiting
     private static final FramePacingThrottler FRAME_PACING_THROTTLER = new FramePacingThrottler();
     private static final ChunkRebuildLimiter CHUNK_REBUILD_LIMITER = new ChunkRebuildLimiter();
+    private static final ChunkRebuildCostModel CHUNK_REBUILD_COST_MODEL = new ChunkRebuildCostModel();
+    private static final ChunkRebuildController CHUNK_REBUILD_CONTROLLER = new ChunkRebuildController();
     private static final MemoryPressureMonitor MEMORY_PRESSURE_MONITOR = new MemoryPressureMonitor();
     private static final BlockEntityUpdateLimiter BLOCK_ENTITY_UPDATE_LIMITER = new BlockEntityUpdateLimiter();
     private static final StateChangeCache STATE_CHANGE_CACHE = new StateChangeCache();
     private static long lastCacheCleanupTime = 0;
+    private static long lastCacheCleanupCostNs = 0;
     
     // ===== 10 MAJOR OPTIMIZATION SYSTEMS =====
     // Core mandatory features
     private static final FrameTimeVarianceOptimizer FRAME_TIME_VARIANCE_OPTIMIZER = new FrameTimeVarianceOptimizer();
     private static final SmartChunkRebuildThrottler SMART_CHUNK_THROTTLER = new SmartChunkRebuildThrottler();
+    // Consulted by the chunk builder mixins for every async section rebuild
+    private static final ChunkRebuildGate CHUNK_REBUILD_GATE = new ChunkRebuildGate(CHUNK_REBUILD_CONTROLLER, CHUNK_THROTTLER,
+            CHUNK_REBUILD_LIMITER, SMART_CHUNK_THROTTLER, CHUNK_REBUILD_COST_MODEL);
     private static final InvisibleEntityFreezer ENTITY_FREEZER = new InvisibleEntityFreezer();
+    private static final EntityTickScheduler ENTITY_TICK_SCHEDULER = new EntityTickScheduler();
     
     // Memory and optimization
     private static final AllocationPoolManager ALLOCATION_POOL_MANAGER = new AllocationPoolManager();
@@ -88,10 +119,39 @@ public class CpuBoosterMod implements ClientModInitializer {
     private static final GpuBatchingOptimizer GPU_BATCHING = new GpuBatchingOptimizer();
     private static final DynamicResolutionScaler RESOLUTION_SCALER = new DynamicResolutionScaler();
     private static final BlockEntityColdStorage BLOCK_ENTITY_STORAGE = new BlockEntityColdStorage();
+    private static final IdleBlockEntityBaker BLOCK_ENTITY_BAKER = new IdleBlockEntityBaker(BLOCK_ENTITY_STORAGE, BLOCK_ENTITY_UPDATE_LIMITER);
     
     // Patch system
     private static final PatchManager PATCH_MANAGER = new PatchManager();
 
+    // Per-stage cost of the END_CLIENT_TICK pipeline
+    private static final SectionProfiler SECTION_PROFILER = new SectionProfiler();
+    private static final int SECTION_TOTAL = SECTION_PROFILER.register("total");
+    private static final int SECTION_GC_TELEMETRY = SECTION_PROFILER.register("gcTelemetry");
+    private static final int SECTION_FRAME_TRACKING = SECTION_PROFILER.register("frameTracking");
+    private static final int SECTION_STUTTER_SMOOTHER = SECTION_PROFILER.register("stutterSmoother");
+    private static final int SECTION_PERFORMANCE_METRICS = SECTION_PROFILER.register("performanceMetrics");
+    private static final int SECTION_CHUNK_THROTTLER = SECTION_PROFILER.register("chunkThrottler");
+    private static final int SECTION_HUD_THROTTLER = SECTION_PROFILER.register("hudThrottler");
+    private static final int SECTION_DEFERRED_TASKS = SECTION_PROFILER.register("deferredTasks");
+    private static final int SECTION_FRAME_PACING_THROTTLER = SECTION_PROFILER.register("framePacingThrottler");
+    private static final int SECTION_MEMORY_PRESSURE = SECTION_PROFILER.register("memoryPressure");
+    private static final int SECTION_CHUNK_CONTROLLER = SECTION_PROFILER.register("chunkController");
+    private static final int SECTION_VARIANCE_OPTIMIZER = SECTION_PROFILER.register("varianceOptimizer");
+    private static final int SECTION_SMART_CHUNK_THROTTLER = SECTION_PROFILER.register("smartChunkThrottler");
+    private static final int SECTION_ENTITY_FREEZER = SECTION_PROFILER.register("entityFreezer");
+    private static final int SECTION_ALLOCATION_POOLS = SECTION_PROFILER.register("allocationPools");
+    private static final int SECTION_INPUT_DECOUPLER = SECTION_PROFILER.register("inputDecoupler");
+    private static final int SECTION_PROFILE_DETECTOR = SECTION_PROFILER.register("profileDetector");
+    private static final int SECTION_RENDER_STATE_DEDUP = SECTION_PROFILER.register("renderStateDedup");
+    private static final int SECTION_GPU_BATCHING = SECTION_PROFILER.register("gpuBatching");
+    private static final int SECTION_RESOLUTION_SCALER = SECTION_PROFILER.register("resolutionScaler");
+    private static final int SECTION_BLOCK_ENTITY_STORAGE = SECTION_PROFILER.register("blockEntityStorage");
+    private static final int SECTION_CACHE_CLEANUP = SECTION_PROFILER.register("cacheCleanup");
+    private static final int SECTION_BLOCK_ENTITY_LIMITER = SECTION_PROFILER.register("blockEntityLimiter");
+    private static final int SECTION_SESSION_RECORDER = SECTION_PROFILER.register("sessionRecorder");
+    private static final int SECTION_FRAME_PACING_PATCH = SECTION_PROFILER.register("framePacingPatch");
+
     @Override
     public void onInitializeClient() {
         LOGGER.info("=== MacFpsBoost Optimization Suite Init START ===");
@@ -136,8 +196,20 @@ public class CpuBoosterMod implements ClientModInitializer {
             LOGGER.info("INIT STEP 4: Initializing frame pacing and chunk rebuild limiter...");
             CpuBoosterConfig cfg = ConfigManager.get();
             FRAME_PACING_THROTTLER.updateConfig(cfg.frameTimeTargetMs, cfg.spikeThresholdMs, cfg.throttleCooldownMs);
+            CHUNK_REBUILD_LIMITER.setNominalRebuildMs(cfg.chunkRebuildNominalMs);
             CHUNK_REBUILD_LIMITER.updateConfig(cfg.maxChunkRebuildsPerSecondNormal, cfg.maxChunkRebuildsPerSecondThrottled);
+            CHUNK_THROTTLER.setAdaptiveEnabled(cfg.adaptiveChunkThrottle);
+            CHUNK_THROTTLER.setMaxChunkBuildsPerTick(cfg.maxChunkBuildsPerTick);
+            CHUNK_THROTTLER.setMaxBuildMsPerTick(cfg.maxChunkBuildMsPerTick);
+            CHUNK_REBUILD_CONTROLLER.updateConfig(cfg);
             MEMORY_PRESSURE_MONITOR.updateConfig(cfg);
+            boolean gcFeed = GC_TELEMETRY.install();
+            MEMORY_PRESSURE_MONITOR.setGcFeedActive(gcFeed);
+            LOGGER.info("GC telemetry: {}", gcFeed ? "listening for collection notifications" : "unavailable, using heap polling");
+            SESSION_RECORDER.setSegmentSizeMb(cfg.sessionRecordingSegmentMB);
+            PERFORMANCE_METRICS.setTargetFrameMs(cfg.frameTimeTargetMs);
+            // deferredTaskBudgetMs holds microseconds (5000 = 5ms)
+            DEFERRED_TASK_QUEUE.setTickBudgetMicros(cfg.deferredTaskBudgetMs);
             BLOCK_ENTITY_UPDATE_LIMITER.updateConfig(cfg.maxBlockEntityUpdatesPerTick, cfg.blockEntityUpdateLimiterEnabled);
             STATE_CHANGE_CACHE.updateConfig(cfg.stateChangeThresholdEnabled, cfg.cameraDeltaThreshold, cfg.rotationDeltaThreshold);
             // Register cache cleanup task if enabled
@@ -181,7 +253,7 @@ public class CpuBoosterMod implements ClientModInitializer {
         try {
             LOGGER.info("INIT STEP 8: Registering HUD renderer...");
             DebugOverlayHud debugHud = new DebugOverlayHud(FRAME_TIME_TRACKER, TICK_TIME_TRACKER, STUTTER_SMOOTHER,
-                    PERFORMANCE_METRICS, CHUNK_THROTTLER);
+                    PERFORMANCE_METRICS, CHUNK_THROTTLER, CHUNK_REBUILD_CONTROLLER);
             HudRenderCallback.EVENT.register(debugHud);
             LOGGER.info("✓ Debug overlay HUD registered");
         } catch (NoClassDefFoundError e) {
@@ -193,38 +265,53 @@ public class CpuBoosterMod implements ClientModInitializer {
         try {
             LOGGER.info("INIT STEP 9: Registering performance tracking and adaptive throttling...");
             ClientTickEvents.END_CLIENT_TICK.register(client -> {
+                double tickDurationMs = TICK_TIME_TRACKER.endTick();
+                tickMsSinceRenderFrame += tickDurationMs;
                 if (client == null || client.player == null) return;
                 CpuBoosterConfig cfg2 = ConfigManager.get();
                 if (!cfg2.enabled) return;
 
+                SECTION_PROFILER.setEnabled(cfg2.diagnosticsEnabled);
+                SECTION_PROFILER.begin(SECTION_TOTAL);
+
                 double frameTimeMs = FRAME_TIME_MONITOR.getLastFrameMs();
-                FRAME_TIME_TRACKER.recordFrameTime(frameTimeMs);
+                SECTION_PROFILER.begin(SECTION_GC_TELEMETRY);
+                GC_TELEMETRY.drain(CpuBoosterMod::dispatchGcPause);
+                SECTION_PROFILER.end(SECTION_GC_TELEMETRY);
+
                 TICK_TIME_TRACKER.markTick();
-                STUTTER_SMOOTHER.onFrame(frameTimeMs);
-                STUTTER_SMOOTHER.notifyUserIfNeeded(cfg2);
 
-                PERFORMANCE_METRICS.onFrameTime(frameTimeMs);
-                PERFORMANCE_METRICS.checkGcStatus();
-                CHUNK_THROTTLER.onFrameTime(frameTimeMs);
-                HUD_THROTTLER.onTick();
-                DEFERRED_TASK_QUEUE.onTick();
+                SECTION_PROFILER.begin(SECTION_CHUNK_THROTTLER);
+                if (!cfg2.chunkRebuildControllerEnabled) {
+                    CHUNK_THROTTLER.onFrameTime(frameTimeMs);
+                }
+                SECTION_PROFILER.end(SECTION_CHUNK_THROTTLER);
 
-                // Frame pacing throttler
-                if (cfg2.adaptiveThrottlingEnabled) {
-                    boolean throttleActive = FRAME_PACING_THROTTLER.onFrameTime(frameTimeMs);
-                    CHUNK_REBUILD_LIMITER.setThrottleMode(throttleActive);
-                    if (cfg2.debugLogging && throttleActive) {
-                        LOGGER.debug("Adaptive throttle active, spikes detected: {}", FRAME_PACING_THROTTLER.getSpikesDetected());
-                    }
+                SECTION_PROFILER.begin(SECTION_HUD_THROTTLER);
+                HUD_THROTTLER.onTick();
+                SECTION_PROFILER.end(SECTION_HUD_THROTTLER);
+
+                SECTION_PROFILER.begin(SECTION_DEFERRED_TASKS);
+                if (cfg2.frameBudgetGovernorEnabled) {
+                    DEFERRED_TASK_QUEUE.setTickBudgetNanos(FRAME_BUDGET_GOVERNOR.update(cfg2, FRAME_PACING_THROTTLER,
+                            STUTTER_SMOOTHER.isSmoothing(), MEMORY_PRESSURE_MONITOR.isUnderPressure()));
+                } else {
+                    DEFERRED_TASK_QUEUE.setTickBudgetMicros(cfg2.deferredTaskBudgetMs);
                 }
+                DEFERRED_TASK_QUEUE.onTick();
+                SECTION_PROFILER.end(SECTION_DEFERRED_TASKS);
 
                 // Memory pressure monitor
+                SECTION_PROFILER.begin(SECTION_MEMORY_PRESSURE);
                 try {
                     if (cfg2.memoryPressureEnabled) {
                         MEMORY_PRESSURE_MONITOR.onTick();
                         if (MEMORY_PRESSURE_MONITOR.isUnderPressure()) {
                             // If under memory pressure, ensure rebuild limiter is in throttled mode
-                            CHUNK_REBUILD_LIMITER.setThrottleMode(true);
+                            // (the rebuild controller takes pressure as feed-forward instead)
+                            if (!cfg2.chunkRebuildControllerEnabled) {
+                                CHUNK_REBUILD_LIMITER.setThrottleMode(true);
+                            }
                             if (cfg2.debugLogging) {
                                 LOGGER.debug("Memory pressure active, remaining ms: {}", MEMORY_PRESSURE_MONITOR.getCooldownRemainingMs());
                             }
@@ -233,8 +320,10 @@ public class CpuBoosterMod implements ClientModInitializer {
                 } catch (Throwable t) {
                     CpuBoosterMod.LOGGER.warn("MemoryPressureMonitor disabled due to error: {}", t.getMessage());
                 }
+                SECTION_PROFILER.end(SECTION_MEMORY_PRESSURE);
 
                 // ===== 10 MAJOR OPTIMIZATION SYSTEMS TICK =====
+                SECTION_PROFILER.begin(SECTION_VARIANCE_OPTIMIZER);
                 try {
                     // Feature 1: Frame-time variance optimizer
                     if (cfg2.enableFrameTimeVarianceOptimizer) {
@@ -243,25 +332,60 @@ public class CpuBoosterMod implements ClientModInitializer {
                 } catch (Throwable t) {
                     LOGGER.warn("FrameTimeVarianceOptimizer disabled: {}", t.getMessage());
                 }
+                SECTION_PROFILER.end(SECTION_VARIANCE_OPTIMIZER);
 
+                SECTION_PROFILER.begin(SECTION_SMART_CHUNK_THROTTLER);
                 try {
                     // Feature 2: Smart chunk rebuild throttler
                     if (cfg2.enableSmartChunkRebuild) {
                         SMART_CHUNK_THROTTLER.onTick(cfg2);
+                        if (client.gameRenderer != null) {
+                            Camera camera = client.gameRenderer.getCamera();
+                            Vec3d camPos = camera.getPos();
+                            int fbWidth = client.getWindow().getFramebufferWidth();
+                            int fbHeight = client.getWindow().getFramebufferHeight();
+                            if (cfg2.smartChunkCameraRescore) {
+                                SMART_CHUNK_THROTTLER.onCamera(STATE_CHANGE_CACHE, camPos.x, camPos.y, camPos.z,
+                                        camera.getYaw(), camera.getPitch(), client.options.getFov().getValue(), fbWidth, fbHeight);
+                            } else {
+                                // Still score newly deferred sections from the current view
+                                SMART_CHUNK_THROTTLER.setCamera(camPos.x, camPos.y, camPos.z,
+                                        camera.getYaw(), camera.getPitch(), client.options.getFov().getValue(), fbWidth, fbHeight);
+                            }
+                        }
                     }
                 } catch (Throwable t) {
                     LOGGER.warn("SmartChunkRebuildThrottler disabled: {}", t.getMessage());
                 }
+                SECTION_PROFILER.end(SECTION_SMART_CHUNK_THROTTLER);
 
+                SECTION_PROFILER.begin(SECTION_ENTITY_FREEZER);
                 try {
                     // Feature 3: Invisible entity freezer
                     if (cfg2.enableEntityFreezing) {
                         ENTITY_FREEZER.onTick(cfg2);
+                        if (client.world != null && client.gameRenderer != null) {
+                            EntitySpatialGrid grid = ENTITY_FREEZER.getGrid();
+                            for (Entity entity : client.world.getEntities()) {
+                                if (entity == client.player) continue;
+                                grid.add(entity.getId(), entity.getX(), entity.getY(), entity.getZ(), entity instanceof Monster);
+                            }
+                            Camera camera = client.gameRenderer.getCamera();
+                            Vec3d camPos = camera.getPos();
+                            ENTITY_FREEZER.setCamera(camPos.x, camPos.y, camPos.z, camera.getYaw(), camera.getPitch(),
+                                    client.options.getFov().getValue(),
+                                    client.getWindow().getFramebufferWidth(), client.getWindow().getFramebufferHeight());
+                            ENTITY_FREEZER.evaluate(cfg2, client.player.getX(), client.player.getY(), client.player.getZ());
+                        }
+                    } else {
+                        ENTITY_FREEZER.clearAll();
                     }
                 } catch (Throwable t) {
                     LOGGER.warn("InvisibleEntityFreezer disabled: {}", t.getMessage());
                 }
+                SECTION_PROFILER.end(SECTION_ENTITY_FREEZER);
 
+                SECTION_PROFILER.begin(SECTION_ALLOCATION_POOLS);
                 try {
                     // Feature 4: Allocation pooling
                     if (cfg2.enableAllocationPooling) {
@@ -271,7 +395,9 @@ public class CpuBoosterMod implements ClientModInitializer {
                 } catch (Throwable t) {
                     LOGGER.warn("AllocationPoolManager disabled: {}", t.getMessage());
                 }
+                SECTION_PROFILER.end(SECTION_ALLOCATION_POOLS);
 
+                SECTION_PROFILER.begin(SECTION_INPUT_DECOUPLER);
                 try {
                     // Feature 5: Input-render decoupler
                     if (cfg2.enableInputRenderDecoupling) {
@@ -280,7 +406,9 @@ public class CpuBoosterMod implements ClientModInitializer {
                 } catch (Throwable t) {
                     LOGGER.warn("InputRenderDecoupler disabled: {}", t.getMessage());
                 }
+                SECTION_PROFILER.end(SECTION_INPUT_DECOUPLER);
 
+                SECTION_PROFILER.begin(SECTION_PROFILE_DETECTOR);
                 try {
                     // Feature 6: Adaptive profile detection
                     if (cfg2.enableProfiles) {
@@ -289,7 +417,9 @@ public class CpuBoosterMod implements ClientModInitializer {
                 } catch (Throwable t) {
                     LOGGER.warn("AdaptiveProfileDetector disabled: {}", t.getMessage());
                 }
+                SECTION_PROFILER.end(SECTION_PROFILE_DETECTOR);
 
+                SECTION_PROFILER.begin(SECTION_RENDER_STATE_DEDUP);
                 try {
                     // Feature 7: Render state deduplication (EXPERIMENTAL)
                     if (cfg2.enableRenderStateDedup) {
@@ -298,7 +428,9 @@ public class CpuBoosterMod implements ClientModInitializer {
                 } catch (Throwable t) {
                     LOGGER.warn("RenderStateDeduplicator disabled: {}", t.getMessage());
                 }
+                SECTION_PROFILER.end(SECTION_RENDER_STATE_DEDUP);
 
+                SECTION_PROFILER.begin(SECTION_GPU_BATCHING);
                 try {
                     // Feature 8: GPU batching (EXPERIMENTAL)
                     if (cfg2.enableGPUBatching) {
@@ -307,34 +439,41 @@ public class CpuBoosterMod implements ClientModInitializer {
                 } catch (Throwable t) {
                     LOGGER.warn("GpuBatchingOptimizer disabled: {}", t.getMessage());
                 }
+                SECTION_PROFILER.end(SECTION_GPU_BATCHING);
 
+                SECTION_PROFILER.begin(SECTION_RESOLUTION_SCALER);
                 try {
                     // Feature 9: Dynamic resolution scaling (EXPERIMENTAL)
                     if (cfg2.enableResolutionScaling) {
+                        RESOLUTION_SCALER.setBottleneckHint(PERFORMANCE_METRICS.getBottleneck(),
+                                PERFORMANCE_METRICS.getBottleneckConfidence());
                         RESOLUTION_SCALER.onFrame(frameTimeMs, cfg2);
                     }
                 } catch (Throwable t) {
                     LOGGER.warn("DynamicResolutionScaler disabled: {}", t.getMessage());
                 }
+                SECTION_PROFILER.end(SECTION_RESOLUTION_SCALER);
 
+                SECTION_PROFILER.begin(SECTION_BLOCK_ENTITY_STORAGE);
                 try {
                     // Feature 10: Block entity cold storage
                     if (cfg2.enableBlockEntityColdStorage) {
+                        BLOCK_ENTITY_STORAGE.setWorld(client.world);
                         BLOCK_ENTITY_STORAGE.onTick(cfg2);
                     }
                 } catch (Throwable t) {
                     LOGGER.warn("BlockEntityColdStorage disabled: {}", t.getMessage());
                 }
+                SECTION_PROFILER.end(SECTION_BLOCK_ENTITY_STORAGE);
 
-                // Periodic cache cleanup
+                // Periodic cache cleanup (normally done in frame slack; the tick only catches up if that never happens)
+                SECTION_PROFILER.begin(SECTION_CACHE_CLEANUP);
                 try {
                     if (cfg2.enableCacheCleanup) {
-                        long now = System.currentTimeMillis();
-                        if (lastCacheCleanupTime == 0) lastCacheCleanupTime = now;
                         long intervalMs = cfg2.cacheCleanupIntervalSeconds * 1000L;
-                        if (now - lastCacheCleanupTime >= intervalMs) {
-                            lastCacheCleanupTime = now;
-                            com.jellomakker.cpubooster.cache.CacheRegistry.cleanupAll();
+                        if (isSlackHarvestActive(cfg2)) intervalMs *= 2;
+                        if (isCacheCleanupDue(intervalMs)) {
+                            runCacheCleanup();
                             if (cfg2.debugLogging) {
                                 LOGGER.debug("CacheRegistry: performed scheduled cleanup");
                             }
@@ -343,8 +482,10 @@ public class CpuBoosterMod implements ClientModInitializer {
                 } catch (Throwable t) {
                     CpuBoosterMod.LOGGER.warn("Cache cleanup disabled due to error: {}", t.getMessage());
                 }
+                SECTION_PROFILER.end(SECTION_CACHE_CLEANUP);
 
                 // Reset block-entity update budget each tick (start-of-tick would be better)
+                SECTION_PROFILER.begin(SECTION_BLOCK_ENTITY_LIMITER);
                 try {
                     if (cfg2.blockEntityUpdateLimiterEnabled) {
                         BLOCK_ENTITY_UPDATE_LIMITER.resetBudget();
@@ -352,11 +493,9 @@ public class CpuBoosterMod implements ClientModInitializer {
                 } catch (Throwable t) {
                     CpuBoosterMod.LOGGER.warn("BlockEntityUpdateLimiter disabled due to error: {}", t.getMessage());
                 }
+                SECTION_PROFILER.end(SECTION_BLOCK_ENTITY_LIMITER);
 
-                FramePacingPatch fp = PATCH_MANAGER.getFramePacingPatch();
-                if (fp != null) {
-                    fp.onFrameEnd();
-                }
+                SECTION_PROFILER.end(SECTION_TOTAL);
             });
             LOGGER.info("✓ Performance tracking and adaptive throttling registered");
         } catch (NoClassDefFoundError e) {
@@ -370,13 +509,9 @@ public class CpuBoosterMod implements ClientModInitializer {
             ClientTickEvents.START_CLIENT_TICK.register(client -> {
                 if (client != null) {
                     FRAME_TIME_MONITOR.markFrame();
-                    FramePacingPatch fp = PATCH_MANAGER.getFramePacingPatch();
-                    if (fp != null) {
-                        fp.onFrameStart();
-                    }
-                    if (client.world != null) {
-                        DEFERRED_TASK_QUEUE.setWorldReady(true);
-                    }
+                    TICK_TIME_TRACKER.beginTick();
+                    // Going false on world unload cancels in-flight background work
+                    DEFERRED_TASK_QUEUE.setWorldReady(client.world != null);
                 }
             });
             LOGGER.info("✓ Frame monitor registered");
@@ -386,18 +521,193 @@ public class CpuBoosterMod implements ClientModInitializer {
             LOGGER.warn("✗ FAILED at frame start registration (non-critical)", e);
         }
 
+        try {
+            ClientLifecycleEvents.CLIENT_STOPPING.register(client -> {
+                SESSION_RECORDER.stop();
+                DEFERRED_TASK_QUEUE.shutdown();
+            });
+        } catch (NoClassDefFoundError e) {
+            LOGGER.debug("Lifecycle event API not available (non-critical)");
+        }
+
         LOGGER.info("=== MacFpsBoost Init COMPLETE ===");
         logEnabledFeatures();
     }
 
+    /**
+     * Start of a render frame, from {@code MinecraftClientMixin}. Everything here sees
+     * the real frame time, not the tick interval. Client thread only.
+     */
+    public static void onRenderFrame() {
+        double frameMs = FRAME_TIME_MONITOR.markRenderFrame();
+        FramePacingPatch fp = PATCH_MANAGER.getFramePacingPatch();
+        if (fp != null) {
+            fp.onFrameStart();
+        }
+        double tickMs = tickMsSinceRenderFrame;
+        tickMsSinceRenderFrame = 0.0;
+        if (frameMs < 0.0) return;
+        MinecraftClient client = MinecraftClient.getInstance();
+        if (client == null || client.player == null) return;
+        // Before the enabled check: A/B runs also measure the "mod off" blocks
+        PERFORMANCE_COMPARATOR.onFrame(frameMs);
+        CpuBoosterConfig cfg = ConfigManager.get();
+        if (!cfg.enabled) return;
+
+        SECTION_PROFILER.begin(SECTION_FRAME_TRACKING);
+        FRAME_TIME_TRACKER.recordFrameTime(frameMs);
+        SECTION_PROFILER.end(SECTION_FRAME_TRACKING);
+
+        SECTION_PROFILER.begin(SECTION_STUTTER_SMOOTHER);
+        STUTTER_SMOOTHER.onFrame(frameMs, cfg);
+        STUTTER_SMOOTHER.notifyUserIfNeeded(cfg);
+        SECTION_PROFILER.end(SECTION_STUTTER_SMOOTHER);
+
+        SECTION_PROFILER.begin(SECTION_PERFORMANCE_METRICS);
+        PERFORMANCE_METRICS.onFrameTime(frameMs, tickMs);
+        SECTION_PROFILER.end(SECTION_PERFORMANCE_METRICS);
+
+        // Frame pacing throttler (its EMA and jitter also drive the frame budget governor)
+        SECTION_PROFILER.begin(SECTION_FRAME_PACING_THROTTLER);
+        if (cfg.adaptiveThrottlingEnabled) {
+            boolean throttleActive = FRAME_PACING_THROTTLER.onFrameTime(frameMs);
+            if (!cfg.chunkRebuildControllerEnabled) {
+                CHUNK_REBUILD_LIMITER.setThrottleMode(throttleActive);
+            }
+            if (cfg.debugLogging && throttleActive) {
+                LOGGER.debug("Adaptive throttle active, spikes detected: {}", FRAME_PACING_THROTTLER.getSpikesDetected());
+            }
+        }
+        SECTION_PROFILER.end(SECTION_FRAME_PACING_THROTTLER);
+
+        // Chunk rebuild controller: after pacing so its feed-forward sees this frame's spike state.
+        // Runs before the world renderer schedules rebuilds, so admission resets once per render frame.
+        SECTION_PROFILER.begin(SECTION_CHUNK_CONTROLLER);
+        try {
+            if (cfg.chunkRebuildControllerEnabled) {
+                CHUNK_REBUILD_CONTROLLER.updateConfig(cfg);
+                CHUNK_REBUILD_CONTROLLER.update(frameMs,
+                        cfg.adaptiveThrottlingEnabled && FRAME_PACING_THROTTLER.isThrottlingActive(),
+                        cfg.memoryPressureEnabled && MEMORY_PRESSURE_MONITOR.isUnderPressure());
+            }
+        } catch (Throwable t) {
+            CpuBoosterMod.LOGGER.warn("ChunkRebuildController disabled due to error: {}", t.getMessage());
+        }
+        SECTION_PROFILER.end(SECTION_CHUNK_CONTROLLER);
+
+        // Session timeline recorder: one record per render frame, with the tick and GC
+        // time that ran since the previous one
+        SECTION_PROFILER.begin(SECTION_SESSION_RECORDER);
+        try {
+            if (cfg.sessionRecordingEnabled && !sessionAutoStartAttempted) {
+                sessionAutoStartAttempted = true;
+                SESSION_RECORDER.start();
+            }
+            if (SESSION_RECORDER.isRecording()) {
+                int flags = 0;
+                if (FRAME_PACING_THROTTLER.isThrottlingActive()) flags |= SessionRecorder.FLAG_THROTTLING;
+                if (MEMORY_PRESSURE_MONITOR.isUnderPressure()) flags |= SessionRecorder.FLAG_MEMORY_PRESSURE;
+                if (STUTTER_SMOOTHER.isSmoothing()) flags |= SessionRecorder.FLAG_SMOOTHING;
+                SESSION_RECORDER.record(frameMs, tickMs, gcPauseMsSinceRecord,
+                        FRAME_PACING_THROTTLER.getFrameTimeEma(), cfg.chunkRebuildControllerEnabled
+                                ? CHUNK_REBUILD_CONTROLLER.getEquivalentBuilds() : CHUNK_THROTTLER.getChunkBudget(), flags);
+            }
+            gcPauseMsSinceRecord = 0.0;
+        } catch (Throwable t) {
+            CpuBoosterMod.LOGGER.warn("SessionRecorder disabled due to error: {}", t.getMessage());
+            SESSION_RECORDER.stop();
+        }
+        SECTION_PROFILER.end(SECTION_SESSION_RECORDER);
+    }
+
+    /**
+     * End of a render frame, from {@code MinecraftClientMixin}: frame pacing and slack harvest.
+     */
+    public static void onRenderFrameEnd() {
+        FramePacingPatch fp = PATCH_MANAGER.getFramePacingPatch();
+        if (fp == null) return;
+        MinecraftClient client = MinecraftClient.getInstance();
+        if (client == null || client.player == null) return;
+        CpuBoosterConfig cfg = ConfigManager.get();
+        if (!cfg.enabled) return;
+        SECTION_PROFILER.begin(SECTION_FRAME_PACING_PATCH);
+        fp.updateConfig(cfg);
+        fp.onFrameEnd();
+        SECTION_PROFILER.end(SECTION_FRAME_PACING_PATCH);
+    }
+
+    private static void dispatchGcPause(GcTelemetry.GcPause pause) {
+        if (!pause.isConcurrent()) {
+            gcPauseMsSinceRecord += pause.durationMs;
+        }
+        PERFORMANCE_METRICS.onGcPause(pause);
+        STUTTER_SMOOTHER.onGcPause(pause);
+        MEMORY_PRESSURE_MONITOR.onGcPause(pause);
+        if (ConfigManager.get().debugLogging) {
+            LOGGER.debug("GC: {} {} ({}) {} ms, heap {} -> {} MB", pause.collector, pause.action, pause.cause,
+                    pause.durationMs, pause.heapBeforeBytes / (1024 * 1024), pause.heapAfterBytes / (1024 * 1024));
+        }
+    }
+
     private void initializePatches(CpuBoosterConfig cfg) {
         for (String patchId : cfg.patches.keySet()) {
             PATCH_MANAGER.setPatchState(patchId, cfg.patches.get(patchId));
         }
         PATCH_MANAGER.initializeEnabledPatches();
+        registerSlackConsumers();
         LOGGER.info("Patch system initialized");
     }
 
+    /**
+     * Work the frame pacing patch may run in the idle end of an early frame, in priority order.
+     */
+    private void registerSlackConsumers() {
+        FramePacingPatch fp = PATCH_MANAGER.getFramePacingPatch();
+        if (fp == null) return;
+        fp.addSlackConsumer(new FramePacingPatch.SlackConsumer() {
+            @Override
+            public String getName() { return "deferredTasks"; }
+
+            @Override
+            public boolean harvest(long budgetNs) {
+                // Same gates as the tick budget: nothing during smoothing or memory pressure
+                if (STUTTER_SMOOTHER.isSmoothing() || MEMORY_PRESSURE_MONITOR.isUnderPressure()) return false;
+                return DEFERRED_TASK_QUEUE.runSlack(budgetNs);
+            }
+        });
+        fp.addSlackConsumer(new FramePacingPatch.SlackConsumer() {
+            @Override
+            public String getName() { return "cacheCleanup"; }
+
+            @Override
+            public boolean harvest(long budgetNs) {
+                CpuBoosterConfig cfg = ConfigManager.get();
+                if (!cfg.enableCacheCleanup || budgetNs < lastCacheCleanupCostNs) return false;
+                if (!isCacheCleanupDue(cfg.cacheCleanupIntervalSeconds * 1000L)) return false;
+                runCacheCleanup();
+                return true;
+            }
+        });
+    }
+
+    private static boolean isSlackHarvestActive(CpuBoosterConfig cfg) {
+        return cfg.slackHarvestEnabled && PATCH_MANAGER.getPatchState("framePacing")
+                && AppleSiliconDetector.isAppleSilicon();
+    }
+
+    private static boolean isCacheCleanupDue(long intervalMs) {
+        long now = System.currentTimeMillis();
+        if (lastCacheCleanupTime == 0) lastCacheCleanupTime = now;
+        return now - lastCacheCleanupTime >= intervalMs;
+    }
+
+    private static void runCacheCleanup() {
+        long start = System.nanoTime();
+        com.jellomakker.cpubooster.cache.CacheRegistry.cleanupAll();
+        lastCacheCleanupCostNs = System.nanoTime() - start;
+        lastCacheCleanupTime = System.currentTimeMillis();
+    }
+
     private void logEnabledFeatures() {
         CpuBoosterConfig cfg = ConfigManager.get();
         LOGGER.info("=== Enabled Features ===");
@@ -417,12 +727,25 @@ public class CpuBoosterMod implements ClientModInitializer {
     public static TickTimeTracker getTickTimeTracker() { return TICK_TIME_TRACKER; }
     public static StutterSmoother getStutterSmoother() { return STUTTER_SMOOTHER; }
     public static PerformanceMetrics getPerformanceMetrics() { return PERFORMANCE_METRICS; }
+    public static GcTelemetry getGcTelemetry() { return GC_TELEMETRY; }
     public static PatchManager getPatchManager() { return PATCH_MANAGER; }
+    public static SectionProfiler getSectionProfiler() { return SECTION_PROFILER; }
+    public static SessionRecorder getSessionRecorder() { return SESSION_RECORDER; }
+    public static PerformanceComparator getPerformanceComparator() { return PERFORMANCE_COMPARATOR; }
     public static ChunkRebuildThrottler getChunkThrottler() { return CHUNK_THROTTLER; }
     public static HudThrottler getHudThrottler() { return HUD_THROTTLER; }
     public static DeferredTaskQueue getDeferredTaskQueue() { return DEFERRED_TASK_QUEUE; }
+    public static SmartChunkRebuildThrottler getSmartChunkThrottler() { return SMART_CHUNK_THROTTLER; }
+    public static FrameBudgetGovernor getFrameBudgetGovernor() { return FRAME_BUDGET_GOVERNOR; }
     public static FramePacingThrottler getFramePacingThrottler() { return FRAME_PACING_THROTTLER; }
     public static ChunkRebuildLimiter getChunkRebuildLimiter() { return CHUNK_REBUILD_LIMITER; }
+    public static ChunkRebuildCostModel getChunkRebuildCostModel() { return CHUNK_REBUILD_COST_MODEL; }
+    public static ChunkRebuildController getChunkRebuildController() { return CHUNK_REBUILD_CONTROLLER; }
+    public static ChunkRebuildGate getChunkRebuildGate() { return CHUNK_REBUILD_GATE; }
+    public static InvisibleEntityFreezer getEntityFreezer() { return ENTITY_FREEZER; }
+    public static EntityTickScheduler getEntityTickScheduler() { return ENTITY_TICK_SCHEDULER; }
+    public static BlockEntityColdStorage getBlockEntityStorage() { return BLOCK_ENTITY_STORAGE; }
+    public static IdleBlockEntityBaker getBlockEntityBaker() { return BLOCK_ENTITY_BAKER; }
     public static com.jellomakker.cpubooster.memory.MemoryPressureMonitor getMemoryPressureMonitor() { return MEMORY_PRESSURE_MONITOR; }
     public static com.jellomakker.cpubooster.block.BlockEntityUpdateLimiter getBlockEntityUpdateLimiter() { return BLOCK_ENTITY_UPDATE_LIMITER; }
     public static com.jellomakker.cpubooster.state.StateChangeCache getStateChangeCache() { return STATE_CHANGE_CACHE; }
@@ -1,9 +1,25 @@
 package com.jellomakker.cpubooster;
 
+/**
+ * Measures two different intervals on the client thread:
+ * - ticks: START_CLIENT_TICK to START_CLIENT_TICK, about 50 ms at 20 ticks/s
+ * - render frames: head of {@code MinecraftClient.render} to the next one, i.e. the
+ *   real frame time the player sees
+ *
+ * Frame-time consumers must use the render frame interval; the tick interval says
+ * nothing about frame rate. If the render hook never fires (mixin not applied),
+ * {@link #hasRenderFrames()} stays false and frame-driven features should idle.
+ */
 public class FrameTimeMonitor {
+    private static final long RENDER_HOOK_TIMEOUT_NS = 1_000_000_000L;
+
     private long lastFrameNs = System.nanoTime();
     private double lastFrameMs = 0.0;
 
+    private long lastRenderFrameNs = 0;
+    private double lastRenderFrameMs = 0.0;
+    private long renderFrameCount = 0;
+
     public void markFrame() {
         long now = System.nanoTime();
         long delta = now - lastFrameNs;
@@ -11,7 +27,39 @@ public class FrameTimeMonitor {
         lastFrameNs = now;
     }
 
+    /**
+     * Tick interval in ms (despite the name, kept for existing callers).
+     */
     public double getLastFrameMs() {
         return lastFrameMs;
     }
+
+    /**
+     * Call at the start of every render frame.
+     * @return the interval since the previous render frame in ms, or -1 for the first one
+     */
+    public double markRenderFrame() {
+        long now = System.nanoTime();
+        boolean first = lastRenderFrameNs == 0 || now - lastRenderFrameNs > RENDER_HOOK_TIMEOUT_NS;
+        lastRenderFrameMs = first ? 0.0 : (now - lastRenderFrameNs) / 1_000_000.0;
+        lastRenderFrameNs = now;
+        renderFrameCount++;
+        // A gap over a second is a pause or a loading screen, not a frame
+        return first ? -1.0 : lastRenderFrameMs;
+    }
+
+    public double getLastRenderFrameMs() {
+        return lastRenderFrameMs;
+    }
+
+    public long getRenderFrameCount() {
+        return renderFrameCount;
+    }
+
+    /**
+     * True while the render frame hook has fired within the last second.
+     */
+    public boolean hasRenderFrames() {
+        return lastRenderFrameNs != 0 && System.nanoTime() - lastRenderFrameNs <= RENDER_HOOK_TIMEOUT_NS;
+    }
 }
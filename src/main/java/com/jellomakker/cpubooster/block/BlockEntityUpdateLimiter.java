@@ -2,19 +2,36 @@ package com.jellomakker.cpubooster.block;
 
 import com.jellomakker.cpubooster.CpuBoosterMod;
 
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 /**
  * Simple per-tick budget limiter for client-side block-entity helper updates.
  * Other parts of this mod should call `requestUpdate()` before performing
  * optional visual-only updates.
+ *
+ * Updates for a specific block entity should use {@link #requestUpdate(long, double)}:
+ * the budget then goes through a {@link BlockEntityUpdateScheduler}, which shares it
+ * by staleness and distance with a round-robin floor, instead of first come first
+ * served. Keyed requests are client thread only. Whatever the scheduler doesn't grant
+ * is left for plain `requestUpdate()` calls (and first requests from block entities
+ * the scheduler hasn't seen yet), which may come from any thread. That pool is split
+ * into per-thread stripes on separate cache lines; a thread takes from its own stripe
+ * and only looks at the others when it runs dry.
  */
 public class BlockEntityUpdateLimiter {
-    private final AtomicInteger budget = new AtomicInteger(0);
+    private static final int STRIPE_STRIDE = 16; // ints per 64-byte cache line
+
+    private final int stripes;
+    private final AtomicIntegerArray budget;
+    private final BlockEntityUpdateScheduler scheduler = new BlockEntityUpdateScheduler();
     private volatile int maxPerTick = 50;
     private volatile boolean enabled = true;
 
-    public BlockEntityUpdateLimiter() {}
+    public BlockEntityUpdateLimiter() {
+        int cpus = Runtime.getRuntime().availableProcessors();
+        this.stripes = Integer.highestOneBit(Math.max(1, Math.min(8, cpus)));
+        this.budget = new AtomicIntegerArray(stripes * STRIPE_STRIDE);
+    }
 
     public void updateConfig(int maxPerTick, boolean enabled) {
         this.maxPerTick = maxPerTick;
@@ -22,10 +39,21 @@ public class BlockEntityUpdateLimiter {
     }
 
     /**
-     * Reset budget at tick start.
+     * Reset budget at tick start. Scheduled block entities get their permits first.
      */
     public void resetBudget() {
-        budget.set(maxPerTick);
+        int pool = maxPerTick;
+        try {
+            pool -= scheduler.schedule(maxPerTick);
+        } catch (Exception e) {
+            CpuBoosterMod.LOGGER.warn("BlockEntityUpdateScheduler error: {}", e.getMessage());
+            scheduler.clear();
+        }
+        int base = pool / stripes;
+        int extra = pool % stripes;
+        for (int s = 0; s < stripes; s++) {
+            budget.set(s * STRIPE_STRIDE, base + (s < extra ? 1 : 0));
+        }
     }
 
     /**
@@ -34,18 +62,45 @@ public class BlockEntityUpdateLimiter {
      */
     public boolean requestUpdate() {
         if (!enabled) return true; // if disabled, always allow
+        int home = (int) Thread.currentThread().threadId() & (stripes - 1);
+        for (int i = 0; i < stripes; i++) {
+            if (tryTake(((home + i) & (stripes - 1)) * STRIPE_STRIDE)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Request permission to update one block entity. Client thread only.
+     * @param posKey the block entity's {@code BlockPos.asLong()}
+     * @param distanceSq squared distance to the player or camera
+     */
+    public boolean requestUpdate(long posKey, double distanceSq) {
+        if (!enabled) return true;
+        int result = scheduler.request(posKey, distanceSq);
+        if (result == BlockEntityUpdateScheduler.GRANTED) return true;
+        // Not scheduled yet: it may still use budget the scheduler left over
+        return result == BlockEntityUpdateScheduler.NEW && requestUpdate();
+    }
+
+    private boolean tryTake(int index) {
         while (true) {
-            int cur = budget.get();
+            int cur = budget.get(index);
             if (cur <= 0) return false;
-            if (budget.compareAndSet(cur, cur - 1)) return true;
+            if (budget.compareAndSet(index, cur, cur - 1)) return true;
         }
     }
 
     public int getRemaining() {
-        return Math.max(0, budget.get());
+        int sum = 0;
+        for (int s = 0; s < stripes; s++) {
+            sum += Math.max(0, budget.get(s * STRIPE_STRIDE));
+        }
+        return sum;
     }
 
     public int getMaxPerTick() { return maxPerTick; }
 
     public boolean isEnabled() { return enabled; }
+
+    public BlockEntityUpdateScheduler getScheduler() { return scheduler; }
 }
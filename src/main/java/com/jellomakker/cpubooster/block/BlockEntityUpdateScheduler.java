@@ -0,0 +1,264 @@
+package com.jellomakker.cpubooster.block;
+
+import com.jellomakker.cpubooster.optimize.LongIndexedMinHeap;
+
+import java.util.Arrays;
+
+/**
+ * Hands out a per-tick update budget across known block entities fairly.
+ *
+ * Every block entity that asks for an update is remembered with its position key,
+ * last-serviced tick and distance. At the start of each tick {@link #schedule}
+ * grants permits in two parts:
+ * - A round-robin cursor walks the entries and grants a fixed share of the budget
+ *   (a quarter, at least one). With n entries and share r, every entry is granted
+ *   at least once every ceil(n / r) ticks, however far away it is.
+ * - The rest goes to the entries with the highest priority, staleness (ticks since
+ *   last serviced) times a proximity weight, so near block entities are serviced
+ *   often without starving far ones.
+ *
+ * Only entries that asked during the previous tick are granted, so permits aren't
+ * reserved for block entities that have stopped asking (e.g. baked ones) while they
+ * wait to be evicted. A granted entry is serviced when it next asks during that tick.
+ * Entries that stop asking for {@link #EVICT_AFTER_TICKS} ticks are forgotten. Entries live in dense
+ * parallel arrays (removed by swapping in the last one) with an open-addressing
+ * index from key to slot. Client thread only.
+ */
+public class BlockEntityUpdateScheduler {
+    /** {@link #request} result: permit used. */
+    public static final int GRANTED = 0;
+    /** {@link #request} result: no permit this tick. */
+    public static final int DENIED = 1;
+    /** {@link #request} result: key was unknown and is now registered for the next {@link #schedule}. */
+    public static final int NEW = 2;
+
+    private static final int EMPTY = -1;
+    private static final int EVICT_AFTER_TICKS = 40;
+    private static final double PROXIMITY_REF_SQ = 16.0 * 16.0; // weight halves at 16 blocks
+
+    // Entries, dense
+    private long[] keys;
+    private long[] lastServiced;
+    private long[] lastRequested;
+    private long[] grantedAt;
+    private double[] distanceSq;
+    private int size = 0;
+
+    // Index: key -> entry slot
+    private long[] tableKeys;
+    private int[] tableSlots;
+    private int tableMask;
+
+    private final LongIndexedMinHeap topK = new LongIndexedMinHeap(64);
+    private long tick = 0;
+    private int cursor = 0;
+
+    private int lastGranted = 0;
+    private long lastMaxStaleness = 0;
+
+    public BlockEntityUpdateScheduler() {
+        allocateEntries(256);
+        allocateTable(1024);
+    }
+
+    /**
+     * Start a tick: forget idle entries and grant up to {@code budget} permits.
+     * @return number of permits granted (the rest of the budget is unused)
+     */
+    public int schedule(int budget) {
+        tick++;
+        evictIdle();
+        int granted = 0;
+        long maxStaleness = 0;
+        if (size > 0 && budget > 0) {
+            // Round-robin share first: bounds the wait for every entry still asking
+            int share = Math.max(1, budget / 4);
+            for (int i = 0; i < size && granted < share; i++) {
+                if (cursor >= size) cursor = 0;
+                int slot = cursor++;
+                if (!isActive(slot)) continue;
+                grantedAt[slot] = tick;
+                granted++;
+            }
+
+            // Rest by staleness x proximity, keeping the best k in a min-heap
+            int k = budget - granted;
+            topK.clear();
+            for (int i = 0; i < size; i++) {
+                long staleness = tick - lastServiced[i];
+                if (staleness > maxStaleness) maxStaleness = staleness;
+                if (k <= 0 || grantedAt[i] == tick || !isActive(i)) continue;
+                double priority = staleness / (1.0 + distanceSq[i] / PROXIMITY_REF_SQ);
+                if (topK.size() < k) {
+                    topK.insertOrUpdate(i, priority);
+                } else if (priority > topK.peekPriority()) {
+                    topK.pollKey();
+                    topK.insertOrUpdate(i, priority);
+                }
+            }
+            while (!topK.isEmpty()) {
+                grantedAt[(int) topK.pollKey()] = tick;
+                granted++;
+            }
+        }
+        lastGranted = granted;
+        lastMaxStaleness = maxStaleness;
+        return granted;
+    }
+
+    /**
+     * Record a request from a block entity, using its permit if it holds one this tick.
+     * @param distSq squared distance to the player, for the proximity weight
+     * @return {@link #GRANTED}, {@link #DENIED} or {@link #NEW}
+     */
+    public int request(long key, double distSq) {
+        int slot = find(key);
+        if (slot == EMPTY) {
+            insert(key, distSq);
+            return NEW;
+        }
+        lastRequested[slot] = tick;
+        distanceSq[slot] = distSq;
+        if (grantedAt[slot] != tick) return DENIED;
+        grantedAt[slot] = -1;
+        lastServiced[slot] = tick;
+        return GRANTED;
+    }
+
+    /**
+     * Asked during the previous tick ({@link #schedule} has already advanced the tick).
+     */
+    private boolean isActive(int slot) {
+        return lastRequested[slot] >= tick - 1;
+    }
+
+    public int getTrackedCount() {
+        return size;
+    }
+
+    public int getLastGranted() {
+        return lastGranted;
+    }
+
+    /**
+     * Longest any tracked entry had gone unserviced at the last {@link #schedule}.
+     */
+    public long getLastMaxStaleness() {
+        return lastMaxStaleness;
+    }
+
+    public void clear() {
+        size = 0;
+        cursor = 0;
+        Arrays.fill(tableSlots, EMPTY);
+    }
+
+    private void insert(long key, double distSq) {
+        if (size == keys.length) growEntries();
+        int slot = size++;
+        keys[slot] = key;
+        lastServiced[slot] = tick;
+        lastRequested[slot] = tick;
+        grantedAt[slot] = -1;
+        distanceSq[slot] = distSq;
+        if (size * 2 > tableSlots.length) {
+            allocateTable(tableSlots.length * 2);
+            for (int i = 0; i < size; i++) tableSlots[emptyBucket(keys[i])] = i;
+        } else {
+            tableSlots[emptyBucket(key)] = slot;
+        }
+    }
+
+    private void evictIdle() {
+        for (int i = size - 1; i >= 0; i--) {
+            if (tick - lastRequested[i] > EVICT_AFTER_TICKS) removeSlot(i);
+        }
+        if (cursor > size) cursor = 0;
+    }
+
+    /**
+     * Remove entry {@code slot} by moving the last entry into it.
+     */
+    private void removeSlot(int slot) {
+        removeFromTable(keys[slot]);
+        int last = --size;
+        if (slot != last) {
+            keys[slot] = keys[last];
+            lastServiced[slot] = lastServiced[last];
+            lastRequested[slot] = lastRequested[last];
+            grantedAt[slot] = grantedAt[last];
+            distanceSq[slot] = distanceSq[last];
+            tableSlots[findBucket(keys[slot])] = slot;
+        }
+    }
+
+    private int find(long key) {
+        return tableSlots[findBucket(key)];
+    }
+
+    /**
+     * Bucket holding {@code key}, or the empty bucket where its probe run ends.
+     */
+    private int findBucket(long key) {
+        int b = bucketOf(key);
+        int s;
+        while ((s = tableSlots[b]) != EMPTY && keys[s] != key) {
+            b = (b + 1) & tableMask;
+        }
+        return b;
+    }
+
+    private int emptyBucket(long key) {
+        int b = bucketOf(key);
+        while (tableSlots[b] != EMPTY) b = (b + 1) & tableMask;
+        tableKeys[b] = key;
+        return b;
+    }
+
+    private void removeFromTable(long key) {
+        int hole = findBucket(key);
+        if (tableSlots[hole] == EMPTY) return;
+        int b = (hole + 1) & tableMask;
+        while (tableSlots[b] != EMPTY) {
+            int home = bucketOf(tableKeys[b]);
+            // Move b into the hole unless its home lies cyclically in (hole, b]
+            boolean homeBetween = hole <= b ? (hole < home && home <= b) : (hole < home || home <= b);
+            if (!homeBetween) {
+                tableKeys[hole] = tableKeys[b];
+                tableSlots[hole] = tableSlots[b];
+                hole = b;
+            }
+            b = (b + 1) & tableMask;
+        }
+        tableSlots[hole] = EMPTY;
+    }
+
+    private int bucketOf(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & tableMask;
+    }
+
+    private void allocateEntries(int cap) {
+        keys = new long[cap];
+        lastServiced = new long[cap];
+        lastRequested = new long[cap];
+        grantedAt = new long[cap];
+        distanceSq = new double[cap];
+    }
+
+    private void growEntries() {
+        int cap = keys.length * 2;
+        keys = Arrays.copyOf(keys, cap);
+        lastServiced = Arrays.copyOf(lastServiced, cap);
+        lastRequested = Arrays.copyOf(lastRequested, cap);
+        grantedAt = Arrays.copyOf(grantedAt, cap);
+        distanceSq = Arrays.copyOf(distanceSq, cap);
+    }
+
+    private void allocateTable(int size) {
+        tableKeys = new long[size];
+        tableSlots = new int[size];
+        Arrays.fill(tableSlots, EMPTY);
+        tableMask = size - 1;
+    }
+}
@@ -30,6 +30,12 @@ public class CpuBoosterConfig {
 
     // Deferred task system
     public int deferredTaskBudgetMs = 5000;
+    // Headroom governor: replaces the fixed budget above with (target - predicted frame) * spend fraction
+    public boolean frameBudgetGovernorEnabled = true;
+    public double frameBudgetVarianceMargin = 2.0; // stddevs of jitter added to the EMA prediction
+    public double frameBudgetSpendFraction = 0.8; // share of headroom given to optional work
+    public int frameBudgetMinMicros = 250; // floor when there is no headroom or while smoothing (not under memory pressure)
+    public int frameBudgetMaxMicros = 12000;
 
     // Performance metrics collection
     public boolean metricsEnabled = true;
@@ -41,6 +47,17 @@ public class CpuBoosterConfig {
     // Chunk rebuild limiter (token-bucket)
     public int maxChunkRebuildsPerSecondNormal = 60;
     public int maxChunkRebuildsPerSecondThrottled = 15;
+    public double chunkRebuildNominalMs = 1.0; // typical section build time; converts the rates above to ms/sec
+    public double maxChunkBuildMsPerTick = 4.0; // predicted build time admitted per admission round at full budget (a render frame for the controller)
+    // Closed-loop rebuild controller: one PI-controlled ms budget instead of the throttle, limiter and smart cap
+    public boolean chunkRebuildControllerEnabled = true;
+    public double chunkControllerKp = 0.15; // budget ms per ms of frame-time error
+    public double chunkControllerKi = 0.7; // budget ms per ms of error per second
+    public double chunkControllerMinMs = 0.5; // budget floor (maxChunkBuildMsPerTick is the ceiling)
+    public double chunkControllerDeadbandMs = 1.5; // overshoot of the target this small counts as zero error
+    public double chunkControllerSpikeFactor = 0.35; // budget multiplier during a frame pacing spike cooldown
+    public double chunkControllerPressureFactor = 0.5; // budget multiplier under memory pressure
+    public boolean chunkRebuildGateEnabled = false; // route the renderer's async rebuild scheduling through the above (opt-in)
 
     // Debug logging
     public boolean debugLogging = false;
@@ -54,6 +71,10 @@ public class CpuBoosterConfig {
     public boolean enableCacheCleanup = true;
     public int cacheCleanupIntervalSeconds = 30;
 
+    // Frame pacing patch: run optional work in the idle end of early frames before waiting for the boundary
+    public boolean slackHarvestEnabled = true;
+    public int slackSafetyMarginMicros = 1000; // stop harvesting this long before the frame boundary
+
     // Block entity update limiter
     public boolean blockEntityUpdateLimiterEnabled = true;
     public int maxBlockEntityUpdatesPerTick = 50;
@@ -68,11 +89,13 @@ public class CpuBoosterConfig {
     // FEATURE 1: Frame-time variance adaptive optimizer
     public boolean enableFrameTimeVarianceOptimizer = true;
     public double frameTimeVarianceSpikeThreshold = 5.0; // ms above running average
+    public int frameTimeVarianceWindowFrames = 30;
     public int deferralDurationTicks = 2;
 
     // FEATURE 2: Smart chunk rebuild throttling
     public boolean enableSmartChunkRebuild = true;
     public int smartChunkMaxRebuildsPerTick = 4;
+    public boolean smartChunkCameraRescore = true; // re-score pending sections when the camera moves or turns
     public boolean adaptiveChunkBudgetEnabled = true;
     public int maxChunkQueueSize = 100;
 
@@ -84,6 +107,7 @@ public class CpuBoosterConfig {
     public double entityFreezeDistance = 64.0; // blocks from player
     public double entitySafetyRadius = 24.0; // never freeze within this distance
     public boolean freezeHostileMobs = false; // conservative default
+    public boolean entityTickLodEnabled = false; // tick every 2nd/4th/8th tick between the safety radius and freeze distance
 
     // FEATURE 5: GPU-friendly render batching
     public boolean enableGPUBatching = true;
@@ -103,6 +127,7 @@ public class CpuBoosterConfig {
     // FEATURE 9: Block entity cold storage (idle caching)
     public boolean enableBlockEntityColdStorage = true;
     public int blockEntityIdleThreshold = 60; // ticks before cache
+    public boolean bakeIdleBlockEntities = true; // replay recorded renderer output for idle chests, signs, beds, banners, shulker boxes
 
     // FEATURE 10: Multi-profile adaptive optimizer
     public boolean enableProfiles = true;
@@ -112,6 +137,15 @@ public class CpuBoosterConfig {
     // Diagnostics
     public boolean diagnosticsEnabled = true;
 
+    // Session recorder (memory-mapped timeline under config/cpubooster/recordings/)
+    public boolean sessionRecordingEnabled = false; // start recording automatically on world join
+    public int sessionRecordingSegmentMB = 8; // ~260k ticks (~3.6 h) per segment
+
+    // A/B benchmarking (/cpubooster ab)
+    public int abPairs = 10; // on/off block pairs per run
+    public int abBlockFrames = 600; // measured render frames per block (~10 s at 60 FPS)
+    public int abWarmupFrames = 60; // render frames discarded after each switch
+
     // Performance patches (each can be toggled independently)
     // If not present in config, defaults to all enabled
     public Map<String, Boolean> patches = new HashMap<>();
@@ -4,6 +4,7 @@ import com.jellomakker.cpubooster.CpuBoosterMod;
 import com.jellomakker.cpubooster.config.ConfigManager;
 import com.jellomakker.cpubooster.config.CpuBoosterConfig;
 import com.jellomakker.cpubooster.metrics.PerformanceMetrics;
+import com.jellomakker.cpubooster.optimize.ChunkRebuildController;
 import com.jellomakker.cpubooster.optimize.ChunkRebuildThrottler;
 import com.jellomakker.cpubooster.perf.FrameTimeTracker;
 import com.jellomakker.cpubooster.perf.TickTimeTracker;
@@ -23,15 +24,17 @@ public class DebugOverlayHud implements HudRenderCallback {
     private final StutterSmoother stutterSmoother;
     private final PerformanceMetrics performanceMetrics;
     private final ChunkRebuildThrottler chunkThrottler;
+    private final ChunkRebuildController chunkController;
 
     public DebugOverlayHud(FrameTimeTracker frameTimeTracker, TickTimeTracker tickTimeTracker, 
                            StutterSmoother stutterSmoother, PerformanceMetrics performanceMetrics,
-                           ChunkRebuildThrottler chunkThrottler) {
+                           ChunkRebuildThrottler chunkThrottler, ChunkRebuildController chunkController) {
         this.frameTimeTracker = frameTimeTracker;
         this.tickTimeTracker = tickTimeTracker;
         this.stutterSmoother = stutterSmoother;
         this.performanceMetrics = performanceMetrics;
         this.chunkThrottler = chunkThrottler;
+        this.chunkController = chunkController;
     }
 
     @Override
@@ -46,7 +49,8 @@ public class DebugOverlayHud implements HudRenderCallback {
             String enabled = cfg.enabled ? "ON" : "OFF";
             String smoothing = stutterSmoother.isSmoothing() ? " [SMOOTHING]" : "";
             String bottleneck = performanceMetrics.getBottleneckAnalysis();
-            int chunkBudget = chunkThrottler.getChunkBudget();
+            int chunkBudget = cfg.chunkRebuildControllerEnabled
+                    ? chunkController.getEquivalentBuilds() : chunkThrottler.getChunkBudget();
             
             double avgFrameTime = frameTimeTracker.getAverageFrameTime();
             double p1FrameTime = frameTimeTracker.get1PercentLow();
@@ -93,7 +97,8 @@ public class DebugOverlayHud implements HudRenderCallback {
 
             drawContext.drawTextWithBackground(
                     client.textRenderer,
-                    Text.literal("Bottleneck: " + bottleneck),
+                    Text.literal(String.format("Bottleneck: %s (%d%%)", bottleneck,
+                            (int) (performanceMetrics.getBottleneckConfidence() * 100))),
                     x, y,
                     0xFFFFFF,
                     0x000000
@@ -8,6 +8,7 @@ import com.jellomakker.cpubooster.optimize.FramePacingThrottler;
 import com.jellomakker.cpubooster.optimize.ChunkRebuildLimiter;
 import com.jellomakker.cpubooster.patches.PatchManager;
 import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.arguments.StringArgumentType;
 import com.mojang.brigadier.context.CommandContext;
 import net.fabricmc.fabric.api.client.command.v2.ClientCommandRegistrationCallback;
 import net.fabricmc.fabric.api.client.command.v2.FabricClientCommandSource;
@@ -38,9 +39,119 @@ public class Commands {
                         .then(com.mojang.brigadier.builder.LiteralArgumentBuilder
                                 .<FabricClientCommandSource>literal("status")
                                 .executes(Commands::statusCommand))
+                        .then(com.mojang.brigadier.builder.LiteralArgumentBuilder
+                                .<FabricClientCommandSource>literal("record")
+                                .then(com.mojang.brigadier.builder.LiteralArgumentBuilder
+                                        .<FabricClientCommandSource>literal("start")
+                                        .executes(Commands::recordStartCommand))
+                                .then(com.mojang.brigadier.builder.LiteralArgumentBuilder
+                                        .<FabricClientCommandSource>literal("stop")
+                                        .executes(Commands::recordStopCommand)))
+                        .then(com.mojang.brigadier.builder.LiteralArgumentBuilder
+                                .<FabricClientCommandSource>literal("ab")
+                                .executes(Commands::abStatusCommand)
+                                .then(com.mojang.brigadier.builder.LiteralArgumentBuilder
+                                        .<FabricClientCommandSource>literal("mod")
+                                        .executes(context -> abStartCommand(context,
+                                                com.jellomakker.cpubooster.perf.PerformanceComparator.wholeModTarget())))
+                                .then(com.mojang.brigadier.builder.LiteralArgumentBuilder
+                                        .<FabricClientCommandSource>literal("patch")
+                                        .then(com.mojang.brigadier.builder.RequiredArgumentBuilder
+                                                .<FabricClientCommandSource, String>argument("id", StringArgumentType.word())
+                                                .executes(context -> abStartCommand(context, () ->
+                                                        com.jellomakker.cpubooster.perf.PerformanceComparator.patchTarget(
+                                                                CpuBoosterMod.getPatchManager(),
+                                                                StringArgumentType.getString(context, "id"))))))
+                                .then(com.mojang.brigadier.builder.LiteralArgumentBuilder
+                                        .<FabricClientCommandSource>literal("flag")
+                                        .then(com.mojang.brigadier.builder.RequiredArgumentBuilder
+                                                .<FabricClientCommandSource, String>argument("name", StringArgumentType.word())
+                                                .executes(context -> abStartCommand(context, () ->
+                                                        com.jellomakker.cpubooster.perf.PerformanceComparator.featureFlagTarget(
+                                                                StringArgumentType.getString(context, "name"))))))
+                                .then(com.mojang.brigadier.builder.LiteralArgumentBuilder
+                                        .<FabricClientCommandSource>literal("stop")
+                                        .executes(Commands::abStopCommand)))
         );
     }
 
+    private static int abStartCommand(CommandContext<FabricClientCommandSource> context,
+                                      com.jellomakker.cpubooster.perf.PerformanceComparator.AbTarget target) {
+        return abStartCommand(context, () -> target);
+    }
+
+    private static int abStartCommand(CommandContext<FabricClientCommandSource> context,
+                                      java.util.function.Supplier<com.jellomakker.cpubooster.perf.PerformanceComparator.AbTarget> target) {
+        com.jellomakker.cpubooster.perf.PerformanceComparator comparator = CpuBoosterMod.getPerformanceComparator();
+        CpuBoosterConfig cfg = ConfigManager.get();
+        try {
+            com.jellomakker.cpubooster.perf.PerformanceComparator.AbTarget t = target.get();
+            comparator.startAb(t, cfg.abPairs, cfg.abBlockFrames, cfg.abWarmupFrames);
+            context.getSource().sendFeedback(Text.literal(String.format(
+                    "§aA/B run started for %s: %d pairs of %d-frame blocks. Keep playing normally; see /cpubooster ab",
+                    t.getName(), cfg.abPairs, cfg.abBlockFrames)));
+        } catch (IllegalArgumentException e) {
+            context.getSource().sendError(Text.literal(e.getMessage()));
+        }
+        return 1;
+    }
+
+    private static int abStopCommand(CommandContext<FabricClientCommandSource> context) {
+        com.jellomakker.cpubooster.perf.PerformanceComparator comparator = CpuBoosterMod.getPerformanceComparator();
+        if (!comparator.isAbRunning()) {
+            context.getSource().sendFeedback(Text.literal("§eNo A/B run in progress"));
+            return 1;
+        }
+        comparator.stopAb();
+        context.getSource().sendFeedback(Text.literal("§eA/B run aborted; target restored"));
+        return 1;
+    }
+
+    private static int abStatusCommand(CommandContext<FabricClientCommandSource> context) {
+        FabricClientCommandSource source = context.getSource();
+        com.jellomakker.cpubooster.perf.PerformanceComparator comparator = CpuBoosterMod.getPerformanceComparator();
+        if (comparator.isAbRunning()) {
+            source.sendFeedback(Text.literal(String.format("§6A/B run: §e%s§f, %d%% complete",
+                    comparator.getAbTargetName(), comparator.getAbProgress())));
+        }
+        com.jellomakker.cpubooster.perf.PerformanceComparator.AbResult result = comparator.getLastAbResult();
+        if (result != null) {
+            source.sendFeedback(Text.literal("§6Last A/B result (on minus off):"));
+            for (String line : result.describe()) {
+                source.sendFeedback(Text.literal("  " + line));
+            }
+        } else if (!comparator.isAbRunning()) {
+            source.sendFeedback(Text.literal("§eNo A/B results yet. Usage: /cpubooster ab mod | patch <id> | flag <name> | stop"));
+        }
+        return 1;
+    }
+
+    private static int recordStartCommand(CommandContext<FabricClientCommandSource> context) {
+        com.jellomakker.cpubooster.perf.SessionRecorder recorder = CpuBoosterMod.getSessionRecorder();
+        if (recorder.isRecording()) {
+            context.getSource().sendFeedback(Text.literal("§eAlready recording " + recorder.getSessionName()));
+        } else if (recorder.start()) {
+            context.getSource().sendFeedback(Text.literal("§aRecording " + recorder.getSessionName()
+                    + " to " + com.jellomakker.cpubooster.perf.SessionRecorder.RECORDINGS_DIR.getPath()));
+        } else {
+            context.getSource().sendError(Text.literal("Failed to start session recording (see log)"));
+        }
+        return 1;
+    }
+
+    private static int recordStopCommand(CommandContext<FabricClientCommandSource> context) {
+        com.jellomakker.cpubooster.perf.SessionRecorder recorder = CpuBoosterMod.getSessionRecorder();
+        if (!recorder.isRecording()) {
+            context.getSource().sendFeedback(Text.literal("§eNot recording"));
+            return 1;
+        }
+        String name = recorder.getSessionName();
+        long records = recorder.getTotalRecords();
+        recorder.stop();
+        context.getSource().sendFeedback(Text.literal(String.format("§aStopped %s (%d records)", name, records)));
+        return 1;
+    }
+
     private static int statusCommand(CommandContext<FabricClientCommandSource> context) {
         FabricClientCommandSource source = context.getSource();
 
@@ -64,6 +175,8 @@ public class Commands {
             if (fpt != null) {
                 source.sendFeedback(Text.literal(String.format("  EMA Frame Time: §e%.1f ms§f (target: %.1f ms)", 
                     fpt.getFrameTimeEma(), cfg.frameTimeTargetMs)));
+                source.sendFeedback(Text.literal(String.format("  Jitter: §e%.2f ms§f stddev, worst §e%.1f ms",
+                    fpt.getFrameTimeStdDev(), fpt.getWindowMaxFrameTime())));
                 source.sendFeedback(Text.literal(String.format("  Spikes Detected: §e%d", fpt.getSpikesDetected())));
                 long throttleRemaining = fpt.getThrottleTimeRemaining();
                 String throttleState = throttleRemaining > 0 ? String.format("§c%d ms remaining", throttleRemaining) : "§aReady";
@@ -77,7 +190,41 @@ public class Commands {
             String rateLabel = crl.isThrottleMode() ? "§c(THROTTLED)" : "§a(NORMAL)";
             source.sendFeedback(Text.literal(String.format("  Max Rate: §e%d/sec %s", maxRate, rateLabel)));
             if (crl != null) {
-                source.sendFeedback(Text.literal(String.format("  Available Tokens: §e%.1f", crl.getTokens())));
+                source.sendFeedback(Text.literal(String.format("  Available Tokens: §e%.1f ms", crl.getTokens())));
+            }
+            com.jellomakker.cpubooster.optimize.ChunkRebuildThrottler crt = CpuBoosterMod.getChunkThrottler();
+            source.sendFeedback(Text.literal(String.format("  Tick Budget: §e%.1f ms§f (%d builds), %d denied by budget",
+                    crt.getBudgetMs(), crt.getChunkBudget(), crt.getDeniedByBudget())));
+            com.jellomakker.cpubooster.optimize.ChunkRebuildCostModel costModel = CpuBoosterMod.getChunkRebuildCostModel();
+            if (costModel.getSampleCount() > 0) {
+                source.sendFeedback(Text.literal(String.format("  Cost Model: avg build §e%.2f ms§f, mean error %.2f ms (%d samples)",
+                        costModel.getMeasuredAverageMs(), costModel.getMeanAbsErrorMs(), costModel.getSampleCount())));
+            }
+
+            // Chunk rebuild controller status
+            com.jellomakker.cpubooster.optimize.ChunkRebuildController crc = CpuBoosterMod.getChunkRebuildController();
+            source.sendFeedback(Text.literal("§6Chunk Rebuild Controller:"));
+            if (cfg.chunkRebuildControllerEnabled) {
+                String saturation = crc.getSaturation() > 0 ? " §a(at max)" : (crc.getSaturation() < 0 ? " §c(at floor)" : "");
+                source.sendFeedback(Text.literal(String.format("  Budget: §e%.2f ms§f of %.2f ms (~%d builds)%s",
+                        crc.getBudgetMs(), crc.getMaxBudgetMs(), crc.getEquivalentBuilds(), saturation)));
+                source.sendFeedback(Text.literal(String.format("  Error: §e%+.1f ms§f, integral %.2f ms, feed-forward x%.2f",
+                        crc.getErrorMs(), crc.getIntegralMs(), crc.getFeedForward())));
+                source.sendFeedback(Text.literal(String.format("  Admitted: §e%d§f, denied %d",
+                        crc.getAdmittedCount(), crc.getDeniedCount())));
+            } else {
+                source.sendFeedback(Text.literal("  Status: §cDisabled§f (limiter and stepwise budget in use)"));
+            }
+            com.jellomakker.cpubooster.optimize.ChunkRebuildGate gate = CpuBoosterMod.getChunkRebuildGate();
+            if (!cfg.chunkRebuildGateEnabled) {
+                source.sendFeedback(Text.literal("  Renderer Gate: §cDisabled"));
+            } else if (!gate.isActive()) {
+                source.sendFeedback(Text.literal("  Renderer Gate: §7waiting for renderer hooks"));
+            } else {
+                source.sendFeedback(Text.literal(String.format("  Renderer Gate: §e%d§f admitted, %d deferred (%d last frame), %d near player",
+                        gate.getAdmittedCount(), gate.getDeferredCount(), gate.getLastFrameDeferred(), gate.getBypassedCount())));
+                source.sendFeedback(Text.literal(String.format("  Gate Queue: §e%d§f sections waiting, %d unused grants",
+                        gate.getQueuedCount(), gate.getExpiredGrantCount())));
             }
 
             // Patches
@@ -89,6 +236,12 @@ public class Commands {
                 String color = isEnabled ? "§a" : "§c";
                 source.sendFeedback(Text.literal(String.format("  %s%s", color, info)));
             }
+            com.jellomakker.cpubooster.patches.FramePacingPatch fpp = patchManager.getFramePacingPatch();
+            if (fpp != null && fpp.getPacedFrames() > 0) {
+                source.sendFeedback(Text.literal(String.format(
+                        "  Frame Slack: §e%d§f paced frames, %.0f ms harvested, %.0f ms waited, boundary error %.0f us",
+                        fpp.getPacedFrames(), fpp.getHarvestedMs(), fpp.getWaitedMs(), fpp.getBoundaryErrorMicros())));
+            }
 
             // Additional system info
             source.sendFeedback(Text.literal("§6System Features:"));
@@ -106,6 +259,24 @@ public class Commands {
                 // ignore safe diagnostics
             }
 
+            // GC telemetry
+            try {
+                com.jellomakker.cpubooster.metrics.GcTelemetry gc = CpuBoosterMod.getGcTelemetry();
+                com.jellomakker.cpubooster.metrics.PerformanceMetrics pm = CpuBoosterMod.getPerformanceMetrics();
+                if (gc != null && gc.isInstalled()) {
+                    source.sendFeedback(Text.literal(String.format("  GC Pauses: §e%d§f (total %d ms, max %d ms, p99 %.1f ms)",
+                            gc.getPauseCount(), gc.getTotalPauseMs(), gc.getMaxPauseMs(), pm.getP99GcPauseMs())));
+                } else {
+                    source.sendFeedback(Text.literal("  GC Pauses: §cunavailable"));
+                }
+                com.jellomakker.cpubooster.metrics.BottleneckClassifier bc = pm.getBottleneckClassifier();
+                source.sendFeedback(Text.literal(String.format("  Bottleneck: §e%s§f (%.0f%% confidence; cpu %.0f%% gpu-wait %.0f%% gc %.0f%% tick %.0f%%)",
+                        bc.getBottleneck().getLabel(), bc.getConfidence() * 100, bc.getCpuShare() * 100,
+                        bc.getGpuShare() * 100, bc.getGcShare() * 100, bc.getTickShare() * 100)));
+            } catch (Throwable t) {
+                // ignore safe diagnostics
+            }
+
             // Cache registry
             try {
                 var snap = com.jellomakker.cpubooster.cache.CacheRegistry.snapshot();
@@ -128,6 +299,74 @@ public class Commands {
                 if (bel != null) {
                     source.sendFeedback(Text.literal(String.format("§6Block Entity Limiter: Enabled=%s MaxPerTick=%d Remaining=%d",
                             bel.isEnabled() ? "YES" : "NO", bel.getMaxPerTick(), bel.getRemaining())));
+                    com.jellomakker.cpubooster.block.BlockEntityUpdateScheduler bes = bel.getScheduler();
+                    source.sendFeedback(Text.literal(String.format("  Scheduled: %d tracked, %d granted last tick, longest wait %d ticks",
+                            bes.getTrackedCount(), bes.getLastGranted(), bes.getLastMaxStaleness())));
+                }
+            } catch (Throwable t) {
+                // ignore
+            }
+
+            // Session recorder
+            try {
+                com.jellomakker.cpubooster.perf.SessionRecorder recorder = CpuBoosterMod.getSessionRecorder();
+                if (recorder.isRecording()) {
+                    source.sendFeedback(Text.literal(String.format("  Session Recording: §a%s§f (%d records, segment %d)",
+                            recorder.getSessionName(), recorder.getTotalRecords(), recorder.getSegmentIndex())));
+                } else {
+                    source.sendFeedback(Text.literal("  Session Recording: §cOFF"));
+                }
+            } catch (Throwable t) {
+                // ignore
+            }
+
+            // Deferred task scheduler
+            try {
+                com.jellomakker.cpubooster.optimize.DeferredTaskQueue dtq = CpuBoosterMod.getDeferredTaskQueue();
+                source.sendFeedback(Text.literal(String.format(
+                        "  Deferred Tasks: §e%d§f queued (urgent %d / normal %d / background %d), %d run, %d coalesced, %d budget skips, %d deadline misses",
+                        dtq.getQueuedTaskCount(),
+                        dtq.getQueuedTaskCount(com.jellomakker.cpubooster.optimize.DeferredTaskQueue.Priority.URGENT),
+                        dtq.getQueuedTaskCount(com.jellomakker.cpubooster.optimize.DeferredTaskQueue.Priority.NORMAL),
+                        dtq.getQueuedTaskCount(com.jellomakker.cpubooster.optimize.DeferredTaskQueue.Priority.BACKGROUND),
+                        dtq.getExecutions(), dtq.getCoalescedCount(), dtq.getBudgetSkips(), dtq.getDeadlineMisses())));
+                source.sendFeedback(Text.literal(String.format(
+                        "  Deferred Async: §e%d§f in flight, %d applied, %d cancelled, %d failed",
+                        dtq.getAsyncInFlight(), dtq.getAsyncApplied(), dtq.getAsyncCancelled(), dtq.getAsyncFailed())));
+                source.sendFeedback(Text.literal(String.format(
+                        "  Deferred Submissions: high-water %d, rejected %d",
+                        dtq.getSubmissionHighWaterMark(), dtq.getRejectedSubmissions())));
+                if (cfg.frameBudgetGovernorEnabled) {
+                    com.jellomakker.cpubooster.optimize.FrameBudgetGovernor gov = CpuBoosterMod.getFrameBudgetGovernor();
+                    String suppressed = gov.getSuppressedBy();
+                    source.sendFeedback(Text.literal(String.format(
+                            "  Work Budget: §e%.2f ms§f (predicted frame %.1f ms, headroom %.1f ms)%s",
+                            gov.getBudgetMs(), gov.getPredictedFrameMs(), gov.getHeadroomMs(),
+                            suppressed != null ? " §c[paused: " + suppressed + "]" : "")));
+                } else {
+                    source.sendFeedback(Text.literal(String.format(
+                            "  Work Budget: §e%.2f ms§f (fixed)", dtq.getTickBudgetNanos() / 1_000_000.0)));
+                }
+            } catch (Throwable t) {
+                // ignore
+            }
+
+            // Tick pipeline section profile (most expensive first)
+            try {
+                com.jellomakker.cpubooster.perf.SectionProfiler prof = CpuBoosterMod.getSectionProfiler();
+                if (prof != null && prof.isEnabled()) {
+                    source.sendFeedback(Text.literal("§6Tick Pipeline (ema / p99 / max µs):"));
+                    Integer[] order = new Integer[prof.getSectionCount()];
+                    for (int i = 0; i < order.length; i++) order[i] = i;
+                    java.util.Arrays.sort(order, (a, b) -> Long.compare(prof.getEmaNanos(b), prof.getEmaNanos(a)));
+                    int shown = 0;
+                    for (int id : order) {
+                        if (prof.getCalls(id) == 0 || shown >= 10) continue;
+                        source.sendFeedback(Text.literal(String.format("  %s: §e%.1f§f / %.0f / %.0f",
+                                prof.getName(id), prof.getEmaNanos(id) / 1000.0,
+                                prof.getPercentileMs(id, 99.0) * 1000.0, prof.getMaxNanos(id) / 1000.0)));
+                        shown++;
+                    }
                 }
             } catch (Throwable t) {
                 // ignore
@@ -149,7 +388,28 @@ public class Commands {
             source.sendFeedback(Text.literal("§6FEATURE STATUS:"));
             source.sendFeedback(Text.literal(String.format("  Frame-Time Variance Optimizer: %s", cfg.enableFrameTimeVarianceOptimizer ? "§aON" : "§cOFF")));
             source.sendFeedback(Text.literal(String.format("  Smart Chunk Rebuild: %s", cfg.enableSmartChunkRebuild ? "§aON" : "§cOFF")));
+            if (cfg.enableSmartChunkRebuild) {
+                com.jellomakker.cpubooster.optimize.SmartChunkRebuildThrottler sct = CpuBoosterMod.getSmartChunkThrottler();
+                source.sendFeedback(Text.literal(String.format("    %d pending, %d camera re-scores (last %.0f us)",
+                        sct.getQueueSize(), sct.getRescoreCount(), sct.getLastRescoreMicros())));
+            }
             source.sendFeedback(Text.literal(String.format("  Entity Freezing: %s", cfg.enableEntityFreezing ? "§aON" : "§cOFF")));
+            if (cfg.enableEntityFreezing) {
+                com.jellomakker.cpubooster.optimize.InvisibleEntityFreezer ief = CpuBoosterMod.getEntityFreezer();
+                source.sendFeedback(Text.literal(String.format("    %d frozen; last pass %.0f us, %d cells settled, %d scanned",
+                        ief.getFrozenCount(), ief.getLastEvaluateMicros(), ief.getLastCellsSettled(), ief.getLastCellsScanned())));
+                if (cfg.entityTickLodEnabled) {
+                    com.jellomakker.cpubooster.optimize.EntityTickScheduler ets = CpuBoosterMod.getEntityTickScheduler();
+                    StringBuilder bands = new StringBuilder();
+                    for (int b = 0; b < com.jellomakker.cpubooster.optimize.EntityTickScheduler.getBandCount(); b++) {
+                        int interval = com.jellomakker.cpubooster.optimize.EntityTickScheduler.getBandInterval(b);
+                        bands.append(b > 0 ? ", " : "").append(interval > 0 ? "1/" + interval : "frozen")
+                                .append(": ").append(ets.getLastBandCount(b));
+                    }
+                    source.sendFeedback(Text.literal(String.format("    Tick LOD: %s; §e%.0f%%§f of entity ticks saved, %d catch-up ticks",
+                            bands, ets.getSavedFraction() * 100.0, ets.getCatchUpTicks())));
+                }
+            }
             source.sendFeedback(Text.literal(String.format("  Allocation Pooling: %s", cfg.enableAllocationPooling ? "§aON" : "§cOFF")));
             source.sendFeedback(Text.literal(String.format("  Input-Render Decoupling: %s", cfg.enableInputRenderDecoupling ? "§aON" : "§cOFF")));
             source.sendFeedback(Text.literal(String.format("  Adaptive Profiles: %s (%s)", 
@@ -159,6 +419,16 @@ public class Commands {
             source.sendFeedback(Text.literal(String.format("  GPU Batching (EXP): %s", cfg.enableGPUBatching ? "§aON" : "§cOFF")));
             source.sendFeedback(Text.literal(String.format("  Resolution Scaling (EXP): %s", cfg.enableResolutionScaling ? "§aON" : "§cOFF")));
             source.sendFeedback(Text.literal(String.format("  Block Entity Cold Storage: %s", cfg.enableBlockEntityColdStorage ? "§aON" : "§cOFF")));
+            if (cfg.enableBlockEntityColdStorage) {
+                com.jellomakker.cpubooster.optimize.BlockEntityColdStorage becs = CpuBoosterMod.getBlockEntityStorage();
+                source.sendFeedback(Text.literal(String.format("    %d cached; sweep %d slots/tick, %d expired total",
+                        becs.getCacheSize(), becs.getLastSlotsSwept(), becs.getExpiredTotal())));
+                if (cfg.bakeIdleBlockEntities) {
+                    com.jellomakker.cpubooster.optimize.IdleBlockEntityBaker baker = CpuBoosterMod.getBlockEntityBaker();
+                    source.sendFeedback(Text.literal(String.format("    Baked meshes: %d drawn last frame, %d bakes, %d invalidated",
+                            baker.getLastFrameReplayed(), baker.getBakes(), baker.getInvalidations())));
+                }
+            }
         } catch (Exception e) {
             source.sendError(Text.literal("Error getting status: " + e.getMessage()));
         }
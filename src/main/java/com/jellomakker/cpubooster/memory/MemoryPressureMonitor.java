@@ -2,11 +2,16 @@ package com.jellomakker.cpubooster.memory;
 
 import com.jellomakker.cpubooster.CpuBoosterMod;
 import com.jellomakker.cpubooster.config.CpuBoosterConfig;
+import com.jellomakker.cpubooster.metrics.GcTelemetry;
 
 /**
  * Lightweight memory pressure monitor.
  * Tracks used heap and growth rate; triggers "pressure" cooldown when growth
  * exceeds configured threshold.
+ *
+ * When GC telemetry is available the monitor works from post-collection heap
+ * occupancy (the live set) reported with each pause instead of polling
+ * Runtime every tick, which only sees allocation noise between collections.
  */
 public class MemoryPressureMonitor {
     private long lastUsedBytes = 0;
@@ -15,10 +20,20 @@ public class MemoryPressureMonitor {
     private int growthThresholdBytes = 128 * 1024 * 1024; // default 128MB
     private long memoryCooldownMs = 2000;
     private boolean enabled = true;
+    private volatile boolean gcFeedActive = false;
+    private long lastHeapAfterGcBytes = -1;
+    private static final double HIGH_OCCUPANCY_RATIO = 0.85;
 
     public MemoryPressureMonitor() {
     }
 
+    /**
+     * Switch between GC-notification driven detection and Runtime polling.
+     */
+    public void setGcFeedActive(boolean active) {
+        this.gcFeedActive = active;
+    }
+
     public void updateConfig(CpuBoosterConfig cfg) {
         this.enabled = cfg.memoryPressureEnabled;
         this.growthThresholdBytes = cfg.memoryGrowthThresholdMB * 1024 * 1024;
@@ -29,7 +44,7 @@ public class MemoryPressureMonitor {
      * Call from tick; checks allocation trend and sets cooldown if needed.
      */
     public void onTick() {
-        if (!enabled) return;
+        if (!enabled || gcFeedActive) return;
         try {
             long now = System.currentTimeMillis();
             Runtime rt = Runtime.getRuntime();
@@ -52,6 +67,37 @@ public class MemoryPressureMonitor {
         }
     }
 
+    /**
+     * Called for each collection reported by {@link GcTelemetry}.
+     * Enters cooldown when the live set grows past the threshold between collections,
+     * when a collection leaves the heap mostly full, or on a full (major) collection
+     * the JVM decided on by itself (explicit System.gc() hints don't count).
+     */
+    public void onGcPause(GcTelemetry.GcPause pause) {
+        if (!enabled) return;
+        try {
+            long after = pause.heapAfterBytes;
+            String reason = null;
+            if (pause.isMajor() && !pause.isConcurrent() && !"System.gc()".equals(pause.cause)) {
+                reason = "full collection (" + pause.cause + ")";
+            } else if (pause.heapMaxBytes > 0 && after > pause.heapMaxBytes * HIGH_OCCUPANCY_RATIO) {
+                reason = String.format("heap %d%% full after GC", (after * 100) / pause.heapMaxBytes);
+            } else if (lastHeapAfterGcBytes >= 0 && after - lastHeapAfterGcBytes > growthThresholdBytes) {
+                reason = String.format("live set +%d MB", (after - lastHeapAfterGcBytes) / (1024 * 1024));
+            }
+            lastHeapAfterGcBytes = after;
+
+            if (reason != null) {
+                cooldownEnd = System.currentTimeMillis() + memoryCooldownMs;
+                CpuBoosterMod.LOGGER.info("Memory pressure detected: {} after {} ({} ms); entering cooldown {} ms",
+                        reason, pause.collector, pause.durationMs, memoryCooldownMs);
+            }
+        } catch (Throwable t) {
+            this.enabled = false;
+            CpuBoosterMod.LOGGER.warn("MemoryPressureMonitor disabled due to error: {}", t.getMessage());
+        }
+    }
+
     public boolean isUnderPressure() {
         return enabled && System.currentTimeMillis() < cooldownEnd;
     }
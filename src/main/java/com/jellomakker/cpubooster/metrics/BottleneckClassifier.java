@@ -0,0 +1,208 @@
+package com.jellomakker.cpubooster.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Classifies what limits the frame rate from measured evidence.
+ *
+ * Over a window of render frames it splits the render thread's wall-clock time into:
+ * - GC: stop-the-world pause time reported by {@link GcTelemetry}
+ * - tick: time spent inside client ticks (game logic)
+ * - CPU: remaining CPU time the render thread actually consumed
+ * - wait: wall time the thread was off-CPU without a GC pause, i.e. blocked
+ *   on the GPU/driver (buffer swap, sync, uploads)
+ *
+ * The largest share wins and its margin over the runner-up gives the confidence.
+ * Frames that meet the target are reported as OPTIMAL.
+ * Must be fed from the render thread, since CPU time is read for the current thread.
+ */
+public class BottleneckClassifier {
+    public enum Bottleneck {
+        OPTIMAL("OPTIMAL"),
+        CPU_BOUND("CPU-BOUND"),
+        GPU_BOUND("GPU/DRIVER-WAIT"),
+        GC_BOUND("GC-PRESSURE"),
+        TICK_BOUND("TICK-BOUND");
+
+        private final String label;
+
+        Bottleneck(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private static final int DEFAULT_WINDOW_FRAMES = 40;
+    private static final double TARGET_TOLERANCE = 1.10; // 10% over target still counts as meeting it
+
+    private final int windowFrames;
+    private final ThreadMXBean threadBean;
+    private final boolean cpuTimeSupported;
+    private double targetFrameMs = 16.6;
+
+    // Current window accumulators
+    private long lastCpuNs = -1;
+    private int frames = 0;
+    private double wallMs = 0.0;
+    private double cpuMs = 0.0;
+    private double tickMs = 0.0;
+    private double gcMs = 0.0;
+
+    // Last completed window
+    private volatile Bottleneck bottleneck = Bottleneck.OPTIMAL;
+    private volatile double confidence = 0.0;
+    private volatile double cpuShare = 0.0;
+    private volatile double gpuShare = 0.0;
+    private volatile double gcShare = 0.0;
+    private volatile double tickShare = 0.0;
+
+    public BottleneckClassifier() {
+        this(DEFAULT_WINDOW_FRAMES);
+    }
+
+    public BottleneckClassifier(int windowFrames) {
+        this.windowFrames = Math.max(1, windowFrames);
+        ThreadMXBean bean = null;
+        boolean supported = false;
+        try {
+            bean = ManagementFactory.getThreadMXBean();
+            supported = bean.isCurrentThreadCpuTimeSupported();
+            if (supported && !bean.isThreadCpuTimeEnabled()) {
+                bean.setThreadCpuTimeEnabled(true);
+            }
+        } catch (Throwable t) {
+            supported = false;
+        }
+        this.threadBean = bean;
+        this.cpuTimeSupported = supported;
+    }
+
+    public void setTargetFrameMs(double targetFrameMs) {
+        this.targetFrameMs = targetFrameMs;
+    }
+
+    /**
+     * Record one render frame, at the same point of every frame. Reads the current
+     * thread's CPU time, so call it on the render thread.
+     * @param frameTimeMs wall-clock time since the previous render frame
+     * @param tickDurationMs time spent in the client tick during this frame (0 if none)
+     */
+    public void onFrame(double frameTimeMs, double tickDurationMs) {
+        long cpuNs = cpuTimeSupported ? threadBean.getCurrentThreadCpuTime() : -1;
+        double frameCpuMs;
+        if (cpuNs < 0) {
+            // No CPU clock: treat everything but ticks and GC as render work
+            frameCpuMs = frameTimeMs;
+        } else if (lastCpuNs < 0) {
+            lastCpuNs = cpuNs;
+            return; // Need two readings for a delta
+        } else {
+            frameCpuMs = (cpuNs - lastCpuNs) / 1_000_000.0;
+            lastCpuNs = cpuNs;
+        }
+
+        frames++;
+        wallMs += frameTimeMs;
+        cpuMs += Math.min(frameCpuMs, frameTimeMs);
+        tickMs += tickDurationMs;
+
+        if (frames >= windowFrames) {
+            classifyWindow();
+        }
+    }
+
+    /**
+     * Account a pause reported by {@link GcTelemetry} to the current window.
+     */
+    public void onGcPause(GcTelemetry.GcPause pause) {
+        if (!pause.isConcurrent()) {
+            gcMs += pause.durationMs;
+        }
+    }
+
+    private void classifyWindow() {
+        if (wallMs <= 0.0) {
+            resetWindow();
+            return;
+        }
+
+        double gc = Math.min(gcMs, wallMs);
+        // Tick work runs on the render thread, so it is part of the measured CPU time
+        double tick = Math.min(tickMs, cpuMs);
+        double cpu = Math.max(0.0, cpuMs - tick);
+        double wait = Math.max(0.0, wallMs - cpuMs - gc);
+
+        double gcS = gc / wallMs;
+        double tickS = tick / wallMs;
+        double cpuS = cpu / wallMs;
+        double gpuS = wait / wallMs;
+
+        Bottleneck best = Bottleneck.CPU_BOUND;
+        double top = cpuS;
+        double second = 0.0;
+        if (gpuS > top) { second = top; top = gpuS; best = Bottleneck.GPU_BOUND; } else { second = Math.max(second, gpuS); }
+        if (gcS > top) { second = top; top = gcS; best = Bottleneck.GC_BOUND; } else { second = Math.max(second, gcS); }
+        if (tickS > top) { second = top; top = tickS; best = Bottleneck.TICK_BOUND; } else { second = Math.max(second, tickS); }
+
+        double avgFrameMs = wallMs / frames;
+        double conf;
+        if (avgFrameMs <= targetFrameMs * TARGET_TOLERANCE) {
+            best = Bottleneck.OPTIMAL;
+            // Further under target = more certain nothing is limiting
+            conf = Math.min(1.0, (targetFrameMs * TARGET_TOLERANCE - avgFrameMs) / targetFrameMs + 0.5);
+        } else {
+            conf = top > 0.0 ? (top - second) / top : 0.0;
+        }
+
+        cpuShare = cpuS;
+        gpuShare = gpuS;
+        gcShare = gcS;
+        tickShare = tickS;
+        confidence = conf;
+        bottleneck = best;
+        resetWindow();
+    }
+
+    private void resetWindow() {
+        frames = 0;
+        wallMs = 0.0;
+        cpuMs = 0.0;
+        tickMs = 0.0;
+        gcMs = 0.0;
+    }
+
+    public Bottleneck getBottleneck() {
+        return bottleneck;
+    }
+
+    /**
+     * 0-1: how clearly the winning share beats the runner-up.
+     */
+    public double getConfidence() {
+        return confidence;
+    }
+
+    public double getCpuShare() { return cpuShare; }
+    public double getGpuShare() { return gpuShare; }
+    public double getGcShare() { return gcShare; }
+    public double getTickShare() { return tickShare; }
+
+    public boolean isCpuTimeSupported() {
+        return cpuTimeSupported;
+    }
+
+    public void reset() {
+        resetWindow();
+        lastCpuNs = -1;
+        bottleneck = Bottleneck.OPTIMAL;
+        confidence = 0.0;
+        cpuShare = 0.0;
+        gpuShare = 0.0;
+        gcShare = 0.0;
+        tickShare = 0.0;
+    }
+}
@@ -0,0 +1,249 @@
+package com.jellomakker.cpubooster.metrics;
+
+import com.jellomakker.cpubooster.CpuBoosterMod;
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.GcInfo;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Real GC pause accounting driven by GarbageCollectorMXBean notifications.
+ *
+ * The JVM delivers one notification per collection on its own service thread.
+ * Each one is published into a lock-free ring buffer; the client tick thread
+ * drains it and hands the pauses to the metrics and throttling systems.
+ * If the ring overflows between drains, the oldest pauses are skipped and
+ * counted in {@link #getDroppedCount()}.
+ */
+public class GcTelemetry {
+    private static final int RING_CAPACITY = 256; // power of two
+    private static final int RING_MASK = RING_CAPACITY - 1;
+
+    /**
+     * One completed collection.
+     */
+    public static final class GcPause {
+        public final long sequence;
+        public final String collector;
+        public final String action;
+        public final String cause;
+        public final long startUptimeMs;
+        public final long durationMs;
+        public final long heapBeforeBytes;
+        public final long heapAfterBytes;
+        public final long heapMaxBytes;
+        public final long receivedNs;
+
+        public GcPause(long sequence, String collector, String action, String cause, long startUptimeMs, long durationMs,
+                long heapBeforeBytes, long heapAfterBytes, long heapMaxBytes, long receivedNs) {
+            this.sequence = sequence;
+            this.collector = collector;
+            this.action = action;
+            this.cause = cause;
+            this.startUptimeMs = startUptimeMs;
+            this.durationMs = durationMs;
+            this.heapBeforeBytes = heapBeforeBytes;
+            this.heapAfterBytes = heapAfterBytes;
+            this.heapMaxBytes = heapMaxBytes;
+            this.receivedNs = receivedNs;
+        }
+
+        /**
+         * True for notifications that time a whole concurrent cycle rather than a
+         * stop-the-world pause. See {@link GcTelemetry#isConcurrentCollector}.
+         */
+        public boolean isConcurrent() {
+            return isConcurrentCollector(collector);
+        }
+
+        public boolean isMajor() {
+            return action.contains("major");
+        }
+
+        public long getReclaimedBytes() {
+            return heapBeforeBytes - heapAfterBytes;
+        }
+    }
+
+    /**
+     * Whether a collector bean reports concurrent cycles instead of pauses. Decided by
+     * bean, not by the notification's action text:
+     * - ZGC and Shenandoah report cycles on "... Cycles" beans (concurrent) and their
+     *   pauses on separate "... Pauses" beans.
+     * - "G1 Concurrent GC" reports Remark and Cleanup. Its action says "concurrent",
+     *   but both are stop-the-world pauses, so they count.
+     * - CMS's "ConcurrentMarkSweep" times its whole (mostly concurrent) cycle.
+     * Everything else (G1 young/old, Parallel, Serial) is a pause.
+     */
+    public static boolean isConcurrentCollector(String collector) {
+        return collector.endsWith("Cycles") || "ConcurrentMarkSweep".equals(collector);
+    }
+
+    /**
+     * Receives drained pauses on the tick thread.
+     */
+    public interface PauseSink {
+        void onGcPause(GcPause pause);
+    }
+
+    private final AtomicReferenceArray<GcPause> ring = new AtomicReferenceArray<>(RING_CAPACITY);
+    private final AtomicLong writeSequence = new AtomicLong(0);
+    private long readSequence = 0;
+
+    private final AtomicLong totalPauseMs = new AtomicLong(0);
+    private final AtomicLong pauseCount = new AtomicLong(0);
+    private final AtomicLong maxPauseMs = new AtomicLong(0);
+    private final AtomicLong droppedCount = new AtomicLong(0);
+    private volatile long lastPauseReceivedNs = 0;
+
+    private final List<NotificationEmitter> emitters = new ArrayList<>();
+    private final NotificationListener listener = this::handleNotification;
+    private volatile boolean installed = false;
+
+    /**
+     * Subscribe to every collector that emits notifications.
+     * Returns false if the JVM does not expose GC notifications.
+     */
+    public synchronized boolean install() {
+        if (installed) return true;
+        try {
+            for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+                if (bean instanceof NotificationEmitter emitter) {
+                    emitter.addNotificationListener(listener, null, null);
+                    emitters.add(emitter);
+                    CpuBoosterMod.LOGGER.debug("GcTelemetry: listening to collector {}", bean.getName());
+                }
+            }
+            installed = !emitters.isEmpty();
+        } catch (Throwable t) {
+            CpuBoosterMod.LOGGER.warn("GcTelemetry unavailable: {}", t.getMessage());
+            installed = false;
+        }
+        return installed;
+    }
+
+    public synchronized void uninstall() {
+        for (NotificationEmitter emitter : emitters) {
+            try {
+                emitter.removeNotificationListener(listener);
+            } catch (Exception e) {
+                // Already removed
+            }
+        }
+        emitters.clear();
+        installed = false;
+    }
+
+    private void handleNotification(Notification notification, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            return;
+        }
+        try {
+            GarbageCollectionNotificationInfo info =
+                    GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+            GcInfo gc = info.getGcInfo();
+
+            long before = 0;
+            for (MemoryUsage usage : gc.getMemoryUsageBeforeGc().values()) {
+                before += usage.getUsed();
+            }
+            long after = 0;
+            long max = 0;
+            for (Map.Entry<String, MemoryUsage> entry : gc.getMemoryUsageAfterGc().entrySet()) {
+                MemoryUsage usage = entry.getValue();
+                after += usage.getUsed();
+                if (usage.getMax() > 0) max += usage.getMax();
+            }
+
+            long seq = writeSequence.getAndIncrement();
+            GcPause pause = new GcPause(seq, info.getGcName(), info.getGcAction(), info.getGcCause(),
+                    gc.getStartTime(), gc.getDuration(), before, after, max, System.nanoTime());
+            ring.set((int) (seq & RING_MASK), pause);
+
+            if (!pause.isConcurrent()) {
+                totalPauseMs.addAndGet(pause.durationMs);
+                pauseCount.incrementAndGet();
+                maxPauseMs.accumulateAndGet(pause.durationMs, Math::max);
+                lastPauseReceivedNs = pause.receivedNs;
+            }
+        } catch (Throwable t) {
+            // Never let telemetry break the JVM's notification thread
+        }
+    }
+
+    /**
+     * Hand every pause published since the last drain to the sink.
+     * Must only be called from a single consumer thread (the client tick thread).
+     * @return number of pauses delivered
+     */
+    public int drain(PauseSink sink) {
+        long end = writeSequence.get();
+        if (end - readSequence > RING_CAPACITY) {
+            droppedCount.addAndGet(end - readSequence - RING_CAPACITY);
+            readSequence = end - RING_CAPACITY;
+        }
+
+        int delivered = 0;
+        while (readSequence < end) {
+            GcPause pause = ring.get((int) (readSequence & RING_MASK));
+            if (pause == null || pause.sequence < readSequence) {
+                // Claimed but not yet published; pick it up next drain
+                break;
+            }
+            if (pause.sequence > readSequence) {
+                // Overwritten by a newer pause while we were behind
+                droppedCount.incrementAndGet();
+                readSequence++;
+                continue;
+            }
+            readSequence++;
+            try {
+                sink.onGcPause(pause);
+            } catch (Throwable t) {
+                CpuBoosterMod.LOGGER.debug("GcTelemetry sink error: {}", t.getMessage());
+            }
+            delivered++;
+        }
+        return delivered;
+    }
+
+    public boolean isInstalled() {
+        return installed;
+    }
+
+    public long getTotalPauseMs() {
+        return totalPauseMs.get();
+    }
+
+    public long getPauseCount() {
+        return pauseCount.get();
+    }
+
+    public long getMaxPauseMs() {
+        return maxPauseMs.get();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Milliseconds since the last stop-the-world pause was reported, or -1 if none yet.
+     */
+    public long getTimeSinceLastPauseMs() {
+        long last = lastPauseReceivedNs;
+        if (last == 0) return -1;
+        return (System.nanoTime() - last) / 1_000_000L;
+    }
+}
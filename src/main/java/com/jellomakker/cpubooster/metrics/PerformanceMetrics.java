@@ -1,5 +1,7 @@
 package com.jellomakker.cpubooster.metrics;
 
+import com.jellomakker.cpubooster.perf.LogLinearHistogram;
+
 /**
  * Advanced performance metrics tracker.
  * Tracks GC pauses, frame times, and provides bottleneck analysis.
@@ -8,70 +10,78 @@ public class PerformanceMetrics {
     private volatile long lastGcTimeMs = 0;
     private volatile long totalGcTimeMs = 0;
     private volatile int gcEventCount = 0;
-    private long lastMetricsCheckNs = System.nanoTime();
+    private final LogLinearHistogram gcPauseHistory = new LogLinearHistogram();
     
-    private final FrameTimeHistory frameHistory = new FrameTimeHistory(240); // 4 seconds at 60fps
-    private double avgFrameTimeMs = 0.0;
-    private double p1FrameTimeMs = 0.0;
+    private final LogLinearHistogram frameHistory = new LogLinearHistogram(1200); // ~20 s of render frames at 60 FPS
+    private final BottleneckClassifier classifier = new BottleneckClassifier();
+
+    public void setTargetFrameMs(double targetFrameMs) {
+        classifier.setTargetFrameMs(targetFrameMs);
+    }
 
     public void onFrameTime(double frameTimeMs) {
-        frameHistory.add(frameTimeMs);
-        avgFrameTimeMs = frameHistory.getAverage();
-        p1FrameTimeMs = frameHistory.getPercentile(1.0);
-    }
-
-    public void checkGcStatus() {
-        try {
-            long gcTime = getAccumulatedGcTime();
-            long timeSinceLastCheck = System.currentTimeMillis() - lastGcTimeMs;
-            
-            if (gcTime > lastGcTimeMs) {
-                long gcPauseMsThisCheck = gcTime - lastGcTimeMs;
-                totalGcTimeMs += gcPauseMsThisCheck;
-                gcEventCount++;
-            }
-            lastGcTimeMs = gcTime;
-        } catch (Exception e) {
-            // Fail silently - GC metrics are optional
-        }
-    }
-
-    private long getAccumulatedGcTime() {
-        long totalPause = 0;
-        try {
-            java.lang.management.ThreadMXBean tmx = java.lang.management.ManagementFactory.getThreadMXBean();
-            if (tmx.isCurrentThreadCpuTimeSupported()) {
-                // Rough estimate: if CPU time < wall time, there was a pause
-                long cpuTime = tmx.getCurrentThreadCpuTime();
-                long userTime = tmx.getCurrentThreadUserTime();
-                totalPause = (cpuTime - userTime) / 1_000_000L; // ns to ms
-            }
-        } catch (Exception e) {
-            // Metrics collection failed; log and continue
-        }
-        return totalPause;
+        onFrameTime(frameTimeMs, 0.0);
     }
 
+    /**
+     * Record one render frame along with the client tick time spent inside it.
+     * Must be called once per render frame on the render thread (feeds the bottleneck
+     * classifier); tick intervals are not frame times.
+     */
+    public void onFrameTime(double frameTimeMs, double tickDurationMs) {
+        frameHistory.recordMs(frameTimeMs);
+        classifier.onFrame(frameTimeMs, tickDurationMs);
+    }
+
+    /**
+     * Account a collection reported by {@link GcTelemetry}. Concurrent cycles are ignored
+     * because they do not stop the game threads.
+     */
+    public void onGcPause(GcTelemetry.GcPause pause) {
+        if (pause.isConcurrent()) return;
+        lastGcTimeMs = pause.durationMs;
+        totalGcTimeMs += pause.durationMs;
+        gcEventCount++;
+        gcPauseHistory.recordMs(pause.durationMs);
+        classifier.onGcPause(pause);
+    }
+
+    /**
+     * Label of the most recent bottleneck window, e.g. "CPU-BOUND" or "GC-PRESSURE".
+     */
     public String getBottleneckAnalysis() {
-        double cpuFrameMs = Math.random() * 20; // Estimate from tick time
-        
-        if (avgFrameTimeMs > 30.0) {
-            return "RENDER-HEAVY";
-        } else if (cpuFrameMs > 25.0) {
-            return "CPU-HEAVY";
-        } else if (gcEventCount > 5 && totalGcTimeMs > 50) {
-            return "GC-PRESSURE";
-        } else {
-            return "OPTIMAL";
-        }
+        return classifier.getBottleneck().getLabel();
+    }
+
+    public BottleneckClassifier.Bottleneck getBottleneck() {
+        return classifier.getBottleneck();
+    }
+
+    public double getBottleneckConfidence() {
+        return classifier.getConfidence();
+    }
+
+    public BottleneckClassifier getBottleneckClassifier() {
+        return classifier;
     }
 
     public double getAverageFrameTime() {
-        return avgFrameTimeMs;
+        return frameHistory.getMean();
     }
 
+    /**
+     * "1% low" frame time: the 99th percentile, i.e. the slowest 1% of frames.
+     */
     public double getP1FrameTime() {
-        return p1FrameTimeMs;
+        return frameHistory.getValueAtPercentile(99.0);
+    }
+
+    public double getP50FrameTime() {
+        return frameHistory.getValueAtPercentile(50.0);
+    }
+
+    public double getP999FrameTime() {
+        return frameHistory.getValueAtPercentile(99.9);
     }
 
     public double getEstimatedGcPauseMs() {
@@ -82,52 +92,20 @@ public class PerformanceMetrics {
         return gcEventCount;
     }
 
+    public long getLastGcPauseMs() {
+        return lastGcTimeMs;
+    }
+
+    public double getP99GcPauseMs() {
+        return gcPauseHistory.getValueAtPercentile(99.0);
+    }
+
     public void reset() {
         lastGcTimeMs = 0;
         totalGcTimeMs = 0;
         gcEventCount = 0;
+        gcPauseHistory.reset();
         frameHistory.reset();
-    }
-
-    /**
-     * Simple ring buffer for frame time history.
-     */
-    private static class FrameTimeHistory {
-        private final double[] times;
-        private int index = 0;
-        private int count = 0;
-
-        FrameTimeHistory(int capacity) {
-            this.times = new double[capacity];
-        }
-
-        void add(double time) {
-            times[index] = time;
-            index = (index + 1) % times.length;
-            if (count < times.length) count++;
-        }
-
-        double getAverage() {
-            if (count == 0) return 0;
-            double sum = 0;
-            for (int i = 0; i < count; i++) {
-                sum += times[i];
-            }
-            return sum / count;
-        }
-
-        double getPercentile(double percentile) {
-            if (count == 0) return 0;
-            double[] sorted = new double[count];
-            System.arraycopy(times, 0, sorted, 0, count);
-            java.util.Arrays.sort(sorted);
-            int idx = Math.max(0, (int) Math.ceil(count * (percentile / 100.0)) - 1);
-            return sorted[idx];
-        }
-
-        void reset() {
-            index = 0;
-            count = 0;
-        }
+        classifier.reset();
     }
 }
@@ -0,0 +1,40 @@
+package com.jellomakker.cpubooster.mixin;
+
+import com.jellomakker.cpubooster.CpuBoosterMod;
+import net.minecraft.block.entity.BlockEntity;
+import net.minecraft.client.MinecraftClient;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+/**
+ * Invalidates baked block entity meshes when a block entity's data or block state
+ * changes (sign text, banner patterns, chest becoming a double chest) or it is removed.
+ * Only client-thread calls count; the integrated server has its own block entities.
+ * All three hooks are required: if one failed to apply, baked meshes would show stale
+ * text, patterns or shapes indefinitely.
+ */
+@Mixin(BlockEntity.class)
+public abstract class BlockEntityMixin {
+    @Inject(method = "read(Lnet/minecraft/storage/ReadView;)V", at = @At("HEAD"), require = 1)
+    private void cpubooster$onRead(CallbackInfo ci) {
+        if (MinecraftClient.getInstance().isOnThread()) {
+            CpuBoosterMod.getBlockEntityBaker().onBlockEntityChanged((BlockEntity) (Object) this);
+        }
+    }
+
+    @Inject(method = "setCachedState(Lnet/minecraft/block/BlockState;)V", at = @At("HEAD"), require = 1)
+    private void cpubooster$onStateChanged(CallbackInfo ci) {
+        if (MinecraftClient.getInstance().isOnThread()) {
+            CpuBoosterMod.getBlockEntityBaker().onBlockEntityChanged((BlockEntity) (Object) this);
+        }
+    }
+
+    @Inject(method = "markRemoved()V", at = @At("HEAD"), require = 1)
+    private void cpubooster$onRemoved(CallbackInfo ci) {
+        if (MinecraftClient.getInstance().isOnThread()) {
+            CpuBoosterMod.getBlockEntityBaker().onBlockEntityRemoved((BlockEntity) (Object) this);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.jellomakker.cpubooster.mixin;
+
+import com.jellomakker.cpubooster.CpuBoosterMod;
+import com.jellomakker.cpubooster.config.ConfigManager;
+import com.jellomakker.cpubooster.optimize.BakedBlockEntityMesh;
+import com.jellomakker.cpubooster.optimize.IdleBlockEntityBaker;
+import net.minecraft.block.entity.BlockEntity;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.render.VertexConsumerProvider;
+import net.minecraft.client.render.block.entity.BlockEntityRenderDispatcher;
+import net.minecraft.client.util.math.MatrixStack;
+import net.minecraft.util.math.Vec3d;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+/**
+ * Draws idle block entities from their baked mesh, and records the mesh by running
+ * the renderer once more through a recording provider.
+ *
+ * The dispatcher has several {@code render} overloads; the hook is pinned to the public
+ * four-argument one that the world renderer calls, and is required.
+ */
+@Mixin(BlockEntityRenderDispatcher.class)
+public abstract class BlockEntityRenderDispatcherMixin {
+    @Unique
+    private static boolean cpubooster$recording = false;
+
+    @Unique
+    private static boolean cpubooster$errorLogged = false;
+
+    @Inject(method = "render(Lnet/minecraft/block/entity/BlockEntity;FLnet/minecraft/client/util/math/MatrixStack;Lnet/minecraft/client/render/VertexConsumerProvider;)V",
+            at = @At("HEAD"), cancellable = true, require = 1)
+    private void cpubooster$renderBaked(BlockEntity blockEntity, float tickProgress, MatrixStack matrices,
+                                        VertexConsumerProvider vertexConsumers, CallbackInfo ci) {
+        if (cpubooster$recording) return;
+        try {
+            IdleBlockEntityBaker baker = CpuBoosterMod.getBlockEntityBaker();
+            Vec3d camera = MinecraftClient.getInstance().gameRenderer.getCamera().getPos();
+            MatrixStack.Entry entry = matrices.peek();
+            int action = baker.prepare(ConfigManager.get(), blockEntity, entry, vertexConsumers, camera.x, camera.y, camera.z);
+            if (action == IdleBlockEntityBaker.REPLAYED) {
+                ci.cancel();
+            } else if (action == IdleBlockEntityBaker.BAKE) {
+                BakedBlockEntityMesh.Recorder recorder = baker.startRecording(entry, vertexConsumers);
+                cpubooster$recording = true;
+                try {
+                    ((BlockEntityRenderDispatcher) (Object) this).render(blockEntity, tickProgress, matrices, recorder);
+                } finally {
+                    cpubooster$recording = false;
+                }
+                baker.finishRecording(blockEntity, recorder);
+                ci.cancel();
+            }
+        } catch (Throwable t) {
+            if (!cpubooster$errorLogged) {
+                cpubooster$errorLogged = true;
+                CpuBoosterMod.LOGGER.warn("Baked block entity rendering error, rendering normally: {}", t.getMessage());
+            }
+        }
+    }
+}
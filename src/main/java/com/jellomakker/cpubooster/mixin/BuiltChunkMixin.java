@@ -0,0 +1,131 @@
+package com.jellomakker.cpubooster.mixin;
+
+import com.jellomakker.cpubooster.CpuBoosterMod;
+import com.jellomakker.cpubooster.config.ConfigManager;
+import com.jellomakker.cpubooster.config.CpuBoosterConfig;
+import com.jellomakker.cpubooster.optimize.ChunkRebuildGate;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.render.chunk.ChunkBuilder;
+import net.minecraft.client.render.chunk.ChunkRendererRegionBuilder;
+import net.minecraft.client.world.ClientWorld;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.WorldChunk;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.Unique;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+/**
+ * Routes async section rebuild scheduling through {@link ChunkRebuildGate}.
+ *
+ * The world renderer schedules a dirty section and then marks it clean. When the
+ * gate denies a section, scheduling is cancelled and so is the following
+ * mark-clean, so the section stays dirty and is offered again next frame.
+ *
+ * The gate charges each section its predicted build time, from counts the section
+ * already keeps (non-air blocks, fluids) and the chunk's block entities in it. Block
+ * entities are counted once and then taken from the gate until the section is marked
+ * dirty again ({@code scheduleRebuild(boolean)}), since deferred sections are offered
+ * every frame.
+ *
+ * All targets carry full descriptors: BuiltChunk has both {@code scheduleRebuild(boolean)},
+ * which only marks the section dirty, and the async {@code scheduleRebuild} that is gated.
+ * The hooks are required, so a mapping change fails loudly instead of leaving the gate
+ * half applied.
+ */
+@Mixin(ChunkBuilder.BuiltChunk.class)
+public abstract class BuiltChunkMixin {
+    @Unique
+    private boolean cpubooster$deferred = false;
+
+    @Unique
+    private static boolean cpubooster$errorLogged = false;
+
+    @Unique
+    private static final int[] cpubooster$features = new int[3]; // client thread only
+
+    @Shadow
+    public abstract BlockPos getOrigin();
+
+    @Shadow
+    public abstract boolean needsImportantRebuild();
+
+    @Inject(method = "scheduleRebuild(Lnet/minecraft/client/render/chunk/ChunkRendererRegionBuilder;)V",
+            at = @At("HEAD"), cancellable = true, require = 1)
+    private void cpubooster$gateRebuild(ChunkRendererRegionBuilder builder, CallbackInfo ci) {
+        cpubooster$deferred = false;
+        try {
+            BlockPos origin = getOrigin();
+            ChunkRebuildGate gate = CpuBoosterMod.getChunkRebuildGate();
+            CpuBoosterConfig cfg = ConfigManager.get();
+            int sx = origin.getX() >> 4, sy = origin.getY() >> 4, sz = origin.getZ() >> 4;
+            int[] f = cpubooster$features;
+            f[0] = f[1] = f[2] = ChunkRebuildGate.UNKNOWN;
+            if (gate.isGating(cfg)) cpubooster$readFeatures(gate, sx, sy, sz, f);
+            if (!gate.admit(cfg, sx, sy, sz, needsImportantRebuild(), f[0], f[1], f[2])) {
+                cpubooster$deferred = true;
+                ci.cancel();
+            }
+        } catch (Throwable t) {
+            if (!cpubooster$errorLogged) {
+                cpubooster$errorLogged = true;
+                CpuBoosterMod.LOGGER.warn("Chunk rebuild gate error, admitting rebuilds: {}", t.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Non-air blocks, fluids (stand-in for translucent blocks) and block entities in the
+     * section. Left {@link ChunkRebuildGate#UNKNOWN} if the chunk isn't available.
+     */
+    @Unique
+    private static void cpubooster$readFeatures(ChunkRebuildGate gate, int sx, int sy, int sz, int[] out) {
+        ClientWorld world = MinecraftClient.getInstance().world;
+        if (world == null) return;
+        int index = world.sectionCoordToIndex(sy);
+        if (index < 0 || index >= world.countVerticalSections()) return;
+        WorldChunk chunk = world.getChunk(sx, sz);
+        if (chunk == null) return;
+        ChunkSection section = chunk.getSection(index);
+        if (section == null) return;
+        ChunkSectionAccessor counts = (ChunkSectionAccessor) section;
+        int blockEntities = gate.getCachedBlockEntities(sx, sy, sz);
+        if (blockEntities == ChunkRebuildGate.UNKNOWN) {
+            // Live map, no copy (getBlockEntityPositions() builds a new set)
+            blockEntities = 0;
+            for (BlockPos pos : chunk.getBlockEntities().keySet()) {
+                if (pos.getY() >> 4 == sy) blockEntities++;
+            }
+        }
+        out[0] = counts.cpubooster$getNonEmptyBlockCount();
+        out[1] = counts.cpubooster$getNonEmptyFluidCount();
+        out[2] = blockEntities;
+    }
+
+    @Inject(method = "scheduleRebuild(Z)V", at = @At("HEAD"), require = 1)
+    private void cpubooster$onMarkedDirty(boolean important, CallbackInfo ci) {
+        try {
+            if (!MinecraftClient.getInstance().isOnThread()) return;
+            BlockPos origin = getOrigin();
+            CpuBoosterMod.getChunkRebuildGate().onSectionDirty(origin.getX() >> 4, origin.getY() >> 4, origin.getZ() >> 4);
+        } catch (Throwable t) {
+            if (!cpubooster$errorLogged) {
+                cpubooster$errorLogged = true;
+                CpuBoosterMod.LOGGER.warn("Chunk rebuild gate error, admitting rebuilds: {}", t.getMessage());
+            }
+        }
+    }
+
+    @Inject(method = "cancelRebuild()V", at = @At("HEAD"), cancellable = true, require = 1)
+    private void cpubooster$keepDeferredDirty(CallbackInfo ci) {
+        if (cpubooster$deferred) {
+            cpubooster$deferred = false;
+            ci.cancel();
+            return;
+        }
+        CpuBoosterMod.getChunkRebuildGate().onKeepDirtyHook();
+    }
+}
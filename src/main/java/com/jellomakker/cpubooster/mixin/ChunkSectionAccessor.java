@@ -0,0 +1,17 @@
+package com.jellomakker.cpubooster.mixin;
+
+import net.minecraft.world.chunk.ChunkSection;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.gen.Accessor;
+
+/**
+ * Block and fluid counts a section already maintains, used as rebuild cost features.
+ */
+@Mixin(ChunkSection.class)
+public interface ChunkSectionAccessor {
+    @Accessor("nonEmptyBlockCount")
+    short cpubooster$getNonEmptyBlockCount();
+
+    @Accessor("nonEmptyFluidCount")
+    short cpubooster$getNonEmptyFluidCount();
+}
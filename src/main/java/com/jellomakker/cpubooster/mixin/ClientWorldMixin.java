@@ -0,0 +1,71 @@
+package com.jellomakker.cpubooster.mixin;
+
+import com.jellomakker.cpubooster.CpuBoosterMod;
+import com.jellomakker.cpubooster.config.ConfigManager;
+import com.jellomakker.cpubooster.optimize.EntityTickScheduler;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.world.ClientWorld;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.player.PlayerEntity;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+/**
+ * Applies {@link EntityTickScheduler} to the client world's entity tick loop.
+ *
+ * Players and entities carrying passengers always tick at full rate (passengers
+ * are ticked through their vehicle). A skipped entity still gets its previous
+ * position reset and its age advanced, exactly as vanilla does before ticking.
+ *
+ * An entity that has catch-up ticks owed is ticked here instead of by vanilla:
+ * one position reset, then every tick with its own age step, so the previous
+ * position (and with it render interpolation and limb animation) spans the whole
+ * catch-up movement instead of snapping.
+ */
+@Mixin(ClientWorld.class)
+public abstract class ClientWorldMixin {
+    @Unique
+    private static boolean cpubooster$errorLogged = false;
+
+    @Inject(method = "tickEntities()V", at = @At("HEAD"), require = 1)
+    private void cpubooster$beginEntityTick(CallbackInfo ci) {
+        MinecraftClient client = MinecraftClient.getInstance();
+        if (client.player == null) return;
+        CpuBoosterMod.getEntityTickScheduler().beginTick(ConfigManager.get(),
+                client.player.getX(), client.player.getY(), client.player.getZ());
+    }
+
+    @Inject(method = "tickEntity(Lnet/minecraft/entity/Entity;)V", at = @At("HEAD"), cancellable = true, require = 1)
+    private void cpubooster$tickLod(Entity entity, CallbackInfo ci) {
+        if (entity instanceof PlayerEntity || entity.hasPassengers()) return;
+        try {
+            int decision = CpuBoosterMod.getEntityTickScheduler().decide((EntityTickScheduler.LodState) entity,
+                    entity.getId(), entity.getX(), entity.getY(), entity.getZ(),
+                    CpuBoosterMod.getEntityFreezer().isFrozen(entity.getId()));
+            if (decision == EntityTickScheduler.SKIP) {
+                entity.resetPosition();
+                entity.age++;
+                ci.cancel();
+                return;
+            }
+            if (decision == 0) return;
+            // Moved to a faster band: run the missed ticks and this one. Skipped ticks already
+            // advanced the age, so step it back and let every tick advance it once again.
+            entity.resetPosition();
+            entity.age -= decision;
+            for (int i = 0; i <= decision; i++) {
+                entity.age++;
+                entity.tick();
+            }
+            ci.cancel();
+        } catch (Throwable t) {
+            if (!cpubooster$errorLogged) {
+                cpubooster$errorLogged = true;
+                CpuBoosterMod.LOGGER.warn("Entity tick LOD error, ticking normally: {}", t.getMessage());
+            }
+        }
+    }
+}
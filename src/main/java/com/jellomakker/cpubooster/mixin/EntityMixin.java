@@ -0,0 +1,38 @@
+package com.jellomakker.cpubooster.mixin;
+
+import com.jellomakker.cpubooster.optimize.EntityTickScheduler;
+import net.minecraft.entity.Entity;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
+
+/**
+ * Stores the tick LOD band and last ticked tick on each entity.
+ */
+@Mixin(Entity.class)
+public abstract class EntityMixin implements EntityTickScheduler.LodState {
+    @Unique
+    private int cpubooster$tickBand = 0;
+
+    @Unique
+    private long cpubooster$lastTickedAt = 0L;
+
+    @Override
+    public int cpubooster$getTickBand() {
+        return cpubooster$tickBand;
+    }
+
+    @Override
+    public void cpubooster$setTickBand(int band) {
+        cpubooster$tickBand = band;
+    }
+
+    @Override
+    public long cpubooster$getLastTickedAt() {
+        return cpubooster$lastTickedAt;
+    }
+
+    @Override
+    public void cpubooster$setLastTickedAt(long tick) {
+        cpubooster$lastTickedAt = tick;
+    }
+}
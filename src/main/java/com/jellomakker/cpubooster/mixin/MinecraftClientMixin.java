@@ -0,0 +1,45 @@
+package com.jellomakker.cpubooster.mixin;
+
+import com.jellomakker.cpubooster.CpuBoosterMod;
+import net.minecraft.client.MinecraftClient;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+/**
+ * Marks render frame boundaries. {@code render(boolean)} runs once per frame on the
+ * client thread and contains that frame's client ticks, so HEAD to HEAD is the real
+ * frame time, independent of the 20/s tick rate. RETURN (after the buffer swap) is
+ * where frame pacing harvests slack.
+ */
+@Mixin(MinecraftClient.class)
+public abstract class MinecraftClientMixin {
+    @Unique
+    private static boolean cpubooster$errorLogged = false;
+
+    @Inject(method = "render(Z)V", at = @At("HEAD"), require = 1)
+    private void cpubooster$beginRenderFrame(boolean tick, CallbackInfo ci) {
+        try {
+            CpuBoosterMod.onRenderFrame();
+        } catch (Throwable t) {
+            if (!cpubooster$errorLogged) {
+                cpubooster$errorLogged = true;
+                CpuBoosterMod.LOGGER.warn("Render frame hook failed: {}", t.getMessage());
+            }
+        }
+    }
+
+    @Inject(method = "render(Z)V", at = @At("RETURN"), require = 1)
+    private void cpubooster$endRenderFrame(boolean tick, CallbackInfo ci) {
+        try {
+            CpuBoosterMod.onRenderFrameEnd();
+        } catch (Throwable t) {
+            if (!cpubooster$errorLogged) {
+                cpubooster$errorLogged = true;
+                CpuBoosterMod.LOGGER.warn("Render frame hook failed: {}", t.getMessage());
+            }
+        }
+    }
+}
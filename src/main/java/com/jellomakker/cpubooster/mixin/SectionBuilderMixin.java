@@ -0,0 +1,40 @@
+package com.jellomakker.cpubooster.mixin;
+
+import com.jellomakker.cpubooster.CpuBoosterMod;
+import com.mojang.blaze3d.systems.VertexSorter;
+import net.minecraft.client.render.chunk.BlockBufferAllocatorStorage;
+import net.minecraft.client.render.chunk.ChunkRendererRegion;
+import net.minecraft.client.render.chunk.SectionBuilder;
+import net.minecraft.util.math.ChunkSectionPos;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+/**
+ * Times each section mesh build for the rebuild cost model. Builds run on the chunk
+ * builder's worker threads, so the start time is kept per thread and the result is
+ * handed to {@link com.jellomakker.cpubooster.optimize.ChunkRebuildGate#reportBuild}.
+ */
+@Mixin(SectionBuilder.class)
+public abstract class SectionBuilderMixin {
+    @Unique
+    private static final ThreadLocal<long[]> cpubooster$buildStart = ThreadLocal.withInitial(() -> new long[1]);
+
+    @Inject(method = "build", at = @At("HEAD"))
+    private void cpubooster$beginBuild(ChunkSectionPos sectionPos, ChunkRendererRegion region, VertexSorter sorter,
+            BlockBufferAllocatorStorage allocators, CallbackInfoReturnable<SectionBuilder.RenderData> cir) {
+        cpubooster$buildStart.get()[0] = System.nanoTime();
+    }
+
+    @Inject(method = "build", at = @At("RETURN"))
+    private void cpubooster$endBuild(ChunkSectionPos sectionPos, ChunkRendererRegion region, VertexSorter sorter,
+            BlockBufferAllocatorStorage allocators, CallbackInfoReturnable<SectionBuilder.RenderData> cir) {
+        long[] start = cpubooster$buildStart.get();
+        if (start[0] == 0) return;
+        long elapsed = System.nanoTime() - start[0];
+        start[0] = 0;
+        CpuBoosterMod.getChunkRebuildGate().reportBuild(sectionPos.asLong(), elapsed / 1_000_000.0);
+    }
+}
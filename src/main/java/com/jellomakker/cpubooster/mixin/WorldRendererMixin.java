@@ -0,0 +1,25 @@
+package com.jellomakker.cpubooster.mixin;
+
+import com.jellomakker.cpubooster.CpuBoosterMod;
+import com.jellomakker.cpubooster.config.ConfigManager;
+import net.minecraft.client.render.Camera;
+import net.minecraft.client.render.WorldRenderer;
+import net.minecraft.util.math.Vec3d;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+/**
+ * Tells the chunk rebuild gate where the camera is before the renderer schedules
+ * this frame's section rebuilds, and starts the baked block entity frame counters.
+ */
+@Mixin(WorldRenderer.class)
+public abstract class WorldRendererMixin {
+    @Inject(method = "updateChunks", at = @At("HEAD"))
+    private void cpubooster$beginRebuildFrame(Camera camera, CallbackInfo ci) {
+        Vec3d pos = camera.getPos();
+        CpuBoosterMod.getChunkRebuildGate().beginFrame(ConfigManager.get(), pos.x, pos.y, pos.z);
+        CpuBoosterMod.getBlockEntityBaker().beginFrame();
+    }
+}
@@ -0,0 +1,219 @@
+package com.jellomakker.cpubooster.optimize;
+
+import net.minecraft.client.render.OverlayTexture;
+import net.minecraft.client.render.RenderLayer;
+import net.minecraft.client.render.VertexConsumer;
+import net.minecraft.client.render.VertexConsumerProvider;
+import net.minecraft.client.util.math.MatrixStack;
+import org.joml.Matrix3f;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+
+import java.util.Arrays;
+
+/**
+ * Recorded output of one block entity renderer call, replayable without running the renderer.
+ *
+ * Vertices are stored in the block entity's local space (the pose at recording time is
+ * undone), so a replay under the current pose lands in the right place after the camera
+ * moves. Runs of vertices that went to the same {@link RenderLayer} are kept in order
+ * and replayed in that order. Render thread only.
+ */
+public class BakedBlockEntityMesh {
+    private final RenderLayer[] layers;
+    private final int[] layerEnd; // vertex index one past the end of each run
+    private final float[] positions; // x, y, z
+    private final float[] uvs; // u, v
+    private final float[] normals; // x, y, z
+    private final int[] colors, overlays, lights;
+    private final int vertexCount;
+    private final int light;
+
+    private BakedBlockEntityMesh(Recorder r, int light) {
+        this.layers = Arrays.copyOf(r.layers, r.runCount);
+        this.layerEnd = Arrays.copyOf(r.layerEnd, r.runCount);
+        this.positions = Arrays.copyOf(r.positions, r.count * 3);
+        this.uvs = Arrays.copyOf(r.uvs, r.count * 2);
+        this.normals = Arrays.copyOf(r.normals, r.count * 3);
+        this.colors = Arrays.copyOf(r.colors, r.count);
+        this.overlays = Arrays.copyOf(r.overlays, r.count);
+        this.lights = Arrays.copyOf(r.lights, r.count);
+        this.vertexCount = r.count;
+        this.light = light;
+    }
+
+    /**
+     * Emit the recorded vertices under the given pose.
+     */
+    public void replay(MatrixStack.Entry entry, VertexConsumerProvider provider) {
+        Matrix4f pose = entry.getPositionMatrix();
+        int v = 0;
+        for (int run = 0; run < layers.length; run++) {
+            VertexConsumer consumer = provider.getBuffer(layers[run]);
+            for (int end = layerEnd[run]; v < end; v++) {
+                consumer.vertex(pose, positions[v * 3], positions[v * 3 + 1], positions[v * 3 + 2])
+                        .color(colors[v])
+                        .texture(uvs[v * 2], uvs[v * 2 + 1])
+                        .overlay(overlays[v])
+                        .light(lights[v])
+                        .normal(entry, normals[v * 3], normals[v * 3 + 1], normals[v * 3 + 2]);
+            }
+        }
+    }
+
+    /**
+     * Lightmap value at the block entity when this mesh was recorded.
+     */
+    public int getLight() {
+        return light;
+    }
+
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    /**
+     * Passes renderer output through to a real provider while recording it.
+     */
+    public static class Recorder implements VertexConsumerProvider {
+        private final VertexConsumerProvider delegate;
+        private final Matrix4f inversePose;
+        private final Matrix3f inverseNormal;
+        private final int maxVertices;
+        private final Vector3f scratch = new Vector3f();
+
+        private RenderLayer[] layers = new RenderLayer[4];
+        private int[] layerEnd = new int[4];
+        private int runCount = 0;
+
+        private float[] positions = new float[3 * 64];
+        private float[] uvs = new float[2 * 64];
+        private float[] normals = new float[3 * 64];
+        private int[] colors = new int[64];
+        private int[] overlays = new int[64];
+        private int[] lights = new int[64];
+        private int count = 0;
+        private boolean overflowed = false;
+
+        /**
+         * @param entry pose the renderer will be called with
+         * @param maxVertices give up recording past this many vertices
+         */
+        public Recorder(VertexConsumerProvider delegate, MatrixStack.Entry entry, int maxVertices) {
+            this.delegate = delegate;
+            this.inversePose = new Matrix4f(entry.getPositionMatrix()).invert();
+            this.inverseNormal = new Matrix3f(entry.getNormalMatrix()).invert();
+            this.maxVertices = maxVertices;
+        }
+
+        @Override
+        public VertexConsumer getBuffer(RenderLayer layer) {
+            return new RecordingConsumer(layer, delegate.getBuffer(layer));
+        }
+
+        /**
+         * @return the recorded mesh, or null if the renderer produced too many vertices
+         */
+        public BakedBlockEntityMesh finish(int light) {
+            return overflowed ? null : new BakedBlockEntityMesh(this, light);
+        }
+
+        private int beginVertex(RenderLayer layer, float x, float y, float z) {
+            if (overflowed) return -1;
+            if (count == maxVertices) {
+                overflowed = true;
+                return -1;
+            }
+            if (runCount == 0 || layers[runCount - 1] != layer) {
+                if (runCount == layers.length) {
+                    layers = Arrays.copyOf(layers, runCount * 2);
+                    layerEnd = Arrays.copyOf(layerEnd, runCount * 2);
+                }
+                layers[runCount++] = layer;
+            }
+            if (count == colors.length) grow();
+            int v = count++;
+            layerEnd[runCount - 1] = count;
+            inversePose.transformPosition(scratch.set(x, y, z));
+            positions[v * 3] = scratch.x;
+            positions[v * 3 + 1] = scratch.y;
+            positions[v * 3 + 2] = scratch.z;
+            colors[v] = -1;
+            overlays[v] = OverlayTexture.DEFAULT_UV;
+            lights[v] = 0;
+            normals[v * 3 + 1] = 1.0f;
+            return v;
+        }
+
+        private void grow() {
+            int cap = colors.length * 2;
+            positions = Arrays.copyOf(positions, cap * 3);
+            uvs = Arrays.copyOf(uvs, cap * 2);
+            normals = Arrays.copyOf(normals, cap * 3);
+            colors = Arrays.copyOf(colors, cap);
+            overlays = Arrays.copyOf(overlays, cap);
+            lights = Arrays.copyOf(lights, cap);
+        }
+
+        private class RecordingConsumer implements VertexConsumer {
+            private final RenderLayer layer;
+            private final VertexConsumer target;
+            private int vertex = -1;
+
+            RecordingConsumer(RenderLayer layer, VertexConsumer target) {
+                this.layer = layer;
+                this.target = target;
+            }
+
+            @Override
+            public VertexConsumer vertex(float x, float y, float z) {
+                target.vertex(x, y, z);
+                vertex = beginVertex(layer, x, y, z);
+                return this;
+            }
+
+            @Override
+            public VertexConsumer color(int red, int green, int blue, int alpha) {
+                target.color(red, green, blue, alpha);
+                if (vertex >= 0) colors[vertex] = (alpha & 0xFF) << 24 | (red & 0xFF) << 16 | (green & 0xFF) << 8 | (blue & 0xFF);
+                return this;
+            }
+
+            @Override
+            public VertexConsumer texture(float u, float v) {
+                target.texture(u, v);
+                if (vertex >= 0) {
+                    uvs[vertex * 2] = u;
+                    uvs[vertex * 2 + 1] = v;
+                }
+                return this;
+            }
+
+            @Override
+            public VertexConsumer overlay(int u, int v) {
+                target.overlay(u, v);
+                if (vertex >= 0) overlays[vertex] = (u & 0xFFFF) | (v << 16);
+                return this;
+            }
+
+            @Override
+            public VertexConsumer light(int u, int v) {
+                target.light(u, v);
+                if (vertex >= 0) lights[vertex] = (u & 0xFFFF) | (v << 16);
+                return this;
+            }
+
+            @Override
+            public VertexConsumer normal(float x, float y, float z) {
+                target.normal(x, y, z);
+                if (vertex >= 0) {
+                    inverseNormal.transform(scratch.set(x, y, z));
+                    normals[vertex * 3] = scratch.x;
+                    normals[vertex * 3 + 1] = scratch.y;
+                    normals[vertex * 3 + 2] = scratch.z;
+                }
+                return this;
+            }
+        }
+    }
+}
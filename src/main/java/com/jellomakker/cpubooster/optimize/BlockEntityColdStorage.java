@@ -2,92 +2,334 @@ package com.jellomakker.cpubooster.optimize;
 
 import com.jellomakker.cpubooster.CpuBoosterMod;
 import com.jellomakker.cpubooster.config.CpuBoosterConfig;
-import java.util.HashMap;
-import java.util.Map;
+
+import java.util.Arrays;
 
 /**
  * Caches render data for idle (cold) block entities.
  * Reduces update frequency for block entities that haven't changed recently.
  * Similar to concepts from Enhanced Block Entities, but independently implemented.
+ *
+ * Entries are keyed by {@code BlockPos.asLong()} in an open-addressing (linear
+ * probing) table stored as parallel arrays: key, last update tick, last seen tick,
+ * dirty flag and payload index. Cached payloads live in a separate pool indexed
+ * by that int, so entries without data cost no object at all. Keys are only unique
+ * within one world, so the cache is dropped whenever the world changes
+ * ({@link #setWorld}).
+ *
+ * Entries not updated or {@link #touch touched} for a while are expired by a clock
+ * hand that visits a bounded number of slots per tick and goes around the whole
+ * table about every {@link #SWEEP_TICKS} ticks, instead of a full sweep every 100 ticks. Removal uses backward-shift deletion, so
+ * there are no tombstones to clean up later. Client thread only.
  */
 public class BlockEntityColdStorage {
-    private static class CachedBlockEntity {
-        long lastUpdateTick;
-        Object cachedData; // Would be actual render cache in real implementation
-        boolean isDirty;
-
-        CachedBlockEntity() {
-            this.lastUpdateTick = 0;
-            this.isDirty = false;
-        }
-    }
+    private static final int INITIAL_CAPACITY = 1024; // slots, power of two
+    private static final int SWEEP_TICKS = 100;
+    private static final int MIN_SLOTS_PER_TICK = 64;
+    private static final int MAX_SLOTS_PER_TICK = 2048;
+    private static final int NO_PAYLOAD = -1;
+
+    // Table, struct of arrays
+    private long[] keys;
+    private boolean[] used;
+    private long[] lastUpdateTick;
+    private long[] lastSeenTick;
+    private boolean[] dirty;
+    private int[] payloadIndex;
+    private int mask;
+    private int size = 0;
+
+    // Payload pool; free slots are chained through freePayloads
+    private Object[] payloads = new Object[64];
+    private int[] freePayloads = new int[64];
+    private int freePayloadCount = 0;
+    private int payloadCount = 0;
 
-    private final Map<Integer, CachedBlockEntity> entityCache = new HashMap<>();
     private long currentTick = 0;
+    private int clockHand = 0;
+    private Object world = null;
+
+    private int lastSlotsSwept = 0;
+    private int lastExpired = 0;
+    private long expiredTotal = 0;
+
+    public BlockEntityColdStorage() {
+        allocate(INITIAL_CAPACITY);
+    }
 
     public void onTick(CpuBoosterConfig cfg) {
         if (!cfg.enableBlockEntityColdStorage) {
-            entityCache.clear();
+            clearCache();
             return;
         }
 
         try {
             currentTick++;
-
-            // Periodically clean up stale cache entries
-            if (currentTick % 100 == 0) {
-                entityCache.entrySet().removeIf(e -> 
-                    (currentTick - e.getValue().lastUpdateTick) > (cfg.blockEntityIdleThreshold * 2)
-                );
-            }
+            sweep((long) cfg.blockEntityIdleThreshold * 2);
         } catch (Exception e) {
             CpuBoosterMod.LOGGER.warn("BlockEntityColdStorage error: {}", e.getMessage());
         }
     }
 
+    /**
+     * Drop the cache when the client world changes; positions repeat across worlds.
+     */
+    public void setWorld(Object newWorld) {
+        if (newWorld != world) {
+            world = newWorld;
+            clearCache();
+        }
+    }
+
+    /**
+     * Advance the clock hand over this tick's share of slots, expiring entries idle for longer than maxAge.
+     */
+    private void sweep(long maxAge) {
+        int slots = Math.min(MAX_SLOTS_PER_TICK, Math.max(MIN_SLOTS_PER_TICK, keys.length / SWEEP_TICKS));
+        int expired = 0;
+        int b = clockHand & mask;
+        for (int visited = 0; visited < slots && size > 0; visited++) {
+            if (used[b] && currentTick - lastSeenTick[b] > maxAge) {
+                removeAt(b);
+                expired++;
+                // The shift may have pulled a later entry into b; look at it again
+                if (used[b]) continue;
+            }
+            b = (b + 1) & mask;
+        }
+        clockHand = b;
+        lastSlotsSwept = size > 0 ? slots : 0;
+        lastExpired = expired;
+        expiredTotal += expired;
+    }
+
     /**
      * Returns true if a block entity can use cached data.
      */
-    public boolean canUseCachedData(int blockEntityId, long idleThresholdTicks) {
-        CachedBlockEntity cached = entityCache.get(blockEntityId);
-        if (cached == null || cached.isDirty) {
+    public boolean canUseCachedData(long posKey, long idleThresholdTicks) {
+        int b = find(posKey);
+        if (b < 0 || dirty[b]) {
             return false;
         }
-        return (currentTick - cached.lastUpdateTick) > idleThresholdTicks;
+        return (currentTick - lastUpdateTick[b]) > idleThresholdTicks;
     }
 
     /**
      * Mark a block entity as having fresh data.
      */
-    public void updateEntity(int blockEntityId) {
-        CachedBlockEntity entry = entityCache.computeIfAbsent(blockEntityId, k -> new CachedBlockEntity());
-        entry.lastUpdateTick = currentTick;
-        entry.isDirty = false;
+    public void updateEntity(long posKey) {
+        int b = findOrInsert(posKey);
+        lastUpdateTick[b] = currentTick;
+        lastSeenTick[b] = currentTick;
+        dirty[b] = false;
+    }
+
+    /**
+     * Keep a block entity's entry from expiring without resetting its idle time.
+     * @return true if it is tracked and not dirty
+     */
+    public boolean touch(long posKey) {
+        int b = find(posKey);
+        if (b < 0) return false;
+        lastSeenTick[b] = currentTick;
+        return !dirty[b];
     }
 
     /**
      * Mark a block entity as dirty (needs recomputation).
      */
-    public void markDirty(int blockEntityId) {
-        CachedBlockEntity entry = entityCache.get(blockEntityId);
-        if (entry != null) {
-            entry.isDirty = true;
+    public void markDirty(long posKey) {
+        int b = find(posKey);
+        if (b >= 0) {
+            dirty[b] = true;
+        }
+    }
+
+    /**
+     * Attach render data to a block entity (tracking it if needed). Null detaches it.
+     */
+    public void setCachedData(long posKey, Object data) {
+        int b = findOrInsert(posKey);
+        if (data == null) {
+            releasePayload(b);
+        } else if (payloadIndex[b] == NO_PAYLOAD) {
+            payloadIndex[b] = allocatePayload(data);
+        } else {
+            payloads[payloadIndex[b]] = data;
         }
     }
 
+    /**
+     * Render data attached to a block entity, or null (also null while dirty).
+     */
+    public Object getCachedData(long posKey) {
+        int b = find(posKey);
+        if (b < 0 || dirty[b] || payloadIndex[b] == NO_PAYLOAD) return null;
+        return payloads[payloadIndex[b]];
+    }
+
+    public void remove(long posKey) {
+        int b = find(posKey);
+        if (b >= 0) removeAt(b);
+    }
+
+    private int find(long key) {
+        int b = bucketOf(key);
+        while (used[b]) {
+            if (keys[b] == key) return b;
+            b = (b + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int findOrInsert(long key) {
+        int b = bucketOf(key);
+        while (used[b]) {
+            if (keys[b] == key) return b;
+            b = (b + 1) & mask;
+        }
+        if ((size + 1) * 2 > keys.length) {
+            rehash(keys.length * 2);
+            b = bucketOf(key);
+            while (used[b]) b = (b + 1) & mask;
+        }
+        used[b] = true;
+        keys[b] = key;
+        lastUpdateTick[b] = currentTick;
+        lastSeenTick[b] = currentTick;
+        dirty[b] = false;
+        payloadIndex[b] = NO_PAYLOAD;
+        size++;
+        return b;
+    }
+
+    /**
+     * Free slot {@code bucket} and move later members of the probe run back into the hole.
+     */
+    private void removeAt(int bucket) {
+        releasePayload(bucket);
+        size--;
+        int hole = bucket;
+        int b = (bucket + 1) & mask;
+        while (used[b]) {
+            int home = bucketOf(keys[b]);
+            // Move b into the hole unless its home lies cyclically in (hole, b]
+            boolean homeBetween = hole <= b ? (hole < home && home <= b) : (hole < home || home <= b);
+            if (!homeBetween) {
+                keys[hole] = keys[b];
+                lastUpdateTick[hole] = lastUpdateTick[b];
+                lastSeenTick[hole] = lastSeenTick[b];
+                dirty[hole] = dirty[b];
+                payloadIndex[hole] = payloadIndex[b];
+                hole = b;
+            }
+            b = (b + 1) & mask;
+        }
+        used[hole] = false;
+        payloadIndex[hole] = NO_PAYLOAD;
+    }
+
+    private int allocatePayload(Object data) {
+        int i;
+        if (freePayloadCount > 0) {
+            i = freePayloads[--freePayloadCount];
+        } else {
+            if (payloadCount == payloads.length) {
+                payloads = Arrays.copyOf(payloads, payloads.length * 2);
+                freePayloads = Arrays.copyOf(freePayloads, payloads.length);
+            }
+            i = payloadCount++;
+        }
+        payloads[i] = data;
+        return i;
+    }
+
+    private void releasePayload(int bucket) {
+        int i = payloadIndex[bucket];
+        if (i == NO_PAYLOAD) return;
+        payloads[i] = null;
+        freePayloads[freePayloadCount++] = i;
+        payloadIndex[bucket] = NO_PAYLOAD;
+    }
+
+    private int bucketOf(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        boolean[] oldUsed = used;
+        long[] oldLast = lastUpdateTick;
+        long[] oldSeen = lastSeenTick;
+        boolean[] oldDirty = dirty;
+        int[] oldPayload = payloadIndex;
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (!oldUsed[i]) continue;
+            int b = bucketOf(oldKeys[i]);
+            while (used[b]) b = (b + 1) & mask;
+            used[b] = true;
+            keys[b] = oldKeys[i];
+            lastUpdateTick[b] = oldLast[i];
+            lastSeenTick[b] = oldSeen[i];
+            dirty[b] = oldDirty[i];
+            payloadIndex[b] = oldPayload[i];
+        }
+        clockHand = 0;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        used = new boolean[capacity];
+        lastUpdateTick = new long[capacity];
+        lastSeenTick = new long[capacity];
+        dirty = new boolean[capacity];
+        payloadIndex = new int[capacity];
+        Arrays.fill(payloadIndex, NO_PAYLOAD);
+        mask = capacity - 1;
+    }
+
     public int getCacheSize() {
-        return entityCache.size();
+        return size;
     }
 
     public long getCurrentTick() {
         return currentTick;
     }
 
+    /**
+     * Slots the clock hand visited last tick.
+     */
+    public int getLastSlotsSwept() {
+        return lastSlotsSwept;
+    }
+
+    public int getLastExpired() {
+        return lastExpired;
+    }
+
+    public long getExpiredTotal() {
+        return expiredTotal;
+    }
+
     public void clearCache() {
-        entityCache.clear();
+        if (size == 0 && payloadCount == 0) return;
+        if (keys.length > INITIAL_CAPACITY * 16) {
+            // Leaving a huge world: give the memory back
+            allocate(INITIAL_CAPACITY);
+        } else {
+            Arrays.fill(used, false);
+            Arrays.fill(payloadIndex, NO_PAYLOAD);
+        }
+        Arrays.fill(payloads, 0, payloadCount, null);
+        payloadCount = 0;
+        freePayloadCount = 0;
+        size = 0;
+        clockHand = 0;
     }
 
     public String getDebugInfo() {
-        return "BlockEntityColdStorage: " + entityCache.size() + " cached entities";
+        return "BlockEntityColdStorage: " + size + " cached entities, " + expiredTotal + " expired";
     }
 }
@@ -0,0 +1,243 @@
+package com.jellomakker.cpubooster.optimize;
+
+import com.jellomakker.cpubooster.config.CpuBoosterConfig;
+
+/**
+ * Single admission gate for chunk rebuilds, replacing the stepwise
+ * {@link ChunkRebuildThrottler} budget, the {@link ChunkRebuildLimiter} throttle
+ * toggling and the SmartChunkRebuildThrottler per-tick cap.
+ *
+ * The output is a per-frame budget in ms of predicted build time, set by a PI
+ * controller on the frame-time error (target minus a short EMA of measured frame
+ * time). Overshoot inside a deadband counts as zero, so a vsync-capped game sitting
+ * at the target with ordinary jitter keeps its budget instead of hunting:
+ * - P reacts within one frame to a slow frame. It only acts on overshoot; recovery
+ *   is left to the integrator so the budget climbs back smoothly instead of
+ *   following every fast frame.
+ * - I finds the budget the machine sustains at the target and holds it.
+ *   The integrator only moves while the output is unsaturated, or when the error
+ *   pulls it back out of saturation (conditional integration), so a long stretch at
+ *   the floor or ceiling doesn't wind up and delay recovery. Inside the deadband
+ *   it creeps slowly upwards to probe for headroom the error can't show.
+ * - Feed-forward: an active spike cooldown from {@link FramePacingThrottler} and
+ *   memory pressure scale the output down directly, before the error shows it.
+ *
+ * Rebuilds are admitted by predicted cost ({@link #tryAdmit}) until the budget is spent.
+ * Call {@link #update} once per render frame with the measured render frame time,
+ * before the renderer schedules that frame's rebuilds; the client tick interval is
+ * not a frame time. Not thread-safe; update and admit from the client thread.
+ */
+public class ChunkRebuildController {
+    private static final double MAX_DT_SECONDS = 0.1; // a long hitch shouldn't integrate as several seconds
+    private static final double MIN_BUDGET_MS = 0.05;
+    private static final double FRAME_EMA_TAU_MS = 150.0; // render frame EMA time constant, same smoothing at any frame rate
+    private static final double PROBE_MS_PER_SECOND = 0.5; // integrator creep while inside the deadband
+
+    private double targetMs = 16.6;
+    private double deadbandMs = 1.5;
+    private double kp = 0.15;
+    private double ki = 0.7;
+    private double minBudgetMs = 0.5;
+    private double maxBudgetMs = 4.0;
+    private double spikeFactor = 0.35;
+    private double pressureFactor = 0.5;
+    private double nominalRebuildMs = 1.0;
+
+    private double frameEmaMs = -1.0;
+    private double integralMs = maxBudgetMs; // start open; the first slow frames pull it down
+    private double errorMs = 0.0;
+    private double feedForward = 1.0;
+    private double budgetMs = maxBudgetMs;
+    private int saturation = 0; // -1 floor, 0 none, 1 ceiling
+
+    private double admittedMsThisFrame = 0.0;
+    private int admittedThisFrame = 0;
+    private long admitted = 0;
+    private long denied = 0;
+    private long updates = 0;
+
+    public void updateConfig(CpuBoosterConfig cfg) {
+        this.targetMs = cfg.frameTimeTargetMs;
+        this.deadbandMs = Math.max(0.0, cfg.chunkControllerDeadbandMs);
+        this.kp = Math.max(0.0, cfg.chunkControllerKp);
+        this.ki = Math.max(0.0, cfg.chunkControllerKi);
+        this.maxBudgetMs = Math.max(MIN_BUDGET_MS, cfg.maxChunkBuildMsPerTick);
+        this.minBudgetMs = Math.max(MIN_BUDGET_MS, Math.min(cfg.chunkControllerMinMs, maxBudgetMs));
+        this.spikeFactor = clamp(cfg.chunkControllerSpikeFactor, 0.0, 1.0);
+        this.pressureFactor = clamp(cfg.chunkControllerPressureFactor, 0.0, 1.0);
+        this.nominalRebuildMs = Math.max(0.01, cfg.chunkRebuildNominalMs);
+        this.integralMs = clamp(integralMs, minBudgetMs, maxBudgetMs);
+    }
+
+    /**
+     * Recompute the budget from the last render frame and start a new admission frame.
+     * @param spike the frame pacing throttler's spike cooldown is active
+     * @param memoryPressure the memory pressure monitor is in cooldown
+     */
+    public void update(double frameMs, boolean spike, boolean memoryPressure) {
+        admittedMsThisFrame = 0.0;
+        admittedThisFrame = 0;
+        updates++;
+
+        // Time-based smoothing over render frames: the frames that also run a client tick
+        // (one every ~50 ms) are slower, and must not swing the budget each time
+        double alpha = 1.0 - Math.exp(-frameMs / FRAME_EMA_TAU_MS);
+        frameEmaMs = frameEmaMs < 0.0 ? frameMs : frameEmaMs + alpha * (frameMs - frameEmaMs);
+        double raw = targetMs - frameEmaMs;
+        double shaped = raw >= 0.0 ? raw : Math.min(0.0, raw + deadbandMs);
+        // Bounded error: one multi-hundred-ms hitch must not dominate the integrator
+        errorMs = clamp(shaped, -2.0 * targetMs, targetMs);
+        double dt = clamp(frameMs / 1000.0, 0.0, MAX_DT_SECONDS);
+        double proportional = kp * Math.min(0.0, errorMs);
+
+        double candidate = integralMs + ki * errorMs * dt;
+        if (raw < 0.0 && errorMs == 0.0) {
+            // At the target: no error to act on, so probe upwards slowly. Without this one
+            // spike at a vsync cap would lower the budget for good; if the extra builds
+            // cost frame time the error leaves the deadband and pulls it back.
+            candidate += PROBE_MS_PER_SECOND * dt;
+        }
+        double unclamped = proportional + candidate;
+        if (unclamped > maxBudgetMs) {
+            saturation = 1;
+            if (errorMs < 0.0) integralMs = candidate; // pulls back down: let it
+        } else if (unclamped < minBudgetMs) {
+            saturation = -1;
+            if (errorMs > 0.0) integralMs = candidate;
+        } else {
+            saturation = 0;
+            integralMs = candidate;
+        }
+        integralMs = clamp(integralMs, minBudgetMs, maxBudgetMs);
+
+        feedForward = 1.0;
+        if (spike) feedForward *= spikeFactor;
+        if (memoryPressure) feedForward *= pressureFactor;
+
+        double output = clamp(proportional + integralMs, minBudgetMs, maxBudgetMs);
+        budgetMs = Math.max(MIN_BUDGET_MS, output * feedForward);
+    }
+
+    /**
+     * Admit a rebuild predicted to take {@code predictedMs} if it fits this frame's remaining
+     * budget. The first rebuild of a frame is always admitted, so oversized sections can't starve.
+     */
+    public boolean tryAdmit(double predictedMs) {
+        if (admittedThisFrame > 0 && admittedMsThisFrame + predictedMs > budgetMs) {
+            denied++;
+            return false;
+        }
+        admittedMsThisFrame += predictedMs;
+        admittedThisFrame++;
+        admitted++;
+        return true;
+    }
+
+    /**
+     * Admit a rebuild of nominal cost.
+     */
+    public boolean tryAdmit() {
+        return tryAdmit(nominalRebuildMs);
+    }
+
+    /**
+     * Count a nominal-cost rebuild that was scheduled without asking (e.g. next to the
+     * player) against this frame's budget.
+     */
+    public void charge() {
+        charge(nominalRebuildMs);
+    }
+
+    /**
+     * Count a rebuild scheduled without asking against this frame's budget at its predicted cost.
+     */
+    public void charge(double predictedMs) {
+        admittedMsThisFrame += predictedMs;
+        admittedThisFrame++;
+        admitted++;
+    }
+
+    private static double clamp(double v, double lo, double hi) {
+        return v < lo ? lo : (v > hi ? hi : v);
+    }
+
+    /**
+     * Current per-frame budget in ms of predicted build time.
+     */
+    public double getBudgetMs() {
+        return budgetMs;
+    }
+
+    /**
+     * Budget expressed as rebuilds of nominal cost, for displays that count builds.
+     */
+    public int getEquivalentBuilds() {
+        return Math.max(1, (int) (budgetMs / nominalRebuildMs));
+    }
+
+    public double getMaxBudgetMs() {
+        return maxBudgetMs;
+    }
+
+    /**
+     * True while the budget is held meaningfully (over 1%) below its ceiling.
+     */
+    public boolean isLimiting() {
+        return budgetMs < maxBudgetMs * 0.99;
+    }
+
+    /**
+     * Last frame-time error (target minus frame EMA, deadband removed), ms; negative when over target.
+     */
+    public double getErrorMs() {
+        return errorMs;
+    }
+
+    public double getIntegralMs() {
+        return integralMs;
+    }
+
+    /**
+     * Combined feed-forward factor applied last update (1.0 = none).
+     */
+    public double getFeedForward() {
+        return feedForward;
+    }
+
+    /**
+     * -1 at the floor, 1 at the ceiling, 0 in between.
+     */
+    public int getSaturation() {
+        return saturation;
+    }
+
+    public double getAdmittedMsThisFrame() {
+        return admittedMsThisFrame;
+    }
+
+    public long getAdmittedCount() {
+        return admitted;
+    }
+
+    public long getDeniedCount() {
+        return denied;
+    }
+
+    public long getUpdateCount() {
+        return updates;
+    }
+
+    public void reset() {
+        frameEmaMs = -1.0;
+        integralMs = maxBudgetMs;
+        errorMs = 0.0;
+        feedForward = 1.0;
+        budgetMs = maxBudgetMs;
+        saturation = 0;
+        admittedMsThisFrame = 0.0;
+        admittedThisFrame = 0;
+        admitted = 0;
+        denied = 0;
+        updates = 0;
+    }
+}
@@ -0,0 +1,198 @@
+package com.jellomakker.cpubooster.optimize;
+
+/**
+ * Predicts how long a chunk section's mesh rebuild will take, so rebuild
+ * admission can be done in milliseconds instead of "one token per rebuild".
+ *
+ * Two sources are combined:
+ * - A linear model over section contents (non-air, translucent and block entity
+ *   counts), fitted online by recursive least squares with a forgetting factor,
+ *   so it tracks the current machine and resource pack.
+ * - An EMA of the measured cost of earlier builds of the same section, kept in
+ *   a fixed-size direct-mapped table (a colliding section simply evicts the old one).
+ *
+ * Empty sections are predicted at a small constant. Nothing allocates after
+ * construction. Not thread-safe; feed it from the thread that schedules rebuilds.
+ */
+public class ChunkRebuildCostModel {
+    private static final int FEATURES = 4; // bias, non-air, translucent, block entities
+    private static final double BLOCKS_PER_SECTION = 4096.0;
+    private static final double BLOCK_ENTITY_SCALE = 64.0;
+    private static final double FORGETTING = 0.995;
+    private static final double HISTORY_ALPHA = 0.3;
+    private static final double HISTORY_WEIGHT = 0.75; // trust in a section's own history vs the model
+    private static final double EMPTY_SECTION_MS = 0.02;
+    private static final double MIN_PREDICTION_MS = 0.01;
+    private static final double MAX_SAMPLE_MS = 250.0; // ignore samples inflated by a GC pause or hitch
+
+    // Model weights (ms per scaled feature) and RLS inverse covariance
+    private final double[] weights = {0.15, 1.5, 1.0, 0.5};
+    private final double[] covariance = new double[FEATURES * FEATURES];
+    private final double[] x = new double[FEATURES];
+    private final double[] px = new double[FEATURES];
+
+    // Per-section history, direct-mapped
+    private final long[] historyKeys;
+    private final double[] historyMs;
+    private final boolean[] historyUsed;
+    private final int historyMask;
+
+    private long samples = 0;
+    private double absErrorEmaMs = 0.0;
+    private double measuredEmaMs = 0.0;
+
+    public ChunkRebuildCostModel() {
+        this(4096);
+    }
+
+    /**
+     * @param historyCapacity sections remembered, rounded up to a power of two
+     */
+    public ChunkRebuildCostModel(int historyCapacity) {
+        int cap = Integer.highestOneBit(Math.max(2, historyCapacity) - 1) << 1;
+        historyKeys = new long[cap];
+        historyMs = new double[cap];
+        historyUsed = new boolean[cap];
+        historyMask = cap - 1;
+        resetModel();
+    }
+
+    /**
+     * Predicted rebuild time in ms.
+     */
+    public double predictMs(long sectionPos, int nonAirBlocks, int translucentBlocks, int blockEntities) {
+        if (nonAirBlocks <= 0 && blockEntities <= 0) {
+            return EMPTY_SECTION_MS;
+        }
+        double model = modelMs(nonAirBlocks, translucentBlocks, blockEntities);
+        int slot = slotOf(sectionPos);
+        if (historyUsed[slot] && historyKeys[slot] == sectionPos) {
+            return HISTORY_WEIGHT * historyMs[slot] + (1.0 - HISTORY_WEIGHT) * model;
+        }
+        return model;
+    }
+
+    /**
+     * Report the measured duration of a finished rebuild.
+     */
+    public void recordBuild(long sectionPos, int nonAirBlocks, int translucentBlocks, int blockEntities, double measuredMs) {
+        if (!(measuredMs >= 0.0) || measuredMs > MAX_SAMPLE_MS) return;
+
+        double predicted = predictMs(sectionPos, nonAirBlocks, translucentBlocks, blockEntities);
+        double absError = Math.abs(measuredMs - predicted);
+        if (samples == 0) {
+            absErrorEmaMs = absError;
+            measuredEmaMs = measuredMs;
+        } else {
+            absErrorEmaMs += 0.05 * (absError - absErrorEmaMs);
+            measuredEmaMs += 0.05 * (measuredMs - measuredEmaMs);
+        }
+        samples++;
+
+        int slot = slotOf(sectionPos);
+        if (historyUsed[slot] && historyKeys[slot] == sectionPos) {
+            historyMs[slot] += HISTORY_ALPHA * (measuredMs - historyMs[slot]);
+        } else {
+            historyKeys[slot] = sectionPos;
+            historyMs[slot] = measuredMs;
+            historyUsed[slot] = true;
+        }
+
+        if (nonAirBlocks > 0 || blockEntities > 0) {
+            updateModel(nonAirBlocks, translucentBlocks, blockEntities, measuredMs);
+        }
+    }
+
+    /**
+     * Forget a section's history (e.g. it was unloaded).
+     */
+    public void forget(long sectionPos) {
+        int slot = slotOf(sectionPos);
+        if (historyKeys[slot] == sectionPos) {
+            historyUsed[slot] = false;
+        }
+    }
+
+    private double modelMs(int nonAir, int translucent, int blockEntities) {
+        fillFeatures(nonAir, translucent, blockEntities);
+        double y = 0.0;
+        for (int i = 0; i < FEATURES; i++) {
+            y += weights[i] * x[i];
+        }
+        return Math.max(MIN_PREDICTION_MS, y);
+    }
+
+    /**
+     * One recursive least squares step:
+     * k = P x / (lambda + x' P x), w += k (y - w'x), P = (P - k x' P) / lambda.
+     */
+    private void updateModel(int nonAir, int translucent, int blockEntities, double measuredMs) {
+        fillFeatures(nonAir, translucent, blockEntities);
+        double denom = FORGETTING;
+        for (int i = 0; i < FEATURES; i++) {
+            double sum = 0.0;
+            for (int j = 0; j < FEATURES; j++) {
+                sum += covariance[i * FEATURES + j] * x[j];
+            }
+            px[i] = sum;
+            denom += x[i] * sum;
+        }
+        double error = measuredMs;
+        for (int i = 0; i < FEATURES; i++) {
+            error -= weights[i] * x[i];
+        }
+        for (int i = 0; i < FEATURES; i++) {
+            weights[i] += (px[i] / denom) * error;
+        }
+        // P is symmetric, so x'P == (Px)'
+        for (int i = 0; i < FEATURES; i++) {
+            for (int j = 0; j < FEATURES; j++) {
+                int idx = i * FEATURES + j;
+                covariance[idx] = (covariance[idx] - px[i] * px[j] / denom) / FORGETTING;
+            }
+        }
+        if (!Double.isFinite(weights[0]) || !Double.isFinite(covariance[0])) {
+            resetModel();
+        }
+    }
+
+    private void fillFeatures(int nonAir, int translucent, int blockEntities) {
+        x[0] = 1.0;
+        x[1] = nonAir / BLOCKS_PER_SECTION;
+        x[2] = translucent / BLOCKS_PER_SECTION;
+        x[3] = blockEntities / BLOCK_ENTITY_SCALE;
+    }
+
+    private void resetModel() {
+        weights[0] = 0.15;
+        weights[1] = 1.5;
+        weights[2] = 1.0;
+        weights[3] = 0.5;
+        for (int i = 0; i < covariance.length; i++) {
+            covariance[i] = (i % (FEATURES + 1) == 0) ? 10.0 : 0.0;
+        }
+    }
+
+    private int slotOf(long sectionPos) {
+        long h = sectionPos * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & historyMask;
+    }
+
+    public long getSampleCount() {
+        return samples;
+    }
+
+    /**
+     * Mean absolute prediction error over recent builds (ms).
+     */
+    public double getMeanAbsErrorMs() {
+        return absErrorEmaMs;
+    }
+
+    /**
+     * Average measured build time over recent builds (ms).
+     */
+    public double getMeasuredAverageMs() {
+        return measuredEmaMs;
+    }
+}
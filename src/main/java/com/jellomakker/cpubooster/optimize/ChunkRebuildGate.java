@@ -0,0 +1,359 @@
+package com.jellomakker.cpubooster.optimize;
+
+import com.jellomakker.cpubooster.config.CpuBoosterConfig;
+
+import java.util.Arrays;
+
+/**
+ * Decides, for each chunk section the world renderer is about to schedule for an
+ * async rebuild, whether it is built now or deferred to the next frame.
+ *
+ * Called from the chunk builder mixins. A denied section is left dirty, so the
+ * renderer offers it again next frame - nothing is dropped. Never deferred:
+ * - sections within one section of the camera (what the player is standing in or next to)
+ * - rebuilds the game marks important (caused by the player, e.g. placing a block)
+ *
+ * Admission goes to {@link ChunkRebuildController} when it is enabled; otherwise to
+ * the legacy trio of {@link ChunkRebuildThrottler}, {@link ChunkRebuildLimiter} and
+ * {@link SmartChunkRebuildThrottler}. Sections are charged at the build time predicted
+ * by {@link ChunkRebuildCostModel} from their contents (non-air blocks, fluids as the
+ * translucent count, block entities), or the nominal cost when those are unknown.
+ * Build durations measured on the builder threads come back through
+ * {@link #reportBuild} and train the model at the start of the next frame, using the
+ * contents recorded when the section was offered. The block entity count is the
+ * expensive one to gather, so it is kept with the section's contents and only
+ * counted again once the section has been marked dirty ({@link #onSectionDirty}).
+ *
+ * With smart chunk rebuild enabled, deferred sections wait in the
+ * {@link SmartChunkRebuildThrottler} heap, scored by distance and view direction. At
+ * the start of each frame the budget goes to the head of the heap first: sections
+ * are granted in heap order until the budget runs out, and a granted section is
+ * admitted when the renderer offers it again. Sections not in the heap are only
+ * admitted directly once the heap is empty. A grant the renderer doesn't use that
+ * frame (section unloaded, out of view or already rebuilt) is dropped.
+ *
+ * Deferring relies on suppressing the "mark clean" call that follows scheduling. Until
+ * that hook has been seen working everything is admitted, so a mixin that failed to
+ * apply can never turn a deferral into a dropped rebuild.
+ */
+public class ChunkRebuildGate {
+    private static final int FEATURE_SLOTS = 2048; // power of two
+    private static final int MAX_SAMPLES = 256; // build timings buffered per frame
+    /** Pass for each content count when the section's contents are unknown. */
+    public static final int UNKNOWN = -1;
+
+    private final ChunkRebuildController controller;
+    private final ChunkRebuildThrottler throttler;
+    private final ChunkRebuildLimiter limiter;
+    private final SmartChunkRebuildThrottler smartThrottler;
+    private final ChunkRebuildCostModel costModel;
+
+    private volatile boolean keepDirtyHookActive = false;
+    private long[] granted = new long[16];
+    private int grantedCount = 0;
+    private int cameraSectionX, cameraSectionY, cameraSectionZ;
+    private boolean hasCamera = false;
+
+    // Contents and prediction of recently offered sections, direct-mapped (collisions evict)
+    private final long[] featureKeys = new long[FEATURE_SLOTS];
+    private final boolean[] featureUsed = new boolean[FEATURE_SLOTS];
+    private final int[] featureNonAir = new int[FEATURE_SLOTS];
+    private final int[] featureTranslucent = new int[FEATURE_SLOTS];
+    private final int[] featureBlockEntities = new int[FEATURE_SLOTS];
+    private final boolean[] featureFresh = new boolean[FEATURE_SLOTS]; // not marked dirty since counted
+    private final double[] featurePredictedMs = new double[FEATURE_SLOTS];
+
+    // Build timings from the builder threads; swapped out under the lock at beginFrame
+    private final Object sampleLock = new Object();
+    private long[] sampleKeys = new long[MAX_SAMPLES];
+    private double[] sampleMs = new double[MAX_SAMPLES];
+    private int sampleCount = 0;
+    private long[] drainKeys = new long[MAX_SAMPLES];
+    private double[] drainMs = new double[MAX_SAMPLES];
+    private long droppedSamples = 0;
+
+    private long admitted = 0;
+    private long deferred = 0;
+    private long bypassed = 0;
+    private int deferredThisFrame = 0;
+    private int lastFrameDeferred = 0;
+    private long expiredGrants = 0;
+
+    public ChunkRebuildGate(ChunkRebuildController controller, ChunkRebuildThrottler throttler,
+            ChunkRebuildLimiter limiter, SmartChunkRebuildThrottler smartThrottler, ChunkRebuildCostModel costModel) {
+        this.controller = controller;
+        this.throttler = throttler;
+        this.limiter = limiter;
+        this.smartThrottler = smartThrottler;
+        this.costModel = costModel;
+    }
+
+    /**
+     * Called once per frame before the renderer schedules rebuilds. Hands this frame's
+     * budget to queued sections in heap order.
+     */
+    public void beginFrame(CpuBoosterConfig cfg, double cameraX, double cameraY, double cameraZ) {
+        cameraSectionX = ((int) Math.floor(cameraX)) >> 4;
+        cameraSectionY = ((int) Math.floor(cameraY)) >> 4;
+        cameraSectionZ = ((int) Math.floor(cameraZ)) >> 4;
+        hasCamera = true;
+        lastFrameDeferred = deferredThisFrame;
+        deferredThisFrame = 0;
+        trainCostModel();
+
+        expiredGrants += grantedCount;
+        grantedCount = 0;
+        if (!isQueueing(cfg)) {
+            if (smartThrottler.hasNextChunk()) smartThrottler.clear();
+            return;
+        }
+        while (smartThrottler.hasNextChunk()) {
+            long key = smartThrottler.peekNextChunk();
+            if (!tryCharge(cfg, predictedMs(cfg, key))) break;
+            smartThrottler.pollNextChunk();
+            if (grantedCount == granted.length) granted = Arrays.copyOf(granted, grantedCount * 2);
+            granted[grantedCount++] = key;
+        }
+    }
+
+    /**
+     * Report how long a section's mesh build took. Thread-safe; called from the
+     * builder threads. Timings beyond what fits until the next frame are dropped.
+     */
+    public void reportBuild(long sectionPos, double measuredMs) {
+        synchronized (sampleLock) {
+            if (sampleCount == MAX_SAMPLES) {
+                droppedSamples++;
+                return;
+            }
+            sampleKeys[sampleCount] = sectionPos;
+            sampleMs[sampleCount++] = measuredMs;
+        }
+    }
+
+    /**
+     * Feed buffered build timings to the cost model, with the contents recorded at schedule time.
+     */
+    private void trainCostModel() {
+        int count;
+        long[] keys;
+        double[] ms;
+        synchronized (sampleLock) {
+            count = sampleCount;
+            if (count == 0) return;
+            keys = sampleKeys;
+            ms = sampleMs;
+            sampleKeys = drainKeys;
+            sampleMs = drainMs;
+            sampleCount = 0;
+        }
+        for (int i = 0; i < count; i++) {
+            int slot = featureSlot(keys[i]);
+            if (featureUsed[slot] && featureKeys[slot] == keys[i]) {
+                costModel.recordBuild(keys[i], featureNonAir[slot], featureTranslucent[slot],
+                        featureBlockEntities[slot], ms[i]);
+            }
+        }
+        drainKeys = keys;
+        drainMs = ms;
+    }
+
+    /**
+     * The renderer marked a scheduled section clean; proves the deferral hook is in place.
+     */
+    public void onKeepDirtyHook() {
+        keepDirtyHookActive = true;
+    }
+
+    /**
+     * True while sections are actually being gated (the caller can skip gathering contents otherwise).
+     */
+    public boolean isGating(CpuBoosterConfig cfg) {
+        return cfg.enabled && cfg.chunkRebuildGateEnabled && keepDirtyHookActive;
+    }
+
+    /**
+     * @param nonAirBlocks non-air blocks in the section, or {@link #UNKNOWN}
+     * @param translucentBlocks translucent blocks (or a proxy such as fluids), or {@link #UNKNOWN}
+     * @param blockEntities block entities in the section, or {@link #UNKNOWN}
+     * @return true to schedule the rebuild now, false to leave the section dirty for next frame
+     */
+    public boolean admit(CpuBoosterConfig cfg, int sectionX, int sectionY, int sectionZ, boolean important,
+            int nonAirBlocks, int translucentBlocks, int blockEntities) {
+        if (!isGating(cfg)) {
+            return true;
+        }
+        boolean queueing = isQueueing(cfg);
+        long key = SmartChunkRebuildThrottler.packSection(sectionX, sectionY, sectionZ);
+        double costMs = predict(cfg, key, nonAirBlocks, translucentBlocks, blockEntities);
+        if (important || isNearCamera(sectionX, sectionY, sectionZ)) {
+            bypassed++;
+            if (queueing && !takeGrant(key)) {
+                smartThrottler.removeChunk(key);
+                if (cfg.chunkRebuildControllerEnabled) controller.charge(costMs);
+            } else if (!queueing && cfg.chunkRebuildControllerEnabled) {
+                controller.charge(costMs);
+            }
+            return true;
+        }
+
+        boolean allowed;
+        if (!queueing) {
+            allowed = tryCharge(cfg, costMs);
+        } else if (takeGrant(key)) {
+            allowed = true; // already charged at beginFrame
+        } else if (!smartThrottler.hasNextChunk()) {
+            // Nothing waiting ahead of it
+            allowed = tryCharge(cfg, costMs);
+        } else {
+            allowed = false;
+        }
+        if (!allowed && queueing) {
+            smartThrottler.enqueueSection(key);
+        }
+
+        if (allowed) {
+            admitted++;
+        } else {
+            deferred++;
+            deferredThisFrame++;
+        }
+        return allowed;
+    }
+
+    private boolean isQueueing(CpuBoosterConfig cfg) {
+        return cfg.enabled && cfg.chunkRebuildGateEnabled && cfg.enableSmartChunkRebuild && keepDirtyHookActive;
+    }
+
+    /**
+     * Predict a section's build time and remember its contents for training.
+     */
+    private double predict(CpuBoosterConfig cfg, long key, int nonAir, int translucent, int blockEntities) {
+        if (nonAir < 0 || translucent < 0 || blockEntities < 0) {
+            return cfg.chunkRebuildNominalMs;
+        }
+        double ms = costModel.predictMs(key, nonAir, translucent, blockEntities);
+        int slot = featureSlot(key);
+        featureKeys[slot] = key;
+        featureUsed[slot] = true;
+        featureNonAir[slot] = nonAir;
+        featureTranslucent[slot] = translucent;
+        featureBlockEntities[slot] = blockEntities;
+        featureFresh[slot] = true;
+        featurePredictedMs[slot] = ms;
+        return ms;
+    }
+
+    /**
+     * Block entity count recorded when the section was last offered, or {@link #UNKNOWN}
+     * if it has been marked dirty since (or was never offered). Client thread only.
+     */
+    public int getCachedBlockEntities(int sectionX, int sectionY, int sectionZ) {
+        long key = SmartChunkRebuildThrottler.packSection(sectionX, sectionY, sectionZ);
+        int slot = featureSlot(key);
+        return featureUsed[slot] && featureFresh[slot] && featureKeys[slot] == key ? featureBlockEntities[slot] : UNKNOWN;
+    }
+
+    /**
+     * A section was marked dirty: its contents may have changed, count them again on the next offer.
+     * Client thread only.
+     */
+    public void onSectionDirty(int sectionX, int sectionY, int sectionZ) {
+        long key = SmartChunkRebuildThrottler.packSection(sectionX, sectionY, sectionZ);
+        int slot = featureSlot(key);
+        if (featureKeys[slot] == key) featureFresh[slot] = false;
+    }
+
+    /**
+     * Last prediction for a queued section, or the nominal cost if it was evicted.
+     */
+    private double predictedMs(CpuBoosterConfig cfg, long key) {
+        int slot = featureSlot(key);
+        return featureUsed[slot] && featureKeys[slot] == key ? featurePredictedMs[slot] : cfg.chunkRebuildNominalMs;
+    }
+
+    private static int featureSlot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & (FEATURE_SLOTS - 1);
+    }
+
+    /**
+     * Ask the active throttle for one rebuild of the given predicted cost.
+     */
+    private boolean tryCharge(CpuBoosterConfig cfg, double costMs) {
+        if (cfg.chunkRebuildControllerEnabled) {
+            return controller.tryAdmit(costMs);
+        }
+        boolean allowed = smartThrottler.canRebuildChunk(cfg)
+                && throttler.tryAdmit(costMs, limiter);
+        if (allowed) smartThrottler.recordChunkRebuild();
+        return allowed;
+    }
+
+    /**
+     * Use the grant handed to {@code key} this frame, if there is one.
+     */
+    private boolean takeGrant(long key) {
+        for (int i = 0; i < grantedCount; i++) {
+            if (granted[i] == key) {
+                granted[i] = granted[--grantedCount];
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isNearCamera(int sectionX, int sectionY, int sectionZ) {
+        return hasCamera
+                && Math.abs(sectionX - cameraSectionX) <= 1
+                && Math.abs(sectionY - cameraSectionY) <= 1
+                && Math.abs(sectionZ - cameraSectionZ) <= 1;
+    }
+
+    /**
+     * True once the renderer hooks have been seen working and sections can be deferred.
+     */
+    public boolean isActive() {
+        return keepDirtyHookActive;
+    }
+
+    public long getAdmittedCount() {
+        return admitted;
+    }
+
+    public long getDeferredCount() {
+        return deferred;
+    }
+
+    /**
+     * Rebuilds admitted without asking the throttles (near the camera or player-caused).
+     */
+    public long getBypassedCount() {
+        return bypassed;
+    }
+
+    public int getLastFrameDeferred() {
+        return lastFrameDeferred;
+    }
+
+    /**
+     * Build timings dropped because the buffer was full.
+     */
+    public long getDroppedSampleCount() {
+        return droppedSamples;
+    }
+
+    /**
+     * Sections waiting in the heap for a grant.
+     */
+    public int getQueuedCount() {
+        return smartThrottler.getQueueSize();
+    }
+
+    /**
+     * Grants the renderer never used (section no longer offered in that frame).
+     */
+    public long getExpiredGrantCount() {
+        return expiredGrants;
+    }
+}
@@ -1,5 +1,7 @@
 package com.jellomakker.cpubooster.optimize;
 
+import com.jellomakker.cpubooster.perf.Clock;
+
 /**
  * Chunk rebuild limiter using token-bucket algorithm.
  *
@@ -10,17 +12,28 @@ package com.jellomakker.cpubooster.optimize;
  * - Start with capacity = maxRebuilds (per second)
  * - Lose 1 token per rebuild request
  * - Gain tokens back at ~60/sec (as time passes)
+ *
+ * Tokens are milliseconds of predicted build time (see {@link ChunkRebuildCostModel}):
+ * a rate of N rebuilds/sec becomes N * nominalRebuildMs ms/sec, and a rebuild
+ * spends its predicted cost. {@link #canRebuild()} charges the nominal cost.
  */
 public class ChunkRebuildLimiter {
+    private final Clock clock;
     private double tokens; // Current tokens in bucket
     private long lastRefillTime; // Last time we refilled tokens
     private int maxRebuildsPerSecondNormal = 60;
     private int maxRebuildsPerSecondThrottled = 15;
     private boolean throttleMode = false;
+    private double nominalRebuildMs = 1.0;
 
     public ChunkRebuildLimiter() {
-        this.tokens = maxRebuildsPerSecondNormal;
-        this.lastRefillTime = System.nanoTime();
+        this(Clock.SYSTEM);
+    }
+
+    public ChunkRebuildLimiter(Clock clock) {
+        this.clock = clock;
+        this.tokens = maxRebuildsPerSecondNormal * nominalRebuildMs;
+        this.lastRefillTime = clock.nanoTime();
     }
 
     /**
@@ -33,15 +46,24 @@ public class ChunkRebuildLimiter {
         refillTokens();
     }
 
+    /**
+     * Average cost of a rebuild in ms, used to turn the per-second counts into a ms budget.
+     */
+    public void setNominalRebuildMs(double ms) {
+        this.nominalRebuildMs = Math.max(0.01, ms);
+    }
+
     /**
      * Set throttle mode (called by FramePacingThrottler when active).
      */
     public void setThrottleMode(boolean active) {
-        this.throttleMode = active;
-        if (active) {
-            // When entering throttle mode, reset to throttled capacity
-            tokens = maxRebuildsPerSecondThrottled;
+        if (active && !throttleMode) {
+            // When entering throttle mode, cut back to throttled capacity (only on the transition,
+            // otherwise a caller re-asserting the mode every tick would refill the bucket each time)
+            refillTokens();
+            tokens = Math.min(tokens, maxRebuildsPerSecondThrottled * nominalRebuildMs);
         }
+        this.throttleMode = active;
     }
 
     /**
@@ -49,9 +71,18 @@ public class ChunkRebuildLimiter {
      * Returns true if we have tokens available.
      */
     public boolean canRebuild() {
+        return canRebuild(nominalRebuildMs);
+    }
+
+    /**
+     * Admit a rebuild predicted to take {@code predictedMs}, spending that many tokens.
+     * A rebuild larger than the whole bucket is admitted only when the bucket is full.
+     */
+    public boolean canRebuild(double predictedMs) {
         refillTokens();
-        if (tokens >= 1.0) {
-            tokens -= 1.0;
+        double cost = Math.min(predictedMs, getCapacityMs());
+        if (tokens >= cost) {
+            tokens -= cost;
             return true;
         }
         return false;
@@ -62,19 +93,23 @@ public class ChunkRebuildLimiter {
      * We gain tokens at a rate of (max) tokens per second.
      */
     private void refillTokens() {
-        long now = System.nanoTime();
+        long now = clock.nanoTime();
         long elapsedNanos = now - lastRefillTime;
         double elapsedSeconds = elapsedNanos / 1_000_000_000.0;
 
         int maxRate = throttleMode ? maxRebuildsPerSecondThrottled : maxRebuildsPerSecondNormal;
         double tokensGained = elapsedSeconds * maxRate;
 
-        tokens = Math.min(tokens + tokensGained, maxRate); // Cap at max capacity
+        tokens = Math.min(tokens + tokensGained * nominalRebuildMs, maxRate * nominalRebuildMs); // Cap at max capacity
         lastRefillTime = now;
     }
 
+    private double getCapacityMs() {
+        return getCurrentMaxRate() * nominalRebuildMs;
+    }
+
     /**
-     * Get current token count (for debugging).
+     * Get current token count in ms of build time (for debugging).
      */
     public double getTokens() {
         refillTokens();
@@ -5,6 +5,10 @@ import com.jellomakker.cpubooster.CpuBoosterMod;
 /**
  * Adaptively throttles chunk rebuilds based on frame time.
  * If frames are stuttering, limits chunk work; if smooth, allows more.
+ *
+ * The budget is kept both as a count and as milliseconds of predicted build
+ * time per tick (the ms budget scales with the count). {@link #tryAdmit} packs
+ * rebuilds by their predicted cost until the ms budget is used up.
  */
 public class ChunkRebuildThrottler {
     private volatile boolean adaptiveEnabled = true;
@@ -13,6 +17,10 @@ public class ChunkRebuildThrottler {
     private volatile double frameTimeThresholdMs = 30.0; // Stutter threshold
     private volatile double recoveryThresholdMs = 16.0; // Frame time target
     private int ticksSinceAdjustment = 0;
+    private volatile double maxBuildMsPerTick = 4.0;
+    private double admittedMsThisTick = 0.0;
+    private int admittedThisTick = 0;
+    private long deniedByBudget = 0;
 
     public void setAdaptiveEnabled(boolean enabled) {
         this.adaptiveEnabled = enabled;
@@ -23,7 +31,13 @@ public class ChunkRebuildThrottler {
         this.currentChunkBudget = max;
     }
 
+    public void setMaxBuildMsPerTick(double ms) {
+        this.maxBuildMsPerTick = Math.max(0.1, ms);
+    }
+
     public void onFrameTime(double frameTimeMs) {
+        admittedMsThisTick = 0.0;
+        admittedThisTick = 0;
         if (!adaptiveEnabled) {
             currentChunkBudget = maxChunkBuildsPerTick;
             return;
@@ -51,6 +65,41 @@ public class ChunkRebuildThrottler {
         return currentChunkBudget;
     }
 
+    /**
+     * Current per-tick budget in ms of predicted build time.
+     */
+    public double getBudgetMs() {
+        return maxBuildMsPerTick * currentChunkBudget / maxChunkBuildsPerTick;
+    }
+
+    /**
+     * Admit a rebuild predicted to take {@code predictedMs} if it fits this tick's remaining
+     * budget and the rate limiter (if given) has tokens for it. The first rebuild of a tick
+     * is admitted even if it alone exceeds the budget, so oversized sections can't starve.
+     */
+    public boolean tryAdmit(double predictedMs, ChunkRebuildLimiter limiter) {
+        double budget = getBudgetMs();
+        boolean fits = admittedMsThisTick + predictedMs <= budget;
+        if (!fits && admittedThisTick > 0) {
+            deniedByBudget++;
+            return false;
+        }
+        if (limiter != null && !limiter.canRebuild(predictedMs)) {
+            return false;
+        }
+        admittedMsThisTick += predictedMs;
+        admittedThisTick++;
+        return true;
+    }
+
+    public double getAdmittedMsThisTick() {
+        return admittedMsThisTick;
+    }
+
+    public long getDeniedByBudget() {
+        return deniedByBudget;
+    }
+
     public boolean isAdaptiveEnabled() {
         return adaptiveEnabled;
     }
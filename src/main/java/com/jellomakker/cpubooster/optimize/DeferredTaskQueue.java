@@ -2,16 +2,152 @@ package com.jellomakker.cpubooster.optimize;
 
 import com.jellomakker.cpubooster.CpuBoosterMod;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Spreads heavy work (IO, caching) across multiple ticks to avoid frame spikes.
  * Tasks are executed only after world is initialized and budget is available.
+ *
+ * Tasks are scheduled by priority class, then earliest deadline, then submission
+ * order. The queue learns an EMA of each task type's execution cost and only
+ * starts a task predicted to fit the remaining tick budget; smaller tasks may run
+ * ahead of one that doesn't fit. A task that returns false yields its turn for
+ * this tick without blocking the tasks behind it. Overdue tasks, and tasks too
+ * large to ever fit, run as soon as they reach the head of the schedule.
+ *
+ * {@link AsyncTask}s split into a background phase, run off the tick thread on
+ * the IO lane (virtual threads, concurrency capped by a semaphore) or the CPU
+ * lane (a small low-priority platform pool), and a main-thread phase applied
+ * from {@link #onTick()} inside the same tick budget. {@code setWorldReady(false)}
+ * cancels all in-flight background work and drops results not yet applied.
+ *
+ * Submission is thread-safe: {@code queueTask} and the background workers hand
+ * entries to the tick thread through lock-free {@link MpscArrayQueue}s, which are
+ * drained at the start of each tick.
+ *
+ * Idempotent work (cache rebuilds, stat recomputation, config reapply) can be
+ * queued under a coalescing key. A newer task with the same key supersedes the
+ * pending one in place, keeping its place in the schedule (moving it earlier if
+ * the newer one is more urgent), so bursts of refreshes run once.
  */
 public class DeferredTaskQueue {
-    private final Queue<DeferredTask> taskQueue = new LinkedList<>();
-    private volatile int budgetMs = 5000; // Default: 5ms per tick budget
+    public enum Priority {
+        URGENT,
+        NORMAL,
+        BACKGROUND
+    }
+
+    /**
+     * Where the background phase of an {@link AsyncTask} runs.
+     */
+    public enum Lane {
+        /** Blocking IO: virtual threads, many in flight */
+        IO,
+        /** Computation: small platform pool so the render and tick threads keep their cores */
+        CPU
+    }
+
+    private static final int MAX_IO_IN_FLIGHT = 64;
+    private static final int SUBMISSION_CAPACITY = 4096;
+    private static final int COMPLETION_CAPACITY = 1024;
+    private static final long COMPLETION_FLOOR_NS = 500_000L; // results applied per tick even with no budget
+
+    private static final double COST_EMA_ALPHA = 0.25;
+    private static final int MAX_SKIPS_PER_TICK = 32; // bound scanning when little budget is left
+
+    private static final Comparator<Entry> SCHEDULE_ORDER = (a, b) -> {
+        int c = Long.compare(a.deadlineNs, b.deadlineNs);
+        return c != 0 ? c : Long.compare(a.sequence, b.sequence);
+    };
+
+    private static final class Entry {
+        DeferredTask task; // replaced in place when superseded
+        final Object key; // coalescing key, or null
+        final Priority priority;
+        final long deadlineNs; // Long.MAX_VALUE = no deadline
+        long sequence; // assigned when the tick thread takes the submission
+
+        Entry(Object key, DeferredTask task, Priority priority, long deadlineNs) {
+            this.key = key;
+            this.task = task;
+            this.priority = priority;
+            this.deadlineNs = deadlineNs;
+        }
+    }
+
+    private static final class CostEstimate {
+        double emaNs;
+        long samples;
+    }
+
+    @SuppressWarnings("unchecked")
+    private final PriorityQueue<Entry>[] queues = new PriorityQueue[Priority.values().length];
+    private final Map<Class<?>, CostEstimate> costEstimates = new HashMap<>();
+    private final List<Entry> carryOver = new ArrayList<>();
+    private final Map<Object, Entry> pendingByKey = new HashMap<>();
+    private final MpscArrayQueue<Entry> submissions = new MpscArrayQueue<>(SUBMISSION_CAPACITY);
+    private volatile long budgetNs = 5_000_000L; // Default: 5ms per tick budget
     private volatile boolean worldReady = false;
-    private volatile long tickStartNs = 0;
+    private long nextSequence = 0;
+    private int queuedCount = 0;
+
+    private long deadlineMisses = 0;
+    private long budgetSkips = 0;
+    private long executions = 0;
+    private long coalesced = 0;
+
+    /**
+     * Work with an off-thread phase and a main-thread phase.
+     * The background phase must not touch game state; the main-thread phase applies its result.
+     */
+    public interface AsyncTask<T> {
+        /**
+         * Runs on a worker thread. Should respond to interruption (world unload cancels it).
+         */
+        T runInBackground() throws Exception;
+
+        /**
+         * Runs on the tick thread within the tick budget.
+         */
+        void applyOnMainThread(T result);
+
+        String getName();
+    }
+
+    private static final class Completion {
+        final AsyncTask<?> task;
+        final Object result;
+        final Throwable error;
+        final int generation;
+
+        Completion(AsyncTask<?> task, Object result, Throwable error, int generation) {
+            this.task = task;
+            this.result = result;
+            this.error = error;
+            this.generation = generation;
+        }
+    }
+
+    // Off-thread lane
+    private final Semaphore ioPermits = new Semaphore(MAX_IO_IN_FLIGHT);
+    private final Set<FutureTask<?>> inFlight = ConcurrentHashMap.newKeySet();
+    private final MpscArrayQueue<Completion> completions = new MpscArrayQueue<>(COMPLETION_CAPACITY);
+    private final AtomicInteger generation = new AtomicInteger();
+    private final AtomicLong asyncCancelled = new AtomicLong();
+    private long asyncApplied = 0;
+    private long asyncFailed = 0;
+    private ExecutorService ioExecutor = null;
+    private ExecutorService cpuExecutor = null;
 
     public interface DeferredTask {
         /**
@@ -25,59 +161,457 @@ public class DeferredTaskQueue {
         String getName();
     }
 
+    public DeferredTaskQueue() {
+        for (int i = 0; i < queues.length; i++) {
+            queues[i] = new PriorityQueue<>(SCHEDULE_ORDER);
+        }
+    }
+
     public void setTickBudget(int ms) {
-        this.budgetMs = Math.max(1, Math.min(ms, 20)); // Clamp 1-20ms
+        this.budgetNs = Math.max(1, Math.min(ms, 20)) * 1_000_000L; // Clamp 1-20ms
+    }
+
+    /**
+     * Budget in microseconds (the unit of the config's deferredTaskBudgetMs), clamped to 0.1-20ms.
+     */
+    public void setTickBudgetMicros(int micros) {
+        this.budgetNs = Math.max(100, Math.min(micros, 20_000)) * 1_000L;
+    }
+
+    /**
+     * Budget for the next tick as set by {@link FrameBudgetGovernor}, clamped to 0-20ms.
+     * Zero holds all queued work (and pending results) until a later tick.
+     */
+    public void setTickBudgetNanos(long nanos) {
+        this.budgetNs = Math.max(0L, Math.min(nanos, 20_000_000L));
+    }
+
+    public long getTickBudgetNanos() {
+        return budgetNs;
     }
 
     public void setWorldReady(boolean ready) {
+        boolean wasReady = this.worldReady;
         this.worldReady = ready;
+        if (wasReady && !ready) {
+            cancelAsync();
+        }
     }
 
     public void queueTask(DeferredTask task) {
-        if (task != null) {
-            taskQueue.offer(task);
+        queueTask(task, Priority.NORMAL, 0L);
+    }
+
+    public void queueTask(DeferredTask task, Priority priority) {
+        queueTask(task, priority, 0L);
+    }
+
+    /**
+     * Thread-safe. The task is picked up by the next tick.
+     * @param deadlineMs run within this many ms from now (0 = no deadline)
+     */
+    public void queueTask(DeferredTask task, Priority priority, long deadlineMs) {
+        queueTask(null, task, priority, deadlineMs);
+    }
+
+    public void queueTask(Object key, DeferredTask task) {
+        queueTask(key, task, Priority.NORMAL, 0L);
+    }
+
+    /**
+     * Thread-safe. If a task with the same {@code key} is still pending, this one replaces it
+     * instead of being appended; the pending task never runs.
+     * @param key coalescing key (equals/hashCode), or null to always append
+     * @param deadlineMs run within this many ms from now (0 = no deadline)
+     */
+    public void queueTask(Object key, DeferredTask task, Priority priority, long deadlineMs) {
+        if (task == null) return;
+        long deadlineNs = deadlineMs > 0 ? System.nanoTime() + deadlineMs * 1_000_000L : Long.MAX_VALUE;
+        Priority p = priority != null ? priority : Priority.NORMAL;
+        if (!submissions.offer(new Entry(key, task, p, deadlineNs))) {
+            CpuBoosterMod.LOGGER.warn("Deferred task queue full ({} pending), dropping: {}",
+                    submissions.capacity(), task.getName());
         }
     }
 
-    public void onTick() {
-        if (!worldReady || taskQueue.isEmpty()) {
+    private void acceptSubmission(Entry entry) {
+        if (entry.key != null) {
+            Entry pending = pendingByKey.get(entry.key);
+            if (pending != null) {
+                supersede(pending, entry);
+                return;
+            }
+            pendingByKey.put(entry.key, entry);
+        }
+        entry.sequence = nextSequence++;
+        queues[entry.priority.ordinal()].offer(entry);
+        queuedCount++;
+    }
+
+    /**
+     * Replace a pending keyed task with a newer submission. The entry keeps its
+     * place unless the newer one asks for a higher priority or an earlier deadline.
+     */
+    private void supersede(Entry pending, Entry newer) {
+        coalesced++;
+        boolean morePressing = newer.priority.ordinal() < pending.priority.ordinal()
+                || newer.deadlineNs < pending.deadlineNs;
+        if (!morePressing) {
+            pending.task = newer.task;
             return;
         }
+        queues[pending.priority.ordinal()].remove(pending);
+        Priority priority = newer.priority.ordinal() < pending.priority.ordinal() ? newer.priority : pending.priority;
+        Entry merged = new Entry(pending.key, newer.task, priority, Math.min(pending.deadlineNs, newer.deadlineNs));
+        merged.sequence = pending.sequence;
+        queues[priority.ordinal()].offer(merged);
+        pendingByKey.put(merged.key, merged);
+    }
 
-        tickStartNs = System.nanoTime();
-        long budgetNs = budgetMs * 1_000_000L;
+    private void finish(Entry entry) {
+        queuedCount--;
+        if (entry.key != null && pendingByKey.get(entry.key) == entry) {
+            pendingByKey.remove(entry.key);
+        }
+    }
 
-        while (!taskQueue.isEmpty()) {
-            long elapsedNs = System.nanoTime() - tickStartNs;
-            if (elapsedNs > budgetNs) {
-                // Budget exhausted
-                break;
+    /**
+     * Run a task's background phase on a worker, then apply its result on the tick thread.
+     * Thread-safe.
+     */
+    public <T> void submitAsync(AsyncTask<T> task, Lane lane) {
+        if (task == null) return;
+        final int gen = generation.get();
+        final boolean io = lane != Lane.CPU;
+        FutureTask<Void> job = new FutureTask<Void>(() -> runBackground(task, io, gen), null) {
+            @Override
+            protected void done() {
+                inFlight.remove(this);
             }
+        };
+        inFlight.add(job);
+        try {
+            (io ? ioExecutor() : cpuExecutor()).execute(job);
+        } catch (Throwable t) {
+            inFlight.remove(job);
+            publish(new Completion(task, null, t, gen));
+        }
+    }
 
-            DeferredTask task = taskQueue.peek();
-            try {
-                boolean complete = task.execute();
-                if (complete) {
-                    taskQueue.poll();
-                    CpuBoosterMod.LOGGER.debug("Deferred task completed: {}", task.getName());
-                } else {
-                    // Task needs more time; yield
-                    break;
+    private <T> void runBackground(AsyncTask<T> task, boolean io, int gen) {
+        boolean permit = false;
+        try {
+            if (io) {
+                ioPermits.acquire();
+                permit = true;
+            }
+            if (gen != generation.get()) return; // cancelled while waiting
+            T result = task.runInBackground();
+            publish(new Completion(task, result, null, gen));
+        } catch (InterruptedException e) {
+            // Cancelled; already counted by cancelAsync()
+            Thread.currentThread().interrupt();
+        } catch (Throwable t) {
+            publish(new Completion(task, null, t, gen));
+        } finally {
+            if (permit) ioPermits.release();
+        }
+    }
+
+    /**
+     * Hand a result to the tick thread. When the completion queue is full the
+     * worker waits (backpressure) rather than dropping finished work.
+     */
+    private void publish(Completion completion) {
+        while (completion.generation == generation.get() && !completions.offer(completion)) {
+            if (Thread.currentThread().isInterrupted()) return;
+            LockSupport.parkNanos(100_000L);
+        }
+    }
+
+    /**
+     * Cancel every in-flight background phase and drop results not yet applied.
+     */
+    public void cancelAsync() {
+        generation.incrementAndGet();
+        for (FutureTask<?> job : inFlight) {
+            if (job.cancel(true)) asyncCancelled.incrementAndGet();
+        }
+        inFlight.clear();
+        asyncCancelled.addAndGet(completions.drain(c -> { }));
+    }
+
+    private synchronized ExecutorService ioExecutor() {
+        if (ioExecutor == null) {
+            // One virtual thread per task; in-flight work is capped by ioPermits
+            ioExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        }
+        return ioExecutor;
+    }
+
+    private synchronized ExecutorService cpuExecutor() {
+        if (cpuExecutor == null) {
+            int threads = Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors() / 4));
+            AtomicInteger counter = new AtomicInteger();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), r -> {
+                        Thread t = new Thread(r, "cpubooster-deferred-cpu-" + counter.incrementAndGet());
+                        t.setDaemon(true);
+                        t.setPriority(Thread.MIN_PRIORITY);
+                        return t;
+                    });
+            pool.allowCoreThreadTimeOut(true);
+            cpuExecutor = pool;
+        }
+        return cpuExecutor;
+    }
+
+    /**
+     * Cancel background work and stop the worker pools (client shutdown).
+     */
+    public synchronized void shutdown() {
+        cancelAsync();
+        if (ioExecutor != null) ioExecutor.shutdownNow();
+        if (cpuExecutor != null) cpuExecutor.shutdownNow();
+        ioExecutor = null;
+        cpuExecutor = null;
+    }
+
+    public void onTick() {
+        if (!submissions.isEmpty()) {
+            submissions.drain(this::acceptSubmission);
+        }
+        if (!worldReady) return;
+        long startNs = System.nanoTime();
+        if (!completions.isEmpty()) {
+            // Always drain results, even with no budget: workers block in publish() once the queue is full
+            applyCompletions(startNs, Math.max(budgetNs, COMPLETION_FLOOR_NS));
+        }
+        if (budgetNs == 0 || queuedCount == 0) return;
+        long remainingNs = budgetNs - (System.nanoTime() - startNs);
+        if (remainingNs > 0) {
+            runWithin(remainingNs, false);
+        }
+    }
+
+    /**
+     * Run queued work in spare time outside the tick (e.g. the idle end of a frame).
+     * Unlike {@link #onTick()}, only tasks predicted to fit in {@code budgetNs} run:
+     * overdue or oversized tasks are left for the regular tick.
+     * @return true if anything ran
+     */
+    public boolean runSlack(long budgetNs) {
+        if (!submissions.isEmpty()) {
+            submissions.drain(this::acceptSubmission);
+        }
+        if (!worldReady || budgetNs <= 0 || (queuedCount == 0 && completions.isEmpty())) {
+            return false;
+        }
+        return runWithin(budgetNs, true);
+    }
+
+    /**
+     * @param strict never start a task predicted to overrun the budget
+     * @return true if anything ran
+     */
+    private boolean runWithin(long budgetNs, boolean strict) {
+        long startNs = System.nanoTime();
+        boolean ranAny = applyCompletions(startNs, budgetNs);
+        int skips = 0;
+
+        outer:
+        for (PriorityQueue<Entry> queue : queues) {
+            Entry entry;
+            while ((entry = queue.poll()) != null) {
+                long now = System.nanoTime();
+                long remainingNs = budgetNs - (now - startNs);
+                if (remainingNs <= 0) {
+                    // Budget exhausted
+                    queue.offer(entry);
+                    break outer;
                 }
+
+                CostEstimate cost = costEstimates.get(entry.task.getClass());
+                double predictedNs = cost != null ? cost.emaNs : 0.0;
+                boolean overdue = !strict && now >= entry.deadlineNs;
+                boolean neverFits = !strict && predictedNs > budgetNs && !ranAny;
+                if (predictedNs > remainingNs && !overdue && !neverFits) {
+                    // Won't fit; let smaller tasks behind it use the remaining budget
+                    carryOver.add(entry);
+                    budgetSkips++;
+                    if (++skips >= MAX_SKIPS_PER_TICK) break outer;
+                    continue;
+                }
+
+                if (overdue && entry.deadlineNs != Long.MAX_VALUE) {
+                    deadlineMisses++;
+                }
+                ranAny = true;
+                if (!runTask(entry, now)) {
+                    // Task needs more time; resume it next tick
+                    carryOver.add(entry);
+                }
+            }
+        }
+
+        for (int i = 0; i < carryOver.size(); i++) {
+            Entry e = carryOver.get(i);
+            queues[e.priority.ordinal()].offer(e);
+        }
+        carryOver.clear();
+        return ranAny;
+    }
+
+    /**
+     * Apply finished background results within the tick budget.
+     * @return true if anything ran
+     */
+    private boolean applyCompletions(long startNs, long budgetNs) {
+        boolean ran = false;
+        Completion c;
+        while ((c = completions.peek()) != null) {
+            if (ran && System.nanoTime() - startNs > budgetNs) break; // rest waits for next tick
+            completions.poll();
+            if (c.generation != generation.get()) {
+                asyncCancelled.incrementAndGet();
+                continue;
+            }
+            if (c.error != null) {
+                asyncFailed++;
+                CpuBoosterMod.LOGGER.warn("Deferred async task failed ({}): {}", c.task.getName(), c.error.getMessage());
+                CpuBoosterMod.LOGGER.debug("Deferred async task error details:", c.error);
+                continue;
+            }
+            ran = true;
+            try {
+                apply(c.task, c.result);
+                asyncApplied++;
             } catch (Throwable e) {
-                // Task crashed; remove it and log
-                taskQueue.poll();
-                CpuBoosterMod.LOGGER.warn("Deferred task failed ({}): {}", task.getName(), e.getMessage());
-                CpuBoosterMod.LOGGER.debug("Deferred task error details:", e);
+                asyncFailed++;
+                CpuBoosterMod.LOGGER.warn("Deferred async task apply failed ({}): {}", c.task.getName(), e.getMessage());
             }
         }
+        return ran;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void apply(AsyncTask<T> task, Object result) {
+        task.applyOnMainThread((T) result);
+    }
+
+    /**
+     * @return false if the task wants to continue next tick
+     */
+    private boolean runTask(Entry entry, long startNs) {
+        DeferredTask task = entry.task;
+        boolean complete;
+        try {
+            complete = task.execute();
+        } catch (Throwable e) {
+            // Task crashed; remove it and log
+            finish(entry);
+            CpuBoosterMod.LOGGER.warn("Deferred task failed ({}): {}", task.getName(), e.getMessage());
+            CpuBoosterMod.LOGGER.debug("Deferred task error details:", e);
+            return true;
+        }
+        recordCost(task.getClass(), System.nanoTime() - startNs);
+        executions++;
+        if (complete) {
+            finish(entry);
+            CpuBoosterMod.LOGGER.debug("Deferred task completed: {}", task.getName());
+        }
+        return complete;
+    }
+
+    private void recordCost(Class<?> type, long elapsedNs) {
+        CostEstimate cost = costEstimates.get(type);
+        if (cost == null) {
+            cost = new CostEstimate();
+            cost.emaNs = elapsedNs;
+            costEstimates.put(type, cost);
+        } else {
+            cost.emaNs += COST_EMA_ALPHA * (elapsedNs - cost.emaNs);
+        }
+        cost.samples++;
+    }
+
+    /**
+     * Learned average cost of a task type in ms, or -1 if it has never run.
+     */
+    public double getEstimatedCostMs(Class<?> taskType) {
+        CostEstimate cost = costEstimates.get(taskType);
+        return cost != null ? cost.emaNs / 1_000_000.0 : -1.0;
     }
 
     public int getQueuedTaskCount() {
-        return taskQueue.size();
+        return queuedCount + submissions.size();
+    }
+
+    public int getQueuedTaskCount(Priority priority) {
+        return queues[priority.ordinal()].size();
+    }
+
+    /**
+     * Tasks started after their deadline had passed.
+     */
+    public long getDeadlineMisses() {
+        return deadlineMisses;
+    }
+
+    /**
+     * Times a task was passed over because its predicted cost exceeded the remaining budget.
+     */
+    public long getBudgetSkips() {
+        return budgetSkips;
+    }
+
+    public long getExecutions() {
+        return executions;
+    }
+
+    /**
+     * Executions saved by keyed submissions superseding a pending task.
+     */
+    public long getCoalescedCount() {
+        return coalesced;
+    }
+
+    /**
+     * Highest number of submissions waiting for the tick thread at once.
+     */
+    public long getSubmissionHighWaterMark() {
+        return submissions.getHighWaterMark();
+    }
+
+    public long getRejectedSubmissions() {
+        return submissions.getRejectedCount();
+    }
+
+    /**
+     * Background phases currently queued or running.
+     */
+    public int getAsyncInFlight() {
+        return inFlight.size();
+    }
+
+    public long getAsyncApplied() {
+        return asyncApplied;
+    }
+
+    public long getAsyncCancelled() {
+        return asyncCancelled.get();
+    }
+
+    public long getAsyncFailed() {
+        return asyncFailed;
     }
 
     public void clear() {
-        taskQueue.clear();
+        submissions.clear();
+        for (PriorityQueue<Entry> queue : queues) {
+            queue.clear();
+        }
+        pendingByKey.clear();
+        queuedCount = 0;
     }
 }
@@ -2,18 +2,33 @@ package com.jellomakker.cpubooster.optimize;
 
 import com.jellomakker.cpubooster.CpuBoosterMod;
 import com.jellomakker.cpubooster.config.CpuBoosterConfig;
+import com.jellomakker.cpubooster.metrics.BottleneckClassifier;
 
 /**
  * EXPERIMENTAL: Dynamically reduces internal render resolution during frame-time spikes.
  * Can significantly boost FPS when the GPU is the bottleneck.
  * WARNING: This is experimental and disabled by default. Enable at your own risk.
  * Side effects: Slight image quality reduction when scaling is active.
+ * Only scales down when the bottleneck classifier doesn't confidently blame
+ * something resolution can't fix (CPU, GC or tick work).
  */
 public class DynamicResolutionScaler {
     private double currentScale = 1.0;
     private int framesAtScale = 0;
     private int framesSinceScaleChange = 0;
     private static final int STABILIZATION_FRAMES = 30;
+    private static final double MIN_HINT_CONFIDENCE = 0.5;
+    private boolean downscaleUseful = true;
+
+    /**
+     * Feed the latest bottleneck verdict. Lowering resolution only relieves the GPU,
+     * so scaling down is skipped when another bottleneck is reported with confidence.
+     */
+    public void setBottleneckHint(BottleneckClassifier.Bottleneck bottleneck, double confidence) {
+        downscaleUseful = confidence < MIN_HINT_CONFIDENCE
+                || bottleneck == BottleneckClassifier.Bottleneck.GPU_BOUND
+                || bottleneck == BottleneckClassifier.Bottleneck.OPTIMAL;
+    }
 
     public void onFrame(double frameTimeMs, CpuBoosterConfig cfg) {
         if (!cfg.enableResolutionScaling) {
@@ -25,7 +40,7 @@ public class DynamicResolutionScaler {
             double targetFrameTime = 16.6; // Target 60 FPS
             double spike = frameTimeMs - targetFrameTime;
 
-            if (spike > 5.0) {
+            if (spike > 5.0 && downscaleUseful) {
                 // Frame time spiked, reduce resolution
                 currentScale = currentScale * 0.95; // Reduce by 5%
                 if (currentScale < cfg.resolutionScaleMin) {
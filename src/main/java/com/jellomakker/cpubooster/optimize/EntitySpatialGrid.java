@@ -0,0 +1,221 @@
+package com.jellomakker.cpubooster.optimize;
+
+import java.util.Arrays;
+
+/**
+ * Uniform 3D grid of entity positions, rebuilt from scratch each tick.
+ *
+ * Entities are appended into parallel primitive arrays with {@link #add}, then
+ * {@link #build} buckets them by cell with a counting sort, so each cell's
+ * entities are a contiguous range of {@link #getEntityInCell}. Cells are found
+ * through an open-addressing table keyed by packed cell coordinates; only
+ * occupied cells exist. The arrays are reused between ticks and only grow, so a
+ * steady entity count allocates nothing. Not thread-safe.
+ */
+public class EntitySpatialGrid {
+    private static final int EMPTY = -1;
+
+    private final int cellShift;
+
+    // Entities, in insertion order
+    private int[] ids;
+    private double[] xs, ys, zs;
+    private boolean[] hostile;
+    private int[] cellOf;
+    private int count = 0;
+
+    // Occupied cells, in first-seen order
+    private int[] cellX, cellY, cellZ;
+    private int[] cellStart; // cellStart[c]..cellStart[c + 1] in sorted
+    private int cellCount = 0;
+    private int[] sorted;
+
+    // Cell key -> cell index
+    private long[] tableKeys;
+    private int[] tableCells;
+    private int tableMask;
+
+    /**
+     * @param cellSizeLog2 cell edge length as a power of two (4 = 16 blocks)
+     */
+    public EntitySpatialGrid(int cellSizeLog2, int expectedEntities) {
+        this.cellShift = Math.max(1, Math.min(8, cellSizeLog2));
+        int cap = Math.max(16, expectedEntities);
+        allocateEntities(cap);
+        allocateCells(cap);
+        allocateTable(Integer.highestOneBit(cap - 1) << 2);
+    }
+
+    public EntitySpatialGrid() {
+        this(4, 1024);
+    }
+
+    /**
+     * Drop all entities (keeps capacity).
+     */
+    public void clear() {
+        if (cellCount > 0) Arrays.fill(tableCells, EMPTY);
+        count = 0;
+        cellCount = 0;
+    }
+
+    public void add(int id, double x, double y, double z, boolean isHostile) {
+        if (count == ids.length) growEntities();
+        int i = count++;
+        ids[i] = id;
+        xs[i] = x;
+        ys[i] = y;
+        zs[i] = z;
+        hostile[i] = isHostile;
+
+        int cx = ((int) Math.floor(x)) >> cellShift;
+        int cy = ((int) Math.floor(y)) >> cellShift;
+        int cz = ((int) Math.floor(z)) >> cellShift;
+        long key = packCell(cx, cy, cz);
+        int b = bucketOf(key);
+        while (tableCells[b] != EMPTY && tableKeys[b] != key) {
+            b = (b + 1) & tableMask;
+        }
+        int cell = tableCells[b];
+        if (cell == EMPTY) {
+            if (cellCount == cellX.length) growCells();
+            cell = cellCount++;
+            cellX[cell] = cx;
+            cellY[cell] = cy;
+            cellZ[cell] = cz;
+            cellStart[cell] = 0;
+            tableKeys[b] = key;
+            tableCells[b] = cell;
+            if (cellCount * 2 > tableCells.length) rehash();
+        }
+        cellOf[i] = cell;
+        cellStart[cell]++; // count for now; build() turns counts into offsets
+    }
+
+    /**
+     * Bucket the added entities by cell. Call once after the last {@link #add}.
+     */
+    public void build() {
+        // Exclusive prefix sum over cell counts, then scatter
+        int offset = 0;
+        for (int c = 0; c < cellCount; c++) {
+            int n = cellStart[c];
+            cellStart[c] = offset;
+            offset += n;
+        }
+        cellStart[cellCount] = offset;
+        for (int i = 0; i < count; i++) {
+            sorted[cellStart[cellOf[i]]++] = i;
+        }
+        // Scatter advanced each start to the next cell's start; shift back
+        for (int c = cellCount; c > 0; c--) {
+            cellStart[c] = cellStart[c - 1];
+        }
+        cellStart[0] = 0;
+    }
+
+    public int getEntityCount() {
+        return count;
+    }
+
+    public int getCellCount() {
+        return cellCount;
+    }
+
+    public int getCellSize() {
+        return 1 << cellShift;
+    }
+
+    /**
+     * Minimum block coordinate of the cell along each axis.
+     */
+    public int getCellMinX(int cell) { return cellX[cell] << cellShift; }
+    public int getCellMinY(int cell) { return cellY[cell] << cellShift; }
+    public int getCellMinZ(int cell) { return cellZ[cell] << cellShift; }
+
+    public int getCellStart(int cell) {
+        return cellStart[cell];
+    }
+
+    public int getCellEnd(int cell) {
+        return cellStart[cell + 1];
+    }
+
+    /**
+     * Entity index at position {@code i} of the cell-sorted order (valid after {@link #build}).
+     */
+    public int getEntityInCell(int i) {
+        return sorted[i];
+    }
+
+    public int getId(int entity) { return ids[entity]; }
+    public double getX(int entity) { return xs[entity]; }
+    public double getY(int entity) { return ys[entity]; }
+    public double getZ(int entity) { return zs[entity]; }
+    public boolean isHostile(int entity) { return hostile[entity]; }
+
+    private static long packCell(int cx, int cy, int cz) {
+        return ((long) (cx & 0x3FFFFF) << 42) | ((long) (cz & 0x3FFFFF) << 20) | (cy & 0xFFFFF);
+    }
+
+    private int bucketOf(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & tableMask;
+    }
+
+    private void allocateEntities(int cap) {
+        ids = new int[cap];
+        xs = new double[cap];
+        ys = new double[cap];
+        zs = new double[cap];
+        hostile = new boolean[cap];
+        cellOf = new int[cap];
+        sorted = new int[cap];
+    }
+
+    private void growEntities() {
+        int cap = ids.length * 2;
+        ids = Arrays.copyOf(ids, cap);
+        xs = Arrays.copyOf(xs, cap);
+        ys = Arrays.copyOf(ys, cap);
+        zs = Arrays.copyOf(zs, cap);
+        hostile = Arrays.copyOf(hostile, cap);
+        cellOf = Arrays.copyOf(cellOf, cap);
+        sorted = new int[cap];
+    }
+
+    private void allocateCells(int cap) {
+        cellX = new int[cap];
+        cellY = new int[cap];
+        cellZ = new int[cap];
+        cellStart = new int[cap + 1];
+    }
+
+    private void growCells() {
+        int cap = cellX.length * 2;
+        cellX = Arrays.copyOf(cellX, cap);
+        cellY = Arrays.copyOf(cellY, cap);
+        cellZ = Arrays.copyOf(cellZ, cap);
+        cellStart = Arrays.copyOf(cellStart, cap + 1);
+    }
+
+    private void allocateTable(int size) {
+        tableKeys = new long[size];
+        tableCells = new int[size];
+        Arrays.fill(tableCells, EMPTY);
+        tableMask = size - 1;
+    }
+
+    private void rehash() {
+        allocateTable(tableCells.length * 2);
+        for (int c = 0; c < cellCount; c++) {
+            long key = packCell(cellX[c], cellY[c], cellZ[c]);
+            int b = bucketOf(key);
+            while (tableCells[b] != EMPTY) {
+                b = (b + 1) & tableMask;
+            }
+            tableKeys[b] = key;
+            tableCells[b] = c;
+        }
+    }
+}
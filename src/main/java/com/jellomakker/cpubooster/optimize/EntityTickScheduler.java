@@ -0,0 +1,158 @@
+package com.jellomakker.cpubooster.optimize;
+
+import com.jellomakker.cpubooster.config.CpuBoosterConfig;
+
+import java.util.Arrays;
+
+/**
+ * Distance-banded tick rate for client entities (a tick "LOD").
+ *
+ * - Inside entitySafetyRadius: every tick.
+ * - From there to entityFreezeDistance, in three equal bands: every 2nd, 4th, 8th tick.
+ * - Frozen by {@link InvisibleEntityFreezer} (far and not visible): not ticked.
+ *
+ * Entities in a reduced band are spread across ticks by id, so the per-tick cost
+ * is even rather than bursting every 8th tick. On a skipped tick the caller should
+ * still advance the entity's age and reset its previous position, so renders hold
+ * still instead of replaying the last movement.
+ *
+ * When an entity moves to a faster band it is ticked immediately, plus up to
+ * {@link #MAX_CATCH_UP_TICKS} extra ticks for the ones it missed, so its position
+ * and animation interpolation finish where the full-rate entity would be instead
+ * of snapping later.
+ *
+ * Per-entity state lives on the entity itself (see {@link LodState}). Client thread only.
+ */
+public class EntityTickScheduler {
+    /**
+     * {@link #decide} result: don't tick this entity this tick.
+     */
+    public static final int SKIP = -1;
+
+    private static final int[] BAND_INTERVALS = {1, 2, 4, 8};
+    private static final int FROZEN_BAND = BAND_INTERVALS.length;
+    private static final int MAX_CATCH_UP_TICKS = 3;
+
+    /**
+     * Tick LOD bookkeeping stored on each entity.
+     */
+    public interface LodState {
+        int cpubooster$getTickBand();
+
+        void cpubooster$setTickBand(int band);
+
+        long cpubooster$getLastTickedAt();
+
+        void cpubooster$setLastTickedAt(long tick);
+    }
+
+    private boolean enabled = false;
+    private long tick = 0;
+    private double observerX, observerY, observerZ;
+    private double safetySq, band2Sq, band3Sq;
+
+    private final int[] bandCounts = new int[FROZEN_BAND + 1];
+    private final int[] lastBandCounts = new int[FROZEN_BAND + 1];
+    private long ticksRun = 0;
+    private long ticksSkipped = 0;
+    private long catchUpTicks = 0;
+
+    /**
+     * Start a client tick. Distances this tick are measured from the given point (the player).
+     */
+    public void beginTick(CpuBoosterConfig cfg, double x, double y, double z) {
+        tick++;
+        enabled = cfg.enabled && cfg.enableEntityFreezing && cfg.entityTickLodEnabled;
+        observerX = x;
+        observerY = y;
+        observerZ = z;
+        double safety = Math.max(0.0, cfg.entitySafetyRadius);
+        double span = Math.max(0.0, cfg.entityFreezeDistance - safety) / 3.0;
+        safetySq = safety * safety;
+        band2Sq = (safety + span) * (safety + span);
+        band3Sq = (safety + 2.0 * span) * (safety + 2.0 * span);
+        System.arraycopy(bandCounts, 0, lastBandCounts, 0, bandCounts.length);
+        Arrays.fill(bandCounts, 0);
+    }
+
+    /**
+     * Decide whether to tick an entity this tick.
+     * @param frozen the entity is currently frozen by the invisible-entity freezer
+     * @return {@link #SKIP}, or the number of extra catch-up ticks to run before the normal tick
+     */
+    public int decide(LodState state, int entityId, double x, double y, double z, boolean frozen) {
+        int band = enabled ? bandFor(x, y, z, frozen) : 0;
+        int oldBand = state.cpubooster$getTickBand();
+        long last = state.cpubooster$getLastTickedAt();
+        state.cpubooster$setTickBand(band);
+        bandCounts[band]++;
+
+        if (band == FROZEN_BAND) {
+            ticksSkipped++;
+            return SKIP;
+        }
+        boolean movedUp = band < oldBand;
+        int interval = BAND_INTERVALS[band];
+        boolean due = movedUp
+                || ((tick + entityId) & (interval - 1)) == 0
+                || tick - last >= interval; // never go longer than one interval unticked
+        if (!due) {
+            ticksSkipped++;
+            return SKIP;
+        }
+
+        int catchUp = 0;
+        if (movedUp && last > 0) {
+            catchUp = (int) Math.max(0, Math.min(MAX_CATCH_UP_TICKS, tick - last - 1));
+        }
+        state.cpubooster$setLastTickedAt(tick);
+        ticksRun++;
+        catchUpTicks += catchUp;
+        return catchUp;
+    }
+
+    private int bandFor(double x, double y, double z, boolean frozen) {
+        double dx = x - observerX, dy = y - observerY, dz = z - observerZ;
+        double distSq = dx * dx + dy * dy + dz * dz;
+        if (distSq <= safetySq) return 0;
+        if (frozen) return FROZEN_BAND;
+        if (distSq <= band2Sq) return 1;
+        if (distSq <= band3Sq) return 2;
+        return 3;
+    }
+
+    /**
+     * Entities seen in a band during the last complete tick; band 4 is frozen.
+     */
+    public int getLastBandCount(int band) {
+        return lastBandCounts[band];
+    }
+
+    public static int getBandCount() {
+        return FROZEN_BAND + 1;
+    }
+
+    public static int getBandInterval(int band) {
+        return band < BAND_INTERVALS.length ? BAND_INTERVALS[band] : 0;
+    }
+
+    public long getTicksRun() {
+        return ticksRun;
+    }
+
+    public long getTicksSkipped() {
+        return ticksSkipped;
+    }
+
+    public long getCatchUpTicks() {
+        return catchUpTicks;
+    }
+
+    /**
+     * Share of entity ticks avoided so far (catch-up ticks count against the savings).
+     */
+    public double getSavedFraction() {
+        long total = ticksRun + ticksSkipped;
+        return total > 0 ? (ticksSkipped - catchUpTicks) / (double) total : 0.0;
+    }
+}
@@ -0,0 +1,102 @@
+package com.jellomakker.cpubooster.optimize;
+
+import com.jellomakker.cpubooster.config.CpuBoosterConfig;
+
+/**
+ * Per-tick budget for optional work, derived from frame headroom.
+ *
+ * The next frame is predicted as the frame-time EMA plus a variance margin
+ * (a few standard deviations of recent jitter). Whatever is left of the target
+ * frame time is headroom, and a share of it is handed to deferred work.
+ *
+ * - Smoothing windows and memory-pressure cooldowns suppress it to zero. Async
+ *   completions still drain on DeferredTaskQueue's own floor.
+ * - Without headroom only a small floor remains, so queued work is not starved forever.
+ * - The budget drops immediately when headroom shrinks but grows back gradually,
+ *   so one fast frame can't open the gate for a burst of work.
+ *
+ * The pacing throttler and smoother must be fed render frame times; the tick interval
+ * would read as a permanent spike.
+ */
+public class FrameBudgetGovernor {
+    private static final long MAX_BUDGET_NS = 20_000_000L; // DeferredTaskQueue hard limit
+    private static final double GROWTH_PER_TICK = 1.25;
+    private static final long GROWTH_STEP_NS = 500_000L;
+
+    private long budgetNs = 0;
+    private double predictedFrameMs = 0.0;
+    private double headroomMs = 0.0;
+    private String suppressedBy = null;
+    private long suppressedTicks = 0;
+
+    /**
+     * Compute the budget for this tick.
+     * @return budget in nanoseconds (0 = run no optional work)
+     */
+    public long update(CpuBoosterConfig cfg, FramePacingThrottler pacing, boolean smoothing, boolean memoryPressure) {
+        predictedFrameMs = pacing.getFrameTimeEma() + cfg.frameBudgetVarianceMargin * pacing.getFrameTimeStdDev();
+        headroomMs = cfg.frameTimeTargetMs - predictedFrameMs;
+
+        long maxNs = Math.min(MAX_BUDGET_NS, Math.max(0, cfg.frameBudgetMaxMicros) * 1_000L);
+        long floorNs = Math.min(maxNs, Math.max(0, cfg.frameBudgetMinMicros) * 1_000L);
+        if (smoothing || memoryPressure) {
+            suppressedBy = memoryPressure ? "memory pressure" : "smoothing";
+            suppressedTicks++;
+            budgetNs = 0;
+            return budgetNs;
+        }
+        suppressedBy = null;
+
+        long targetNs = (long) (Math.max(0.0, headroomMs) * cfg.frameBudgetSpendFraction * 1_000_000.0);
+        targetNs = Math.max(floorNs, Math.min(maxNs, targetNs));
+
+        if (targetNs <= budgetNs) {
+            budgetNs = targetNs;
+        } else {
+            long grown = Math.max((long) (budgetNs * GROWTH_PER_TICK), budgetNs + GROWTH_STEP_NS);
+            budgetNs = Math.min(targetNs, grown);
+        }
+        return budgetNs;
+    }
+
+    public long getBudgetNs() {
+        return budgetNs;
+    }
+
+    public double getBudgetMs() {
+        return budgetNs / 1_000_000.0;
+    }
+
+    /**
+     * Predicted cost of the next frame (EMA plus variance margin), in ms.
+     */
+    public double getPredictedFrameMs() {
+        return predictedFrameMs;
+    }
+
+    /**
+     * Target frame time minus the prediction; negative when over target.
+     */
+    public double getHeadroomMs() {
+        return headroomMs;
+    }
+
+    /**
+     * Why the budget is currently held at the floor or zero, or null if it isn't suppressed.
+     */
+    public String getSuppressedBy() {
+        return suppressedBy;
+    }
+
+    public long getSuppressedTicks() {
+        return suppressedTicks;
+    }
+
+    public void reset() {
+        budgetNs = 0;
+        predictedFrameMs = 0.0;
+        headroomMs = 0.0;
+        suppressedBy = null;
+        suppressedTicks = 0;
+    }
+}
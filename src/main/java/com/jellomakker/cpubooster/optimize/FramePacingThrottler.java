@@ -1,17 +1,21 @@
 package com.jellomakker.cpubooster.optimize;
 
 import com.jellomakker.cpubooster.CpuBoosterMod;
+import com.jellomakker.cpubooster.perf.Clock;
+import com.jellomakker.cpubooster.perf.SlidingWindowStats;
 
 /**
  * Frame pacing system inspired by VulkanMod's frame queue concepts.
  * 
  * Uses exponential moving average (EMA) to smooth jitter and detect spikes.
  * When spikes are detected, triggers adaptive throttling mode to reduce CPU overhead.
+ * A sliding window over recent frames reports jitter (stddev) and the worst recent frame.
  */
 public class FramePacingThrottler {
+    private final Clock clock;
     private final double emaAlpha = 0.3; // Smoothing factor for EMA (30% new, 70% old)
     private double frameTimeEma = 16.6; // Initial estimate: 60 FPS
-    private long lastFrameTimeMs = System.currentTimeMillis();
+    private final SlidingWindowStats window = new SlidingWindowStats(60);
     private long throttleModeEndTime = 0;
     private int spikesDetected = 0;
 
@@ -20,6 +24,11 @@ public class FramePacingThrottler {
     private long throttleCooldownMs = 750;
 
     public FramePacingThrottler() {
+        this(Clock.SYSTEM);
+    }
+
+    public FramePacingThrottler(Clock clock) {
+        this.clock = clock;
     }
 
     /**
@@ -38,12 +47,13 @@ public class FramePacingThrottler {
     public boolean onFrameTime(double frameTimeMs) {
         // Update EMA
         frameTimeEma = (emaAlpha * frameTimeMs) + ((1.0 - emaAlpha) * frameTimeEma);
+        window.push(frameTimeMs);
 
         // Detect spike
         boolean isSpike = frameTimeMs > spikeThresholdMs;
         if (isSpike) {
             spikesDetected++;
-            throttleModeEndTime = System.currentTimeMillis() + throttleCooldownMs;
+            throttleModeEndTime = clock.millis() + throttleCooldownMs;
             CpuBoosterMod.LOGGER.debug("Frame spike detected: {:.1f}ms (threshold: {:.1f}ms), entering throttle mode for {}ms",
                     frameTimeMs, spikeThresholdMs, throttleCooldownMs);
         }
@@ -55,7 +65,7 @@ public class FramePacingThrottler {
      * Check if we're currently in throttle mode due to recent spike(s).
      */
     public boolean isThrottlingActive() {
-        return System.currentTimeMillis() < throttleModeEndTime;
+        return clock.millis() < throttleModeEndTime;
     }
 
     /**
@@ -65,6 +75,27 @@ public class FramePacingThrottler {
         return frameTimeEma;
     }
 
+    /**
+     * Number of recent frames covered by the jitter window.
+     */
+    public void setWindowFrames(int frames) {
+        window.setCapacity(frames);
+    }
+
+    /**
+     * Standard deviation of frame times over the recent window (ms).
+     */
+    public double getFrameTimeStdDev() {
+        return window.getStdDev();
+    }
+
+    /**
+     * Worst frame time over the recent window (ms).
+     */
+    public double getWindowMaxFrameTime() {
+        return window.getMax();
+    }
+
     /**
      * Get the number of spikes detected so far.
      */
@@ -76,7 +107,7 @@ public class FramePacingThrottler {
      * Get time remaining in throttle cooldown (ms), or 0 if not throttling.
      */
     public long getThrottleTimeRemaining() {
-        long remaining = throttleModeEndTime - System.currentTimeMillis();
+        long remaining = throttleModeEndTime - clock.millis();
         return remaining > 0 ? remaining : 0;
     }
 
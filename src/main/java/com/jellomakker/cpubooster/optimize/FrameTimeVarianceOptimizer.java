@@ -2,16 +2,14 @@ package com.jellomakker.cpubooster.optimize;
 
 import com.jellomakker.cpubooster.CpuBoosterMod;
 import com.jellomakker.cpubooster.config.CpuBoosterConfig;
-import java.util.LinkedList;
-import java.util.Queue;
+import com.jellomakker.cpubooster.perf.SlidingWindowStats;
 
 /**
  * Tracks frame-time variance and automatically defers heavy work during spikes.
  * Detects instability in frame times and signals to defer expensive operations.
  */
 public class FrameTimeVarianceOptimizer {
-    private final Queue<Double> frameHistory = new LinkedList<>();
-    private static final int HISTORY_SIZE = 30;
+    private final SlidingWindowStats frameHistory = new SlidingWindowStats(30);
     private double averageFrameTime = 16.0;
     private boolean deferralActive = false;
     private int deferralCountdown = 0;
@@ -22,25 +20,11 @@ public class FrameTimeVarianceOptimizer {
         }
 
         try {
-            // Add frame time to history
-            frameHistory.offer(frameTimeMs);
-            if (frameHistory.size() > HISTORY_SIZE) {
-                frameHistory.poll();
-            }
-
-            // Calculate average
-            double sum = 0;
-            for (double ft : frameHistory) {
-                sum += ft;
-            }
-            averageFrameTime = sum / frameHistory.size();
-
-            // Detect variance spike
-            double variance = 0;
-            for (double ft : frameHistory) {
-                variance += Math.pow(ft - averageFrameTime, 2);
-            }
-            double stddev = Math.sqrt(variance / frameHistory.size());
+            // Add frame time to history (O(1) running mean/stddev)
+            frameHistory.setCapacity(cfg.frameTimeVarianceWindowFrames);
+            frameHistory.push(frameTimeMs);
+            averageFrameTime = frameHistory.getMean();
+            double stddev = frameHistory.getStdDev();
 
             // If spike detected, activate deferral
             if (stddev > cfg.frameTimeVarianceSpikeThreshold) {
@@ -74,4 +58,8 @@ public class FrameTimeVarianceOptimizer {
     public int getHistorySize() {
         return frameHistory.size();
     }
+
+    public double getFrameTimeStdDev() {
+        return frameHistory.getStdDev();
+    }
 }
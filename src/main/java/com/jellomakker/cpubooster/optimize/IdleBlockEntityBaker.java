@@ -0,0 +1,156 @@
+package com.jellomakker.cpubooster.optimize;
+
+import com.jellomakker.cpubooster.block.BlockEntityUpdateLimiter;
+import com.jellomakker.cpubooster.config.CpuBoosterConfig;
+import net.minecraft.block.entity.BannerBlockEntity;
+import net.minecraft.block.entity.BedBlockEntity;
+import net.minecraft.block.entity.BlockEntity;
+import net.minecraft.block.entity.ChestBlockEntity;
+import net.minecraft.block.entity.ShulkerBoxBlockEntity;
+import net.minecraft.block.entity.SignBlockEntity;
+import net.minecraft.client.render.VertexConsumerProvider;
+import net.minecraft.client.render.WorldRenderer;
+import net.minecraft.client.util.math.MatrixStack;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+
+/**
+ * Renders idle chests, signs, beds, banners and shulker boxes from a recorded mesh.
+ *
+ * Once a block entity has been idle for blockEntityIdleThreshold ticks in
+ * {@link BlockEntityColdStorage}, its renderer output is recorded one more time
+ * ({@link BakedBlockEntityMesh.Recorder}) and stored as the entry's payload. Later
+ * frames replay that mesh instead of calling the renderer, skipping model posing,
+ * sign text layout and banner pattern lookups. The mesh is dropped and the
+ * renderer used again when the block entity is marked dirty (data or state
+ * change), animates (chest or shulker lid), or the light at its position changes.
+ * Banners hold their last sway pose while baked. Recording costs a second renderer
+ * pass, so bakes take permits from the {@link BlockEntityUpdateLimiter}, which
+ * spreads them fairly when a storage room goes idle all at once.
+ *
+ * Render thread only.
+ */
+public class IdleBlockEntityBaker {
+    /** {@link #prepare} result: render normally. */
+    public static final int VANILLA = 0;
+    /** {@link #prepare} result: the baked mesh was drawn, skip the renderer. */
+    public static final int REPLAYED = 1;
+    /** {@link #prepare} result: render through {@link #startRecording}, then call {@link #finishRecording}. */
+    public static final int BAKE = 2;
+
+    private static final int MAX_BAKED_VERTICES = 4096;
+    private static final double MAX_REPLAY_DISTANCE_SQ = 64.0 * 64.0; // vanilla block entity render distance
+    private static final Object NOT_BAKEABLE = new Object();
+
+    private final BlockEntityColdStorage storage;
+    private final BlockEntityUpdateLimiter limiter;
+
+    private int replayedThisFrame = 0;
+    private int lastFrameReplayed = 0;
+    private long bakes = 0;
+    private long invalidations = 0;
+
+    public IdleBlockEntityBaker(BlockEntityColdStorage storage, BlockEntityUpdateLimiter limiter) {
+        this.storage = storage;
+        this.limiter = limiter;
+    }
+
+    public void beginFrame() {
+        lastFrameReplayed = replayedThisFrame;
+        replayedThisFrame = 0;
+    }
+
+    /**
+     * Decide how to render a block entity this frame, replaying its baked mesh if it has a valid one.
+     */
+    public int prepare(CpuBoosterConfig cfg, BlockEntity blockEntity, MatrixStack.Entry entry,
+                       VertexConsumerProvider vertexConsumers, double cameraX, double cameraY, double cameraZ) {
+        if (!cfg.enabled || !cfg.enableBlockEntityColdStorage || !cfg.bakeIdleBlockEntities) return VANILLA;
+        if (!isBakeable(blockEntity)) return VANILLA;
+        World world = blockEntity.getWorld();
+        if (world == null) return VANILLA;
+
+        BlockPos pos = blockEntity.getPos();
+        long key = pos.asLong();
+        if (isAnimating(blockEntity)) {
+            invalidate(key);
+            return VANILLA;
+        }
+        if (!storage.touch(key)) {
+            // First sight, or marked dirty since the last frame
+            invalidate(key);
+            return VANILLA;
+        }
+        if (!storage.canUseCachedData(key, cfg.blockEntityIdleThreshold)) return VANILLA;
+
+        double dx = pos.getX() + 0.5 - cameraX, dy = pos.getY() + 0.5 - cameraY, dz = pos.getZ() + 0.5 - cameraZ;
+        double distanceSq = dx * dx + dy * dy + dz * dz;
+        if (distanceSq > MAX_REPLAY_DISTANCE_SQ) return VANILLA; // let the renderer cull it
+
+        Object cached = storage.getCachedData(key);
+        if (cached == NOT_BAKEABLE) return VANILLA;
+        if (cached instanceof BakedBlockEntityMesh mesh && mesh.getLight() == WorldRenderer.getLightmapCoordinates(world, pos)) {
+            mesh.replay(entry, vertexConsumers);
+            replayedThisFrame++;
+            return REPLAYED;
+        }
+        return limiter.requestUpdate(key, distanceSq) ? BAKE : VANILLA;
+    }
+
+    public BakedBlockEntityMesh.Recorder startRecording(MatrixStack.Entry entry, VertexConsumerProvider vertexConsumers) {
+        return new BakedBlockEntityMesh.Recorder(vertexConsumers, entry, MAX_BAKED_VERTICES);
+    }
+
+    public void finishRecording(BlockEntity blockEntity, BakedBlockEntityMesh.Recorder recorder) {
+        BlockPos pos = blockEntity.getPos();
+        BakedBlockEntityMesh mesh = recorder.finish(WorldRenderer.getLightmapCoordinates(blockEntity.getWorld(), pos));
+        storage.setCachedData(pos.asLong(), mesh != null ? mesh : NOT_BAKEABLE);
+        bakes++;
+    }
+
+    /**
+     * The block entity's data or state changed; render it normally until it is idle again.
+     */
+    public void onBlockEntityChanged(BlockEntity blockEntity) {
+        if (isBakeable(blockEntity)) storage.markDirty(blockEntity.getPos().asLong());
+    }
+
+    public void onBlockEntityRemoved(BlockEntity blockEntity) {
+        if (isBakeable(blockEntity)) storage.remove(blockEntity.getPos().asLong());
+    }
+
+    private void invalidate(long key) {
+        if (storage.getCachedData(key) != null) invalidations++;
+        storage.updateEntity(key);
+        storage.setCachedData(key, null);
+    }
+
+    private static boolean isBakeable(BlockEntity blockEntity) {
+        return blockEntity instanceof ChestBlockEntity
+                || blockEntity instanceof SignBlockEntity
+                || blockEntity instanceof BedBlockEntity
+                || blockEntity instanceof BannerBlockEntity
+                || blockEntity instanceof ShulkerBoxBlockEntity;
+    }
+
+    private static boolean isAnimating(BlockEntity blockEntity) {
+        if (blockEntity instanceof ChestBlockEntity chest) return chest.getAnimationProgress(1.0f) > 0.0f;
+        if (blockEntity instanceof ShulkerBoxBlockEntity box) return box.getAnimationProgress(1.0f) > 0.0f;
+        return false;
+    }
+
+    /**
+     * Block entities drawn from a baked mesh in the last complete frame.
+     */
+    public int getLastFrameReplayed() {
+        return lastFrameReplayed;
+    }
+
+    public long getBakes() {
+        return bakes;
+    }
+
+    public long getInvalidations() {
+        return invalidations;
+    }
+}
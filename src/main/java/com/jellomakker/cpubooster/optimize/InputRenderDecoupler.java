@@ -2,16 +2,16 @@ package com.jellomakker.cpubooster.optimize;
 
 import com.jellomakker.cpubooster.CpuBoosterMod;
 import com.jellomakker.cpubooster.config.CpuBoosterConfig;
-import java.util.LinkedList;
-import java.util.Queue;
 
 /**
  * Decouples input processing from render loop.
  * Mac's input handling can sometimes stall the render thread.
  * This defers expensive input operations to the end of the tick.
+ * Tasks may be deferred from any thread; they are handed over through a
+ * lock-free queue and run in one batch on the tick thread.
  */
 public class InputRenderDecoupler {
-    private final Queue<InputTask> deferredTasks = new LinkedList<>();
+    private final MpscArrayQueue<InputTask> deferredTasks = new MpscArrayQueue<>(1024);
 
     /**
      * Represents a deferred input task.
@@ -26,32 +26,38 @@ public class InputRenderDecoupler {
             return;
         }
 
+        // Process deferred input tasks at end of tick; tasks queued while draining wait for the next tick
+        deferredTasks.drain(this::runTask);
+    }
+
+    private void runTask(InputTask task) {
         try {
-            // Process deferred input tasks at end of tick
-            while (!deferredTasks.isEmpty()) {
-                InputTask task = deferredTasks.poll();
-                if (task != null) {
-                    task.execute();
-                }
-            }
+            task.execute();
         } catch (Exception e) {
             CpuBoosterMod.LOGGER.warn("InputRenderDecoupler error: {}", e.getMessage());
         }
     }
 
     /**
-     * Queue an input task for deferred execution.
+     * Queue an input task for deferred execution. Thread-safe.
+     * @return false if the queue is full and the task was not queued
      */
-    public void deferInputTask(InputTask task) {
-        if (task != null) {
-            deferredTasks.offer(task);
-        }
+    public boolean deferInputTask(InputTask task) {
+        return task != null && deferredTasks.offer(task);
     }
 
     public int getDeferredTaskCount() {
         return deferredTasks.size();
     }
 
+    public long getHighWaterMark() {
+        return deferredTasks.getHighWaterMark();
+    }
+
+    public long getRejectedCount() {
+        return deferredTasks.getRejectedCount();
+    }
+
     public void clear() {
         deferredTasks.clear();
     }
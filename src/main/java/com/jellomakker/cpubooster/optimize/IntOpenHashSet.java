@@ -0,0 +1,138 @@
+package com.jellomakker.cpubooster.optimize;
+
+import java.util.Arrays;
+
+/**
+ * Set of {@code int}s in a single open-addressing (linear probing) array.
+ *
+ * 0 marks a free slot; the value 0 itself is tracked by a separate flag, so every
+ * int can be stored. Removal uses backward-shift deletion, so there are no
+ * tombstones and lookups stay short after heavy churn. Load factor is kept at
+ * or below 0.5. Nothing is allocated except when the table grows. Not thread-safe.
+ */
+public class IntOpenHashSet {
+    private int[] table;
+    private int mask;
+    private int size = 0; // excluding zero
+    private boolean containsZero = false;
+
+    public IntOpenHashSet(int expectedSize) {
+        allocate(tableSizeFor(Math.max(4, expectedSize)));
+    }
+
+    /**
+     * @return true if the value was not already present
+     */
+    public boolean add(int value) {
+        if (value == 0) {
+            if (containsZero) return false;
+            containsZero = true;
+            return true;
+        }
+        int b = bucketOf(value);
+        int cur;
+        while ((cur = table[b]) != 0) {
+            if (cur == value) return false;
+            b = (b + 1) & mask;
+        }
+        table[b] = value;
+        if (++size * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the value was present
+     */
+    public boolean remove(int value) {
+        if (value == 0) {
+            boolean had = containsZero;
+            containsZero = false;
+            return had;
+        }
+        int b = bucketOf(value);
+        int cur;
+        while ((cur = table[b]) != 0) {
+            if (cur == value) {
+                shiftBack(b);
+                size--;
+                return true;
+            }
+            b = (b + 1) & mask;
+        }
+        return false;
+    }
+
+    public boolean contains(int value) {
+        if (value == 0) return containsZero;
+        int b = bucketOf(value);
+        int cur;
+        while ((cur = table[b]) != 0) {
+            if (cur == value) return true;
+            b = (b + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size + (containsZero ? 1 : 0);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public void clear() {
+        if (size > 0) Arrays.fill(table, 0);
+        size = 0;
+        containsZero = false;
+    }
+
+    private int bucketOf(int value) {
+        int h = value * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * Free slot {@code bucket} and move later members of the probe run back into the hole.
+     */
+    private void shiftBack(int bucket) {
+        int hole = bucket;
+        int b = (bucket + 1) & mask;
+        int cur;
+        while ((cur = table[b]) != 0) {
+            int home = bucketOf(cur);
+            // Move b into the hole unless its home lies cyclically in (hole, b]
+            boolean homeBetween = hole <= b ? (hole < home && home <= b) : (hole < home || home <= b);
+            if (!homeBetween) {
+                table[hole] = cur;
+                hole = b;
+            }
+            b = (b + 1) & mask;
+        }
+        table[hole] = 0;
+    }
+
+    private void rehash(int newTableSize) {
+        int[] old = table;
+        allocate(newTableSize);
+        for (int value : old) {
+            if (value == 0) continue;
+            int b = bucketOf(value);
+            while (table[b] != 0) {
+                b = (b + 1) & mask;
+            }
+            table[b] = value;
+        }
+    }
+
+    private void allocate(int tableSize) {
+        table = new int[tableSize];
+        mask = tableSize - 1;
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        return Integer.highestOneBit(expectedSize - 1) << 2;
+    }
+}
@@ -2,16 +2,36 @@ package com.jellomakker.cpubooster.optimize;
 
 import com.jellomakker.cpubooster.CpuBoosterMod;
 import com.jellomakker.cpubooster.config.CpuBoosterConfig;
-import java.util.HashSet;
-import java.util.Set;
 
 /**
  * Freezes entity updates for entities that are far away and not visible.
  * Reduces entity tick overhead significantly, especially on multiplayer servers.
  * Safety: Never freezes entities within configurable safety radius.
+ *
+ * The frozen set is a primitive {@link IntOpenHashSet}, so {@link #isFrozen} is an
+ * allocation-free probe of one int array. Once per tick {@link #evaluate} rebuilds
+ * the whole set from an {@link EntitySpatialGrid} of client entities: each grid cell
+ * is tested against the freeze distance and the camera's view cone as a whole, so
+ * most cells are settled (all kept, or all frozen) without looking at their
+ * entities one by one. Only cells straddling a boundary are checked per entity.
+ * The new set is built on the side and swapped in, so lookups never see it half built.
  */
 public class InvisibleEntityFreezer {
-    private final Set<Integer> frozenEntityIds = new HashSet<>();
+    private static final double ENTITY_RADIUS = 2.0; // generous bounding sphere for mobs
+
+    private IntOpenHashSet frozenEntityIds = new IntOpenHashSet(1024);
+    private IntOpenHashSet building = new IntOpenHashSet(1024);
+    private final EntitySpatialGrid grid = new EntitySpatialGrid();
+
+    // Camera view cone (valid once hasCamera is set)
+    private boolean hasCamera = false;
+    private double camX, camY, camZ;
+    private double viewX, viewY, viewZ;
+    private double cosHalfFov;
+
+    private int lastCellsSettled = 0;
+    private int lastCellsScanned = 0;
+    private long lastEvaluateNs = 0;
 
     public void onTick(CpuBoosterConfig cfg) {
         if (!cfg.enableEntityFreezing) {
@@ -20,15 +40,123 @@ public class InvisibleEntityFreezer {
         }
 
         try {
-            // Actual entity iteration and freezing would be done via event hooks
-            // This class provides the decision logic and frozen entity tracking
+            // Entities are collected into getGrid() by the tick handler and evaluated there
         } catch (Exception e) {
             CpuBoosterMod.LOGGER.warn("InvisibleEntityFreezer error: {}", e.getMessage());
         }
     }
 
+    /**
+     * Grid to fill with this tick's entities before calling {@link #evaluate}.
+     */
+    public EntitySpatialGrid getGrid() {
+        return grid;
+    }
+
+    /**
+     * Camera used for the visibility test.
+     * @param yaw camera yaw in degrees (Minecraft convention)
+     * @param pitch camera pitch in degrees
+     * @param fov vertical field of view in degrees
+     */
+    public void setCamera(double x, double y, double z, float yaw, float pitch, float fov, int width, int height) {
+        camX = x;
+        camY = y;
+        camZ = z;
+        double yawRad = Math.toRadians(yaw);
+        double pitchRad = Math.toRadians(pitch);
+        double cosPitch = Math.cos(pitchRad);
+        viewX = -Math.sin(yawRad) * cosPitch;
+        viewY = -Math.sin(pitchRad);
+        viewZ = Math.cos(yawRad) * cosPitch;
+        // Use the wider of the vertical and horizontal half-angles
+        double aspect = height > 0 ? Math.max(1.0, (double) width / height) : 1.0;
+        cosHalfFov = Math.cos(Math.atan(Math.tan(Math.toRadians(fov) * 0.5) * aspect));
+        hasCamera = true;
+    }
+
+    /**
+     * Rebuild the frozen set from the entities in {@link #getGrid()}.
+     * Distances are measured from the player; visibility from the camera.
+     * @return number of frozen entities
+     */
+    public int evaluate(CpuBoosterConfig cfg, double playerX, double playerY, double playerZ) {
+        long start = System.nanoTime();
+        grid.build();
+        IntOpenHashSet next = building;
+        next.clear();
+        lastCellsSettled = 0;
+        lastCellsScanned = 0;
+
+        if (cfg.enableEntityFreezing) {
+            double freezeDist = Math.max(cfg.entitySafetyRadius, cfg.entityFreezeDistance);
+            double freezeDistSq = freezeDist * freezeDist;
+            boolean freezeHostile = cfg.freezeHostileMobs;
+            double half = grid.getCellSize() * 0.5;
+            double cellRadius = half * Math.sqrt(3.0);
+
+            for (int c = 0, cells = grid.getCellCount(); c < cells; c++) {
+                double cx = grid.getCellMinX(c) + half;
+                double cy = grid.getCellMinY(c) + half;
+                double cz = grid.getCellMinZ(c) + half;
+                double dist = distance(cx, cy, cz, playerX, playerY, playerZ);
+                if (dist + cellRadius <= freezeDist) {
+                    // Whole cell within freeze distance: nothing here freezes
+                    lastCellsSettled++;
+                    continue;
+                }
+                int from = grid.getCellStart(c);
+                int to = grid.getCellEnd(c);
+                if (dist - cellRadius > freezeDist && !mayBeVisible(cx, cy, cz, cellRadius)) {
+                    // Whole cell far away and outside the view cone
+                    lastCellsSettled++;
+                    for (int i = from; i < to; i++) {
+                        int e = grid.getEntityInCell(i);
+                        if (freezeHostile || !grid.isHostile(e)) next.add(grid.getId(e));
+                    }
+                    continue;
+                }
+                lastCellsScanned++;
+                for (int i = from; i < to; i++) {
+                    int e = grid.getEntityInCell(i);
+                    if (!freezeHostile && grid.isHostile(e)) continue;
+                    double ex = grid.getX(e), ey = grid.getY(e), ez = grid.getZ(e);
+                    double dx = ex - playerX, dy = ey - playerY, dz = ez - playerZ;
+                    if (dx * dx + dy * dy + dz * dz <= freezeDistSq) continue;
+                    if (mayBeVisible(ex, ey, ez, ENTITY_RADIUS)) continue;
+                    next.add(grid.getId(e));
+                }
+            }
+        }
+
+        building = frozenEntityIds;
+        frozenEntityIds = next;
+        grid.clear();
+        lastEvaluateNs = System.nanoTime() - start;
+        return next.size();
+    }
+
+    /**
+     * Conservative view-cone test of a bounding sphere. Without a camera everything counts as visible.
+     */
+    private boolean mayBeVisible(double x, double y, double z, double radius) {
+        if (!hasCamera) return true;
+        double dx = x - camX, dy = y - camY, dz = z - camZ;
+        double dist = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        if (dist <= radius) return true;
+        double cosAngle = (dx * viewX + dy * viewY + dz * viewZ) / dist;
+        // Small-angle widening of the cone by the sphere's angular radius
+        return cosAngle >= cosHalfFov - radius / dist;
+    }
+
+    private static double distance(double ax, double ay, double az, double bx, double by, double bz) {
+        double dx = ax - bx, dy = ay - by, dz = az - bz;
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
     /**
      * Determines if an entity should be frozen (updates deferred).
+     * Single-entity form of the rule {@link #evaluate} applies in bulk.
      * @param distanceFromPlayer distance in blocks
      * @param isVisible whether entity is in camera frustum
      * @param isHostile whether entity is a hostile mob
@@ -58,6 +186,9 @@ public class InvisibleEntityFreezer {
         return distanceFromPlayer > cfg.entityFreezeDistance;
     }
 
+    /**
+     * Manually freeze an entity. The next {@link #evaluate} replaces the whole set.
+     */
     public void registerFrozenEntity(int entityId) {
         frozenEntityIds.add(entityId);
     }
@@ -77,4 +208,22 @@ public class InvisibleEntityFreezer {
     public int getFrozenCount() {
         return frozenEntityIds.size();
     }
+
+    /**
+     * Cells decided as a whole in the last evaluation.
+     */
+    public int getLastCellsSettled() {
+        return lastCellsSettled;
+    }
+
+    /**
+     * Cells that needed a per-entity check in the last evaluation.
+     */
+    public int getLastCellsScanned() {
+        return lastCellsScanned;
+    }
+
+    public double getLastEvaluateMicros() {
+        return lastEvaluateNs / 1_000.0;
+    }
 }
@@ -0,0 +1,315 @@
+package com.jellomakker.cpubooster.optimize;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Binary min-heap of {@code long} keys ordered by a {@code double} priority,
+ * with an index from key to heap slot so a key can be found, re-prioritized
+ * or removed in O(log n).
+ *
+ * Keys and priorities live in parallel primitive arrays; the index is an
+ * open-addressing (linear probing) table with backward-shift deletion, so no
+ * tombstones build up. Nothing is allocated per operation - only when the heap
+ * outgrows its capacity, which then doubles. Each key is present at most once.
+ * Not thread-safe.
+ */
+public class LongIndexedMinHeap {
+    private static final int EMPTY = -1;
+
+    /**
+     * Computes a new priority for a key during {@link #rescoreAll}.
+     */
+    public interface KeyScorer {
+        double score(long key);
+    }
+
+    // Heap, in heap order
+    private long[] keys;
+    private double[] priorities;
+    private int size = 0;
+
+    // Index: key -> heap slot. slots[i] == EMPTY marks a free bucket.
+    private long[] tableKeys;
+    private int[] slots;
+    private int tableMask;
+
+    public LongIndexedMinHeap(int initialCapacity) {
+        int cap = Math.max(16, initialCapacity);
+        keys = new long[cap];
+        priorities = new double[cap];
+        allocateTable(tableSizeFor(cap));
+    }
+
+    /**
+     * Insert {@code key}, or change its priority if it is already present.
+     * @return true if the key was newly inserted
+     */
+    public boolean insertOrUpdate(long key, double priority) {
+        int bucket = findBucket(key);
+        if (slots[bucket] != EMPTY) {
+            setPriorityAt(slots[bucket], priority);
+            return false;
+        }
+        if (size == keys.length) {
+            grow();
+            bucket = findBucket(key);
+        }
+        int i = size++;
+        keys[i] = key;
+        priorities[i] = priority;
+        tableKeys[bucket] = key;
+        slots[bucket] = i;
+        siftUp(i);
+        return true;
+    }
+
+    /**
+     * Change the priority of a key already in the heap.
+     * @return false if the key is not present
+     */
+    public boolean updatePriority(long key, double priority) {
+        int slot = slots[findBucket(key)];
+        if (slot == EMPTY) return false;
+        setPriorityAt(slot, priority);
+        return true;
+    }
+
+    /**
+     * @return false if the key is not present
+     */
+    public boolean remove(long key) {
+        int bucket = findBucket(key);
+        int slot = slots[bucket];
+        if (slot == EMPTY) return false;
+        removeBucket(bucket);
+        removeSlot(slot);
+        return true;
+    }
+
+    public boolean contains(long key) {
+        return slots[findBucket(key)] != EMPTY;
+    }
+
+    /**
+     * Priority of {@code key}, or NaN if it is not present.
+     */
+    public double getPriority(long key) {
+        int slot = slots[findBucket(key)];
+        return slot != EMPTY ? priorities[slot] : Double.NaN;
+    }
+
+    /**
+     * Key with the lowest priority value.
+     * @throws NoSuchElementException if the heap is empty
+     */
+    public long peekKey() {
+        if (size == 0) throw new NoSuchElementException();
+        return keys[0];
+    }
+
+    public double peekPriority() {
+        if (size == 0) throw new NoSuchElementException();
+        return priorities[0];
+    }
+
+    /**
+     * Remove and return the key with the lowest priority value.
+     * @throws NoSuchElementException if the heap is empty
+     */
+    public long pollKey() {
+        if (size == 0) throw new NoSuchElementException();
+        long key = keys[0];
+        removeBucket(findBucket(key));
+        removeSlot(0);
+        return key;
+    }
+
+    /**
+     * Recompute every priority in one linear pass over the key array, then
+     * restore heap order bottom-up (O(n), cheaper than n individual updates).
+     * The index is rebuilt once at the end rather than on every move.
+     */
+    public void rescoreAll(KeyScorer scorer) {
+        long[] k = keys;
+        double[] p = priorities;
+        for (int i = 0; i < size; i++) {
+            p[i] = scorer.score(k[i]);
+        }
+        for (int i = (size >>> 1) - 1; i >= 0; i--) {
+            siftDownUnindexed(i);
+        }
+        for (int i = 0; i < size; i++) {
+            slots[findBucket(k[i])] = i;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        if (size * 4 > slots.length) {
+            Arrays.fill(slots, EMPTY);
+        } else {
+            // Few entries: remove them one by one (keeps probe runs intact) rather than sweeping the table
+            for (int i = 0; i < size; i++) {
+                removeBucket(findBucket(keys[i]));
+            }
+        }
+        size = 0;
+    }
+
+    // ===== heap =====
+
+    private void setPriorityAt(int slot, double priority) {
+        double old = priorities[slot];
+        priorities[slot] = priority;
+        if (priority < old) {
+            siftUp(slot);
+        } else if (priority > old) {
+            siftDown(slot);
+        }
+    }
+
+    private void removeSlot(int slot) {
+        int last = --size;
+        if (slot == last) return;
+        long movedKey = keys[last];
+        double movedPriority = priorities[last];
+        keys[slot] = movedKey;
+        priorities[slot] = movedPriority;
+        slots[findBucket(movedKey)] = slot;
+        // The moved element may belong above or below its new slot
+        if (slot > 0 && movedPriority < priorities[(slot - 1) >>> 1]) {
+            siftUp(slot);
+        } else {
+            siftDown(slot);
+        }
+    }
+
+    private void siftUp(int i) {
+        long key = keys[i];
+        double priority = priorities[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (priorities[parent] <= priority) break;
+            place(i, keys[parent], priorities[parent]);
+            i = parent;
+        }
+        place(i, key, priority);
+    }
+
+    private void siftDown(int i) {
+        long key = keys[i];
+        double priority = priorities[i];
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < size && priorities[right] < priorities[child]) child = right;
+            if (priority <= priorities[child]) break;
+            place(i, keys[child], priorities[child]);
+            i = child;
+        }
+        place(i, key, priority);
+    }
+
+    /**
+     * {@link #siftDown} without index maintenance; the caller must re-index afterwards.
+     */
+    private void siftDownUnindexed(int i) {
+        long[] k = keys;
+        double[] p = priorities;
+        long key = k[i];
+        double priority = p[i];
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < size && p[right] < p[child]) child = right;
+            if (priority <= p[child]) break;
+            k[i] = k[child];
+            p[i] = p[child];
+            i = child;
+        }
+        k[i] = key;
+        p[i] = priority;
+    }
+
+    private void place(int slot, long key, double priority) {
+        keys[slot] = key;
+        priorities[slot] = priority;
+        slots[findBucket(key)] = slot;
+    }
+
+    private void grow() {
+        int cap = keys.length * 2;
+        long[] newKeys = new long[cap];
+        double[] newPriorities = new double[cap];
+        System.arraycopy(keys, 0, newKeys, 0, size);
+        System.arraycopy(priorities, 0, newPriorities, 0, size);
+        keys = newKeys;
+        priorities = newPriorities;
+        allocateTable(tableSizeFor(cap));
+        for (int i = 0; i < size; i++) {
+            int bucket = findBucket(keys[i]);
+            tableKeys[bucket] = keys[i];
+            slots[bucket] = i;
+        }
+    }
+
+    // ===== index =====
+
+    private static int tableSizeFor(int heapCapacity) {
+        // Load factor <= 0.5 keeps probe sequences short
+        return Integer.highestOneBit(heapCapacity - 1) << 2;
+    }
+
+    private void allocateTable(int tableSize) {
+        tableKeys = new long[tableSize];
+        slots = new int[tableSize];
+        Arrays.fill(slots, EMPTY);
+        tableMask = tableSize - 1;
+    }
+
+    private int bucketOf(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & tableMask;
+    }
+
+    /**
+     * Bucket holding {@code key}, or the free bucket where it would be inserted.
+     */
+    private int findBucket(long key) {
+        int b = bucketOf(key);
+        while (slots[b] != EMPTY && tableKeys[b] != key) {
+            b = (b + 1) & tableMask;
+        }
+        return b;
+    }
+
+    /**
+     * Free a bucket and shift later members of the probe run back, so lookups never need tombstones.
+     */
+    private void removeBucket(int bucket) {
+        int hole = bucket;
+        int b = (bucket + 1) & tableMask;
+        while (slots[b] != EMPTY) {
+            int home = bucketOf(tableKeys[b]);
+            // Move b into the hole unless its home lies cyclically in (hole, b]
+            boolean homeBetween = hole <= b ? (hole < home && home <= b) : (hole < home || home <= b);
+            if (!homeBetween) {
+                tableKeys[hole] = tableKeys[b];
+                slots[hole] = slots[b];
+                hole = b;
+            }
+            b = (b + 1) & tableMask;
+        }
+        slots[hole] = EMPTY;
+    }
+}
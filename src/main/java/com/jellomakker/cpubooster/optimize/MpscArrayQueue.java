@@ -0,0 +1,147 @@
+package com.jellomakker.cpubooster.optimize;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Bounded, array-backed, lock-free multi-producer/single-consumer queue.
+ *
+ * Producers on any thread claim a slot by CAS on the producer index and then
+ * publish the element with a release store; nothing is allocated per element.
+ * The single consumer (the client tick thread) reads slots in order, so a slot
+ * that has been claimed but not yet published simply ends the current drain.
+ * {@link #offer} returns false when the queue is full rather than blocking.
+ * Depth, high-water mark and rejected offers are tracked for diagnostics.
+ */
+public class MpscArrayQueue<E> {
+    private final AtomicReferenceArray<E> buffer;
+    private final int mask;
+    private final AtomicLong producerIndex = new AtomicLong(0);
+    private final AtomicLong consumerIndex = new AtomicLong(0); // written only by the consumer
+    private final AtomicLong highWaterMark = new AtomicLong(0);
+    private final AtomicLong rejected = new AtomicLong(0);
+
+    /**
+     * @param capacity rounded up to a power of two
+     */
+    public MpscArrayQueue(int capacity) {
+        int cap = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.buffer = new AtomicReferenceArray<>(cap);
+        this.mask = cap - 1;
+    }
+
+    /**
+     * Enqueue from any thread.
+     * @return false if the queue is full (the element is not added)
+     */
+    public boolean offer(E element) {
+        if (element == null) throw new NullPointerException();
+        long p;
+        do {
+            p = producerIndex.get();
+            if (p - consumerIndex.get() > mask) {
+                rejected.incrementAndGet();
+                return false;
+            }
+        } while (!producerIndex.compareAndSet(p, p + 1));
+        buffer.lazySet((int) (p & mask), element);
+
+        long depth = p + 1 - consumerIndex.get();
+        long high = highWaterMark.get();
+        while (depth > high && !highWaterMark.compareAndSet(high, depth)) {
+            high = highWaterMark.get();
+        }
+        return true;
+    }
+
+    /**
+     * Dequeue the next published element, or null. Consumer thread only.
+     */
+    public E poll() {
+        long c = consumerIndex.get();
+        int slot = (int) (c & mask);
+        E element = buffer.get(slot);
+        if (element == null) return null; // empty, or next slot claimed but not yet published
+        buffer.lazySet(slot, null);
+        consumerIndex.lazySet(c + 1);
+        return element;
+    }
+
+    /**
+     * Next published element without removing it, or null. Consumer thread only.
+     */
+    public E peek() {
+        return buffer.get((int) (consumerIndex.get() & mask));
+    }
+
+    /**
+     * Hand up to {@code limit} elements to {@code sink} in one pass. Consumer thread only.
+     * Elements offered by the sink itself are left for the next drain once the limit is reached.
+     * @return number of elements drained
+     */
+    public int drain(Consumer<? super E> sink, int limit) {
+        long c = consumerIndex.get();
+        int drained = 0;
+        while (drained < limit) {
+            int slot = (int) (c & mask);
+            E element = buffer.get(slot);
+            if (element == null) break;
+            buffer.lazySet(slot, null);
+            consumerIndex.lazySet(++c);
+            drained++;
+            sink.accept(element);
+        }
+        return drained;
+    }
+
+    /**
+     * Drain everything currently in the queue. Consumer thread only.
+     */
+    public int drain(Consumer<? super E> sink) {
+        return drain(sink, size());
+    }
+
+    /**
+     * Discard all published elements. Consumer thread only.
+     */
+    public void clear() {
+        while (poll() != null) {
+            // discard
+        }
+    }
+
+    /**
+     * Approximate number of queued elements (exact when called from the consumer with no concurrent offers).
+     */
+    public int size() {
+        long size = producerIndex.get() - consumerIndex.get();
+        return (int) Math.max(0, Math.min(size, mask + 1));
+    }
+
+    public boolean isEmpty() {
+        return producerIndex.get() == consumerIndex.get();
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Highest depth observed since creation (or the last {@link #resetHighWaterMark()}).
+     */
+    public long getHighWaterMark() {
+        return highWaterMark.get();
+    }
+
+    public void resetHighWaterMark() {
+        highWaterMark.set(size());
+    }
+
+    /**
+     * Offers refused because the queue was full.
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+}
@@ -2,39 +2,45 @@ package com.jellomakker.cpubooster.optimize;
 
 import com.jellomakker.cpubooster.CpuBoosterMod;
 import com.jellomakker.cpubooster.config.CpuBoosterConfig;
-import java.util.PriorityQueue;
-import java.util.Comparator;
+import com.jellomakker.cpubooster.state.StateChangeCache;
 
 /**
  * Smart chunk rebuild throttling that prioritizes chunks by distance and direction.
  * Ensures closer chunks rebuild first, reducing perceived latency.
+ *
+ * Pending chunks are kept in a {@link LongIndexedMinHeap} keyed by chunk hash, so
+ * re-queueing a chunk updates its priority instead of adding a duplicate, and
+ * enqueue/poll/remove don't allocate.
+ *
+ * Chunk hashes are packed section positions (ChunkSectionPos.asLong). When the
+ * camera moves or turns significantly, every pending section is re-scored from
+ * the new camera in one pass over the heap's arrays: distance, angle to the view
+ * vector, and the share of the screen the section would cover. Sections the
+ * camera has turned away from sink instead of being rebuilt first.
+ *
+ * The queue is filled by {@link ChunkRebuildGate} with the sections it defers, and
+ * drained by it in heap order as the rebuild budget allows.
  */
 public class SmartChunkRebuildThrottler {
-    private static class ChunkTask {
-        long chunkHash;
-        double distanceFromPlayer;
-        boolean inFrontOfPlayer;
-
-        ChunkTask(long hash, double dist, boolean inFront) {
-            this.chunkHash = hash;
-            this.distanceFromPlayer = dist;
-            this.inFrontOfPlayer = inFront;
-        }
-    }
+    private static final double IN_FRONT_FACTOR = 0.7; // Bonus for chunks in front of camera
+    private static final double SECTION_RADIUS = 8.0 * Math.sqrt(3.0); // bounding sphere of a 16^3 section
+    private static final double COVERAGE_WEIGHT = 0.5;
 
-    // Priority queue: closer chunks and chunks in front have higher priority
-    private final PriorityQueue<ChunkTask> chunkQueue = new PriorityQueue<>(
-            Comparator.<ChunkTask>comparingDouble(t -> {
-                // Prioritize chunks closer to player
-                double priority = t.distanceFromPlayer;
-                // Bonus for chunks in front of camera
-                if (t.inFrontOfPlayer) priority *= 0.7;
-                return priority;
-            })
-    );
+    // Lower value = rebuilt sooner
+    private final LongIndexedMinHeap chunkQueue = new LongIndexedMinHeap(4096);
 
     private int rebuildsThisTick = 0;
 
+    // Camera used for scoring (valid once hasCamera is set)
+    private boolean hasCamera = false;
+    private double camX, camY, camZ;
+    private double viewX, viewY, viewZ;
+    private double cosHalfFov, tanHalfFov;
+    private final LongIndexedMinHeap.KeyScorer sectionScorer = this::scoreSection;
+
+    private long rescoreCount = 0;
+    private long lastRescoreNs = 0;
+
     public void reset() {
         rebuildsThisTick = 0;
     }
@@ -53,8 +59,12 @@ public class SmartChunkRebuildThrottler {
         }
     }
 
+    /**
+     * Legacy per-tick count cap. With the rebuild controller enabled admission is
+     * decided by {@link ChunkRebuildController} alone and this always allows.
+     */
     public boolean canRebuildChunk(CpuBoosterConfig cfg) {
-        if (!cfg.enableSmartChunkRebuild) {
+        if (!cfg.enableSmartChunkRebuild || cfg.chunkRebuildControllerEnabled) {
             return true;
         }
         return rebuildsThisTick < cfg.smartChunkMaxRebuildsPerTick;
@@ -64,17 +74,156 @@ public class SmartChunkRebuildThrottler {
         rebuildsThisTick++;
     }
 
-    public void enqueueChunk(long chunkHash, double distanceFromPlayer, boolean inFrontOfCamera) {
-        if (chunkQueue.size() < 100) { // Prevent unbounded queue growth
-            chunkQueue.offer(new ChunkTask(chunkHash, distanceFromPlayer, inFrontOfCamera));
+    /**
+     * Feed the current camera. If {@code changeCache} reports a significant move or turn,
+     * all pending sections are re-scored.
+     * @param yaw camera yaw in degrees (Minecraft convention)
+     * @param pitch camera pitch in degrees
+     * @param fov vertical field of view in degrees
+     * @return true if the queue was re-scored
+     */
+    public boolean onCamera(StateChangeCache changeCache, double x, double y, double z, float yaw, float pitch,
+            float fov, int width, int height) {
+        if (!changeCache.hasSignificantChange(x, y, z, yaw, pitch, fov, width, height)) {
+            return false;
         }
+        setCamera(x, y, z, yaw, pitch, fov, width, height);
+        if (chunkQueue.isEmpty()) return false;
+
+        long start = System.nanoTime();
+        chunkQueue.rescoreAll(sectionScorer);
+        lastRescoreNs = System.nanoTime() - start;
+        rescoreCount++;
+        return true;
+    }
+
+    /**
+     * Set the camera new sections are scored against, without re-scoring the queue.
+     */
+    public void setCamera(double x, double y, double z, float yaw, float pitch, float fov, int width, int height) {
+        camX = x;
+        camY = y;
+        camZ = z;
+        double yawRad = Math.toRadians(yaw);
+        double pitchRad = Math.toRadians(pitch);
+        double cosPitch = Math.cos(pitchRad);
+        viewX = -Math.sin(yawRad) * cosPitch;
+        viewY = -Math.sin(pitchRad);
+        viewZ = Math.cos(yawRad) * cosPitch;
+        // Use the wider of the vertical and horizontal half-angles
+        double aspect = height > 0 ? Math.max(1.0, (double) width / height) : 1.0;
+        double halfFov = Math.atan(Math.tan(Math.toRadians(fov) * 0.5) * aspect);
+        cosHalfFov = Math.cos(halfFov);
+        tanHalfFov = Math.tan(halfFov);
+        hasCamera = true;
     }
 
-    public ChunkTask getNextChunk() {
-        return chunkQueue.poll();
+    /**
+     * Lower is rebuilt sooner. No trig per section: one sqrt, the rest is arithmetic.
+     */
+    private double scoreSection(long sectionPos) {
+        double dx = ((unpackX(sectionPos) << 4) + 8) - camX;
+        double dy = ((unpackY(sectionPos) << 4) + 8) - camY;
+        double dz = ((unpackZ(sectionPos) << 4) + 8) - camZ;
+        double dist = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        if (dist <= SECTION_RADIUS) return 0.0; // camera is in or touching it
+
+        double cosAngle = (dx * viewX + dy * viewY + dz * viewZ) / dist;
+        double angularRadius = SECTION_RADIUS / dist; // small-angle approximation
+        // Visible if any part of the bounding sphere is inside the view cone
+        boolean inView = cosAngle >= cosHalfFov - angularRadius;
+        // 1.0 just outside the cone, up to 3.0 straight behind
+        double directionFactor = inView ? IN_FRONT_FACTOR : 2.0 - cosAngle;
+        double coverage = angularRadius / tanHalfFov;
+        coverage = Math.min(1.0, coverage * coverage);
+        return dist * directionFactor * (1.0 - COVERAGE_WEIGHT * coverage);
+    }
+
+    private static int unpackX(long sectionPos) {
+        return (int) (sectionPos >> 42);
+    }
+
+    private static int unpackY(long sectionPos) {
+        return (int) (sectionPos << 44 >> 44);
+    }
+
+    private static int unpackZ(long sectionPos) {
+        return (int) (sectionPos << 22 >> 42);
+    }
+
+    /**
+     * Pack section coordinates the way ChunkSectionPos.asLong does.
+     */
+    public static long packSection(int x, int y, int z) {
+        return ((x & 0x3FFFFFL) << 42) | (y & 0xFFFFFL) | ((z & 0x3FFFFFL) << 20);
+    }
+
+    /**
+     * Queue a chunk for rebuild, or re-prioritize it if it is already queued.
+     * The caller's priority holds until the next camera re-score.
+     */
+    public void enqueueChunk(long chunkHash, double distanceFromPlayer, boolean inFrontOfCamera) {
+        chunkQueue.insertOrUpdate(chunkHash, priorityOf(distanceFromPlayer, inFrontOfCamera));
+    }
+
+    /**
+     * Queue a section scored against the last camera passed to {@link #onCamera}.
+     */
+    public void enqueueSection(long sectionPos) {
+        double priority = hasCamera ? scoreSection(sectionPos) : 0.0;
+        chunkQueue.insertOrUpdate(sectionPos, priority);
+    }
+
+    /**
+     * Drop a queued chunk (e.g. it was unloaded or rebuilt through another path).
+     * @return false if it wasn't queued
+     */
+    public boolean removeChunk(long chunkHash) {
+        return chunkQueue.remove(chunkHash);
+    }
+
+    public boolean isQueued(long chunkHash) {
+        return chunkQueue.contains(chunkHash);
+    }
+
+    public boolean hasNextChunk() {
+        return !chunkQueue.isEmpty();
+    }
+
+    /**
+     * Hash of the most urgent queued chunk, left in the queue. Check {@link #hasNextChunk()} first.
+     */
+    public long peekNextChunk() {
+        return chunkQueue.peekKey();
+    }
+
+    /**
+     * Remove and return the hash of the most urgent queued chunk. Check {@link #hasNextChunk()} first.
+     */
+    public long pollNextChunk() {
+        return chunkQueue.pollKey();
     }
 
     public int getQueueSize() {
         return chunkQueue.size();
     }
+
+    public long getRescoreCount() {
+        return rescoreCount;
+    }
+
+    /**
+     * Duration of the last camera re-score pass (microseconds).
+     */
+    public double getLastRescoreMicros() {
+        return lastRescoreNs / 1_000.0;
+    }
+
+    public void clear() {
+        chunkQueue.clear();
+    }
+
+    private static double priorityOf(double distanceFromPlayer, boolean inFrontOfCamera) {
+        return inFrontOfCamera ? distanceFromPlayer * IN_FRONT_FACTOR : distanceFromPlayer;
+    }
 }
@@ -3,25 +3,41 @@ package com.jellomakker.cpubooster.optimize;
 import com.jellomakker.cpubooster.CpuBoosterMod;
 import com.jellomakker.cpubooster.config.ConfigManager;
 import com.jellomakker.cpubooster.config.CpuBoosterConfig;
+import com.jellomakker.cpubooster.metrics.GcTelemetry;
+import com.jellomakker.cpubooster.perf.Clock;
 
 /**
  * Detects frame time spikes and applies safe, original optimizations to smooth them.
  */
 public class StutterSmoother {
+    private final Clock clock;
     private long smoothingEndTimeNs = 0;
     private long lastGcTimeNs = 0;
+    private long lastGcPauseNs = 0;
+    private long lastGcPauseMs = 0;
+    private int gcAttributedSpikes = 0;
     private volatile boolean smoothingActive = false;
     private boolean notifiedThisActivation = false;
 
+    public StutterSmoother() {
+        this(Clock.SYSTEM);
+    }
+
+    public StutterSmoother(Clock clock) {
+        this.clock = clock;
+    }
+
     public void onFrame(double frameTimeMs) {
-        CpuBoosterConfig cfg = ConfigManager.get();
-        
+        onFrame(frameTimeMs, ConfigManager.get());
+    }
+
+    public void onFrame(double frameTimeMs, CpuBoosterConfig cfg) {
         if (!cfg.stutterSmootherEnabled) {
             smoothingActive = false;
             return;
         }
 
-        long now = System.nanoTime();
+        long now = clock.nanoTime();
 
         // Check if smoothing window has expired
         if (smoothingEndTimeNs > 0 && now >= smoothingEndTimeNs) {
@@ -35,15 +51,18 @@ public class StutterSmoother {
 
         // Detect spike
         if (frameTimeMs > cfg.spikeThresholdMs && !smoothingActive) {
-            // Activate smoothing
-            smoothingActive = true;
-            notifiedThisActivation = false;
-            smoothingEndTimeNs = now + (cfg.smoothingWindowMs * 1_000_000L);
-            CpuBoosterMod.LOGGER.debug("StutterSmoother: spike detected ({}ms > {}ms), activating smoothing for {}ms",
-                    frameTimeMs, cfg.spikeThresholdMs, cfg.smoothingWindowMs);
-
-            // GC hint (rate-limited)
-            if (cfg.gcHintEnabled) {
+            // A pause reported within this frame explains the spike; a GC hint would only add another
+            boolean gcCaused = lastGcPauseNs > 0 && (now - lastGcPauseNs) <= (long) (frameTimeMs * 1_000_000L);
+            if (gcCaused) {
+                gcAttributedSpikes++;
+            }
+            activateSmoothing(now, cfg);
+            CpuBoosterMod.LOGGER.debug("StutterSmoother: spike detected ({}ms > {}ms{}), activating smoothing for {}ms",
+                    frameTimeMs, cfg.spikeThresholdMs, gcCaused ? ", GC pause " + lastGcPauseMs + "ms" : "",
+                    cfg.smoothingWindowMs);
+
+            // GC hint (rate-limited, and never right after a real collection)
+            if (cfg.gcHintEnabled && !gcCaused) {
                 long timeSinceLastGc = now - lastGcTimeNs;
                 if (timeSinceLastGc > (cfg.gcMinIntervalMs * 1_000_000L)) {
                     System.gc();
@@ -54,6 +73,46 @@ public class StutterSmoother {
         }
     }
 
+    /**
+     * Called for each collection reported by {@link GcTelemetry}.
+     * A pause longer than the spike threshold is a stutter by itself, so smoothing
+     * starts without waiting for the next frame time; every real pause also counts
+     * toward the GC hint rate limit.
+     */
+    public void onGcPause(GcTelemetry.GcPause pause) {
+        onGcPause(pause, ConfigManager.get());
+    }
+
+    public void onGcPause(GcTelemetry.GcPause pause, CpuBoosterConfig cfg) {
+        if (pause.isConcurrent()) return;
+        if (!cfg.stutterSmootherEnabled) return;
+
+        long now = clock.nanoTime();
+        lastGcPauseNs = now;
+        lastGcPauseMs = pause.durationMs;
+        lastGcTimeNs = now;
+
+        if (pause.durationMs > cfg.spikeThresholdMs && !smoothingActive) {
+            gcAttributedSpikes++;
+            activateSmoothing(now, cfg);
+            CpuBoosterMod.LOGGER.debug("StutterSmoother: {} pause of {}ms ({}), activating smoothing for {}ms",
+                    pause.collector, pause.durationMs, pause.cause, cfg.smoothingWindowMs);
+        }
+    }
+
+    private void activateSmoothing(long now, CpuBoosterConfig cfg) {
+        smoothingActive = true;
+        notifiedThisActivation = false;
+        smoothingEndTimeNs = now + (cfg.smoothingWindowMs * 1_000_000L);
+    }
+
+    /**
+     * Number of frame spikes that coincided with a reported GC pause.
+     */
+    public int getGcAttributedSpikes() {
+        return gcAttributedSpikes;
+    }
+
     public boolean isSmoothing() {
         return smoothingActive;
     }
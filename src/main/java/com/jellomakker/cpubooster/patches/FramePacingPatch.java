@@ -2,22 +2,73 @@ package com.jellomakker.cpubooster.patches;
 
 import com.jellomakker.cpubooster.CpuBoosterMod;
 import com.jellomakker.cpubooster.compat.AppleSiliconDetector;
+import com.jellomakker.cpubooster.config.CpuBoosterConfig;
+import com.jellomakker.cpubooster.perf.SlidingWindowStats;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Frame pacing patch: Smooths out frame time spikes by yielding slightly
- * when a frame finishes early. This reduces micro-stutter without capping FPS.
+ * when a frame finishes early, and puts the idle time to use first.
+ *
+ * Frames are render frames: {@link #onFrameStart()} and {@link #onFrameEnd()} are
+ * called at the head and return of {@code MinecraftClient.render}, not from client
+ * tick events. When a frame finishes early, the slack up to the target boundary
+ * (minus a safety margin) is offered to registered {@link SlackConsumer}s - deferred
+ * tasks, cache cleanup, analytics - in order. Consumers only run when they have work,
+ * so an idle frame is not stretched to the target.
+ *
+ * After that the frame yields at most {@link #MAX_WAIT_NS}, as before: parked with
+ * {@link LockSupport#parkNanos} and finished with a short spin, since parking alone
+ * overshoots by tens to hundreds of microseconds. The spin window adapts to the
+ * observed park overshoot.
  *
  * Safe approach:
  * - Only operates if enabled and on Apple Silicon
- * - Respects user's vsync/FPS settings
- * - Uses tiny sleep amounts (< 1ms) to smooth timing
+ * - Never delays a frame that is already at or past the target
+ * - Never caps FPS: the wait is bounded to 0.5ms per frame
+ * - Slack consumers only get work that is predicted to fit before the margin
  */
 public class FramePacingPatch implements Patch {
+    /**
+     * Work that can run in the idle end of a frame.
+     */
+    public interface SlackConsumer {
+        String getName();
+
+        /**
+         * Do work predicted to fit in {@code budgetNs}.
+         * @return true if anything ran (the harvester then offers the remaining slack again)
+         */
+        boolean harvest(long budgetNs);
+    }
+
+    private static final long MIN_HARVEST_NS = 100_000L; // not worth offering less than 0.1ms
+    private static final long MAX_WAIT_NS = 500_000L; // longest yield per frame
+    private static final long MIN_SPIN_NS = 50_000L;
+    private static final long MAX_SPIN_NS = 1_000_000L;
+    private static final int STATS_LOG_FRAMES = 600; // ~10s at 60 FPS
+
     private long frameStartNs = System.nanoTime();
     private volatile boolean enabled = false;
-    private static final long TARGET_FRAME_TIME_NS = 16_666_667L; // ~60 FPS
-    private long frameCountForLogging = 0;
-    private long accumulatedFrameTimeNs = 0;
+    private long targetFrameTimeNs = 16_666_667L; // ~60 FPS
+    private long safetyMarginNs = 1_000_000L;
+    private boolean harvestEnabled = true;
+    private final List<SlackConsumer> slackConsumers = new CopyOnWriteArrayList<>();
+
+    // Adaptive park -> spin handover
+    private double parkOvershootEmaNs = 100_000.0;
+    private long spinThresholdNs = 200_000L;
+
+    private final SlidingWindowStats frameStats = new SlidingWindowStats(STATS_LOG_FRAMES);
+    private int framesSinceLog = 0;
+    private boolean statsLogDue = false;
+    private long pacedFrames = 0;
+    private long harvestedNs = 0;
+    private long waitedNs = 0;
+    private double boundaryErrorEmaNs = 0.0;
 
     @Override
     public String getId() {
@@ -50,9 +101,21 @@ public class FramePacingPatch implements Patch {
         this.enabled = false;
     }
 
+    public void updateConfig(CpuBoosterConfig cfg) {
+        this.targetFrameTimeNs = (long) (cfg.frameTimeTargetMs * 1_000_000.0);
+        this.safetyMarginNs = Math.max(0, cfg.slackSafetyMarginMicros) * 1_000L;
+        this.harvestEnabled = cfg.slackHarvestEnabled;
+    }
+
+    /**
+     * Register work to run in frame slack. Consumers are offered slack in registration order.
+     */
+    public void addSlackConsumer(SlackConsumer consumer) {
+        if (consumer != null) slackConsumers.add(consumer);
+    }
+
     /**
-     * Call this at the START of each frame (before rendering).
-     * Should be registered to ClientTickEvents.START_CLIENT_TICK.
+     * Call this at the START of each render frame (head of {@code MinecraftClient.render}).
      */
     public void onFrameStart() {
         if (!enabled || !AppleSiliconDetector.isAppleSilicon()) return;
@@ -60,45 +123,113 @@ public class FramePacingPatch implements Patch {
     }
 
     /**
-     * Call this at the END of each frame (after rendering).
-     * Measures frame time and sleeps slightly if frame finished early.
+     * Call this at the END of each render frame (return of {@code MinecraftClient.render}).
+     * If the frame finished early, harvests the slack and then yields briefly.
      */
     public void onFrameEnd() {
         if (!enabled || !AppleSiliconDetector.isAppleSilicon()) return;
 
         long now = System.nanoTime();
         long frameTimeNs = now - frameStartNs;
+        frameStats.push(frameTimeNs / 1_000_000.0);
+        if (++framesSinceLog >= STATS_LOG_FRAMES) {
+            framesSinceLog = 0;
+            statsLogDue = true;
+        }
 
-        // Accumulate for debug logging
-        accumulatedFrameTimeNs += frameTimeNs;
-        frameCountForLogging++;
-
-        // Log avg frame time every ~10s (600 frames at 60 FPS)
-        if (frameCountForLogging >= 600) {
-            double avgMs = accumulatedFrameTimeNs / (frameCountForLogging * 1_000_000.0);
-            double stddev = calculateStddev();
-            CpuBoosterMod.LOGGER.debug("Frame pacing stats: avg={:.2f}ms, stddev={:.2f}ms, samples={}",
-                    avgMs, stddev, frameCountForLogging);
-            accumulatedFrameTimeNs = 0;
-            frameCountForLogging = 0;
+        long boundaryNs = frameStartNs + targetFrameTimeNs;
+        if (now >= boundaryNs) {
+            // Late or on time: don't add anything to this frame
+            if (statsLogDue) logStats();
+            return;
         }
 
-        // If frame finished early, sleep slightly to avoid GPU idle
-        // This is very conservative: only yield if frame is <15ms (target is ~16.6ms)
-        if (frameTimeNs < (TARGET_FRAME_TIME_NS - 1_000_000L)) {
-            long sleepTimeNs = Math.min(500_000L, TARGET_FRAME_TIME_NS - frameTimeNs - 500_000L);
-            if (sleepTimeNs > 0) {
+        if (harvestEnabled) {
+            long harvestStart = System.nanoTime();
+            harvest(boundaryNs - safetyMarginNs);
+            harvestedNs += System.nanoTime() - harvestStart;
+        }
+        if (statsLogDue && boundaryNs - System.nanoTime() > safetyMarginNs + MIN_HARVEST_NS) {
+            logStats();
+        }
+
+        long waitStart = System.nanoTime();
+        // Yield at most 0.5ms and stop 0.5ms short of the boundary
+        long waitEnd = Math.min(boundaryNs - MAX_WAIT_NS, waitStart + MAX_WAIT_NS);
+        if (waitEnd <= waitStart) return;
+        waitUntil(waitEnd);
+        long end = System.nanoTime();
+        waitedNs += end - waitStart;
+        boundaryErrorEmaNs += 0.05 * ((end - waitEnd) - boundaryErrorEmaNs);
+        pacedFrames++;
+    }
+
+    private void harvest(long stopAtNs) {
+        boolean progress = true;
+        while (progress) {
+            progress = false;
+            for (SlackConsumer consumer : slackConsumers) {
+                long budgetNs = stopAtNs - System.nanoTime();
+                if (budgetNs < MIN_HARVEST_NS) return;
                 try {
-                    Thread.sleep(0, (int) sleepTimeNs);
-                } catch (InterruptedException e) {
-                    // Ignored
+                    if (consumer.harvest(budgetNs)) progress = true;
+                } catch (Throwable t) {
+                    slackConsumers.remove(consumer);
+                    CpuBoosterMod.LOGGER.warn("Slack consumer {} disabled due to error: {}", consumer.getName(), t.getMessage());
                 }
             }
         }
     }
 
-    private double calculateStddev() {
-        // Simplified: just return 0 for now (actual stddev calc would need history buffer)
-        return 0.0;
+    /**
+     * Park until shortly before {@code boundaryNs}, then spin the rest of the way.
+     */
+    private void waitUntil(long boundaryNs) {
+        long remaining = boundaryNs - System.nanoTime();
+        while (remaining > spinThresholdNs) {
+            long parkFor = remaining - spinThresholdNs;
+            long parkStart = System.nanoTime();
+            LockSupport.parkNanos(parkFor);
+            long overshoot = (System.nanoTime() - parkStart) - parkFor;
+            parkOvershootEmaNs += 0.1 * (Math.max(0, overshoot) - parkOvershootEmaNs);
+            spinThresholdNs = Math.max(MIN_SPIN_NS, Math.min(MAX_SPIN_NS, (long) (parkOvershootEmaNs * 2.0)));
+            remaining = boundaryNs - System.nanoTime();
+        }
+        while (System.nanoTime() < boundaryNs) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private void logStats() {
+        statsLogDue = false;
+        CpuBoosterMod.LOGGER.debug("Frame pacing stats: avg={}ms, stddev={}ms, worst={}ms, samples={}, boundary error={}us",
+                String.format("%.2f", frameStats.getMean()), String.format("%.2f", frameStats.getStdDev()),
+                String.format("%.2f", frameStats.getMax()), frameStats.size(),
+                String.format("%.0f", boundaryErrorEmaNs / 1_000.0));
+    }
+
+    public long getPacedFrames() {
+        return pacedFrames;
+    }
+
+    /**
+     * Total time spent running slack consumers (ms).
+     */
+    public double getHarvestedMs() {
+        return harvestedNs / 1_000_000.0;
+    }
+
+    /**
+     * Total time spent yielding at the end of early frames (ms).
+     */
+    public double getWaitedMs() {
+        return waitedNs / 1_000_000.0;
+    }
+
+    /**
+     * Average distance between wake-up and the intended end of the yield (us).
+     */
+    public double getBoundaryErrorMicros() {
+        return boundaryErrorEmaNs / 1_000.0;
     }
 }
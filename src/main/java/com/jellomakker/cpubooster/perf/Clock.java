@@ -0,0 +1,30 @@
+package com.jellomakker.cpubooster.perf;
+
+/**
+ * Time source for the adaptive controllers.
+ * Production code uses {@link #SYSTEM}; the replay harness substitutes a virtual
+ * clock so controller decisions can be reproduced exactly.
+ */
+public interface Clock {
+    Clock SYSTEM = new Clock() {
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+
+        @Override
+        public long millis() {
+            return System.currentTimeMillis();
+        }
+    };
+
+    /**
+     * Monotonic time in nanoseconds (only differences are meaningful).
+     */
+    long nanoTime();
+
+    /**
+     * Time in milliseconds (only differences are meaningful to the controllers).
+     */
+    long millis();
+}
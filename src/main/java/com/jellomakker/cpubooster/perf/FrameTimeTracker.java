@@ -1,61 +1,51 @@
 package com.jellomakker.cpubooster.perf;
 
 /**
- * Tracks frame times in a ring buffer to calculate averages and percentiles.
+ * Tracks frame times in a sliding log-linear histogram to calculate averages and percentiles.
  */
 public class FrameTimeTracker {
     private final int maxSize;
-    private final double[] frameTimes;
-    private int currentIndex = 0;
-    private int count = 0;
+    private final LogLinearHistogram histogram;
+    private long recorded = 0;
 
     public FrameTimeTracker(int maxSize) {
         this.maxSize = maxSize;
-        this.frameTimes = new double[maxSize];
+        this.histogram = new LogLinearHistogram(maxSize);
     }
 
     public void recordFrameTime(double ms) {
-        frameTimes[currentIndex] = ms;
-        currentIndex = (currentIndex + 1) % maxSize;
-        if (count < maxSize) count++;
+        histogram.recordMs(ms);
+        recorded++;
     }
 
     public double getAverageFrameTime() {
-        if (count == 0) return 0.0;
-        double sum = 0.0;
-        for (int i = 0; i < count; i++) {
-            sum += frameTimes[i];
-        }
-        return sum / count;
+        return histogram.getMean();
     }
 
     public double getPercentile(double percentile) {
-        if (count == 0) return 0.0;
-        // Percentile: e.g., 0.99 = 99th percentile, 0.01 = 1st percentile
-        int index = Math.max(0, (int) Math.ceil(count * (percentile / 100.0)) - 1);
-        
-        double[] sorted = new double[count];
-        System.arraycopy(frameTimes, 0, sorted, 0, count);
-        java.util.Arrays.sort(sorted);
-        
-        return sorted[index];
+        // Percentile: e.g., 99.0 = 99th percentile, 1.0 = 1st percentile
+        return histogram.getValueAtPercentile(percentile);
     }
 
     public double get1PercentLow() {
-        // 1% low = 99th percentile (lowest 1% of frame times, i.e., slowest 1%)
-        return getPercentile(1.0);
+        // 1% low = 99th percentile (lowest 1% of frame rate, i.e., slowest 1% of frames)
+        return getPercentile(99.0);
+    }
+
+    public double getMaxFrameTime() {
+        return histogram.getMax();
     }
 
     public int getCount() {
-        return count;
+        return (int) histogram.getCount();
     }
 
     public boolean isFull() {
-        return count == maxSize;
+        return recorded >= maxSize;
     }
 
     public void reset() {
-        currentIndex = 0;
-        count = 0;
+        histogram.reset();
+        recorded = 0;
     }
 }
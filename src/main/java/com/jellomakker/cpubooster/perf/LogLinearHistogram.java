@@ -0,0 +1,208 @@
+package com.jellomakker.cpubooster.perf;
+
+/**
+ * Fixed-memory log-linear (HDR-style) histogram for latency values.
+ *
+ * Values are recorded in microseconds. Each power-of-two range is split into
+ * 32 linear sub-buckets, so any reported quantile is within ~1.6% of the true
+ * value. Recording is O(1) and allocation-free; quantile queries walk the
+ * bucket array (O(buckets)) and never sort.
+ *
+ * With a positive window the histogram forgets old samples: the window is
+ * split into slices and the oldest slice is subtracted from the totals when
+ * a new one starts, so the effective window is between (slices - 1) and
+ * slices worth of samples.
+ */
+public class LogLinearHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_MAGNITUDE = 24; // top bucket starts at 2^24 us (~16.7 s)
+    private static final int DEFAULT_SLICES = 16;
+
+    public static final int BUCKET_COUNT = (MAX_MAGNITUDE - SUB_BUCKET_BITS + 2) * SUB_BUCKET_COUNT;
+    public static final long MAX_VALUE_US = (1L << (MAX_MAGNITUDE + 1)) - 1;
+
+    private final long[] counts = new long[BUCKET_COUNT];
+    private long totalCount = 0;
+    private long totalSumUs = 0;
+
+    // Sliding window state (null when the histogram is cumulative)
+    private final int[] sliceCounts;
+    private final long[] sliceSumUs;
+    private final int[] sliceSamples;
+    private final int sliceCount;
+    private final int samplesPerSlice;
+    private int currentSlice = 0;
+
+    /**
+     * Cumulative histogram that never forgets samples until {@link #reset()}.
+     */
+    public LogLinearHistogram() {
+        this(0);
+    }
+
+    /**
+     * @param windowSamples approximate number of most recent samples to keep, or 0 for cumulative
+     */
+    public LogLinearHistogram(int windowSamples) {
+        if (windowSamples > 0) {
+            this.sliceCount = Math.min(DEFAULT_SLICES, windowSamples);
+            this.samplesPerSlice = (windowSamples + sliceCount - 1) / sliceCount;
+            this.sliceCounts = new int[sliceCount * BUCKET_COUNT];
+            this.sliceSumUs = new long[sliceCount];
+            this.sliceSamples = new int[sliceCount];
+        } else {
+            this.sliceCount = 0;
+            this.samplesPerSlice = 0;
+            this.sliceCounts = null;
+            this.sliceSumUs = null;
+            this.sliceSamples = null;
+        }
+    }
+
+    /**
+     * Record a value in milliseconds.
+     */
+    public void recordMs(double ms) {
+        recordMicros((long) (ms * 1000.0));
+    }
+
+    /**
+     * Record a value in nanoseconds.
+     */
+    public void recordNanos(long ns) {
+        recordMicros(ns / 1000L);
+    }
+
+    /**
+     * Record a value in microseconds. Values outside [0, MAX_VALUE_US] are clamped.
+     */
+    public void recordMicros(long us) {
+        if (us < 0) us = 0;
+        if (us > MAX_VALUE_US) us = MAX_VALUE_US;
+        int idx = bucketIndex(us);
+
+        if (sliceCounts != null) {
+            if (sliceSamples[currentSlice] >= samplesPerSlice) {
+                advanceSlice();
+            }
+            sliceCounts[currentSlice * BUCKET_COUNT + idx]++;
+            sliceSumUs[currentSlice] += us;
+            sliceSamples[currentSlice]++;
+        }
+
+        counts[idx]++;
+        totalCount++;
+        totalSumUs += us;
+    }
+
+    /**
+     * Move to the next slice, dropping whatever it held from the totals.
+     */
+    private void advanceSlice() {
+        currentSlice = (currentSlice + 1) % sliceCount;
+        if (sliceSamples[currentSlice] == 0) return;
+
+        int base = currentSlice * BUCKET_COUNT;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            int c = sliceCounts[base + i];
+            if (c != 0) {
+                counts[i] -= c;
+                sliceCounts[base + i] = 0;
+            }
+        }
+        totalCount -= sliceSamples[currentSlice];
+        totalSumUs -= sliceSumUs[currentSlice];
+        sliceSamples[currentSlice] = 0;
+        sliceSumUs[currentSlice] = 0;
+    }
+
+    /**
+     * Get the value at a percentile in milliseconds.
+     * @param percentile 0-100, e.g. 99.0 = 99th percentile
+     */
+    public double getValueAtPercentile(double percentile) {
+        if (totalCount == 0) return 0.0;
+        long rank = (long) Math.ceil(totalCount * (percentile / 100.0));
+        rank = Math.max(1, Math.min(totalCount, rank));
+
+        if (percentile > 50.0) {
+            // High percentiles are reached faster from the top
+            long fromTop = totalCount - rank + 1;
+            long cumulative = 0;
+            for (int i = BUCKET_COUNT - 1; i >= 0; i--) {
+                cumulative += counts[i];
+                if (cumulative >= fromTop) return bucketMidpoint(i) / 1000.0;
+            }
+        } else {
+            long cumulative = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                cumulative += counts[i];
+                if (cumulative >= rank) return bucketMidpoint(i) / 1000.0;
+            }
+        }
+        return 0.0;
+    }
+
+    /**
+     * Exact mean of the recorded values in milliseconds.
+     */
+    public double getMean() {
+        if (totalCount == 0) return 0.0;
+        return (totalSumUs / (double) totalCount) / 1000.0;
+    }
+
+    /**
+     * Upper bound of the highest non-empty bucket in milliseconds.
+     */
+    public double getMax() {
+        for (int i = BUCKET_COUNT - 1; i >= 0; i--) {
+            if (counts[i] != 0) return bucketUpperBound(i) / 1000.0;
+        }
+        return 0.0;
+    }
+
+    /**
+     * Number of samples currently inside the window.
+     */
+    public long getCount() {
+        return totalCount;
+    }
+
+    public void reset() {
+        java.util.Arrays.fill(counts, 0L);
+        totalCount = 0;
+        totalSumUs = 0;
+        if (sliceCounts != null) {
+            java.util.Arrays.fill(sliceCounts, 0);
+            java.util.Arrays.fill(sliceSumUs, 0L);
+            java.util.Arrays.fill(sliceSamples, 0);
+        }
+        currentSlice = 0;
+    }
+
+    static int bucketIndex(long us) {
+        if (us < 2 * SUB_BUCKET_COUNT) return (int) us;
+        int magnitude = 63 - Long.numberOfLeadingZeros(us);
+        int shift = magnitude - SUB_BUCKET_BITS;
+        int top = (int) (us >>> shift); // in [SUB_BUCKET_COUNT, 2 * SUB_BUCKET_COUNT)
+        return shift * SUB_BUCKET_COUNT + top;
+    }
+
+    static long bucketLowerBound(int index) {
+        if (index < 2 * SUB_BUCKET_COUNT) return index;
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        long top = (index % SUB_BUCKET_COUNT) + SUB_BUCKET_COUNT;
+        return top << shift;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < 2 * SUB_BUCKET_COUNT) return index;
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        return bucketLowerBound(index) + (1L << shift) - 1;
+    }
+
+    private static double bucketMidpoint(int index) {
+        return (bucketLowerBound(index) + bucketUpperBound(index)) / 2.0;
+    }
+}
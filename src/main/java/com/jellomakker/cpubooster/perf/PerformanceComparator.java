@@ -1,8 +1,24 @@
 package com.jellomakker.cpubooster.perf;
 
+import com.jellomakker.cpubooster.CpuBoosterMod;
+import com.jellomakker.cpubooster.config.ConfigManager;
+import com.jellomakker.cpubooster.config.CpuBoosterConfig;
+import com.jellomakker.cpubooster.patches.Patch;
+import com.jellomakker.cpubooster.patches.PatchManager;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Random;
+
 /**
  * Measures FPS difference between mod enabled and disabled states.
  * Tracks baseline frame times and compares current performance.
+ *
+ * A/B mode interleaves short on/off blocks for one target (the whole mod, a
+ * single patch or a single config flag) in ABBA order, so thermal drift and
+ * scene changes hit both arms equally. Each block yields its mean, p99 and
+ * 1%-low frame time; the deltas get 95% confidence intervals from a bootstrap
+ * over whole blocks (frames inside a block are correlated, blocks much less so).
  */
 public class PerformanceComparator {
     private double baselineFps = 0;     // FPS when mod disabled
@@ -13,6 +29,36 @@ public class PerformanceComparator {
     private boolean measuring = false;
     private boolean modWasEnabled = false;
 
+    // ===== A/B mode =====
+    private static final int BOOTSTRAP_RESAMPLES = 2000;
+    private static final double MAX_FRAME_MS = 1000.0; // longer frames are pauses/menus, not load
+
+    /**
+     * Something that can be switched on and off between blocks.
+     */
+    public interface AbTarget {
+        String getName();
+
+        boolean isOn();
+
+        void set(boolean on);
+    }
+
+    private AbTarget abTarget = null;
+    private boolean abOriginalState = false;
+    private int abFramesPerBlock = 0;
+    private int abWarmupFrames = 0;
+    private int abTotalBlocks = 0;
+    private int abBlockIndex = 0;
+    private int abFramesSeen = 0;
+    private int abSamples = 0;
+    private double[] abBuffer = new double[0];
+    private double[][] abOn = new double[3][0];  // [metric][block]
+    private double[][] abOff = new double[3][0];
+    private int abOnBlocks = 0;
+    private int abOffBlocks = 0;
+    private AbResult lastAbResult = null;
+
     public void startMeasurement(boolean modCurrentlyEnabled) {
         measuring = true;
         frameCount = 0;
@@ -20,7 +66,13 @@ public class PerformanceComparator {
         modWasEnabled = modCurrentlyEnabled;
     }
 
+    /**
+     * Record one render frame. Must be called per render frame, not per client tick.
+     */
     public void onFrame(double frameTimeMs) {
+        if (abTarget != null) {
+            onAbFrame(frameTimeMs);
+        }
         if (!measuring) return;
         frameCount++;
         if (frameCount >= MEASUREMENT_FRAMES) {
@@ -51,4 +103,300 @@ public class PerformanceComparator {
 
     public boolean isMeasuring() { return measuring; }
     public int getMeasurementProgress() { return Math.min(100, (frameCount * 100) / MEASUREMENT_FRAMES); }
+
+    // ===== A/B mode =====
+
+    /**
+     * Start an interleaved A/B run. The target's current state is restored when the run ends.
+     * @param pairs number of on/off block pairs
+     * @param framesPerBlock measured frames per block
+     * @param warmupFrames frames discarded after each switch
+     */
+    public void startAb(AbTarget target, int pairs, int framesPerBlock, int warmupFrames) {
+        if (abTarget != null) stopAb();
+        abTarget = target;
+        abOriginalState = target.isOn();
+        abFramesPerBlock = Math.max(10, framesPerBlock);
+        abWarmupFrames = Math.max(0, warmupFrames);
+        abTotalBlocks = Math.max(2, pairs) * 2;
+        abBlockIndex = 0;
+        abFramesSeen = 0;
+        abSamples = 0;
+        abOnBlocks = 0;
+        abOffBlocks = 0;
+        if (abBuffer.length != abFramesPerBlock) abBuffer = new double[abFramesPerBlock];
+        int perArm = abTotalBlocks / 2;
+        for (int m = 0; m < 3; m++) {
+            abOn[m] = new double[perArm];
+            abOff[m] = new double[perArm];
+        }
+        lastAbResult = null;
+        target.set(blockIsOn(0));
+        CpuBoosterMod.LOGGER.info("A/B run started for {}: {} blocks of {} frames", target.getName(),
+                abTotalBlocks, abFramesPerBlock);
+    }
+
+    /**
+     * Abort a running A/B run without a result.
+     */
+    public void stopAb() {
+        if (abTarget == null) return;
+        restoreTarget();
+        CpuBoosterMod.LOGGER.info("A/B run aborted");
+    }
+
+    // ABBA ordering: even pairs start with "on", odd pairs with "off"
+    private static boolean blockIsOn(int block) {
+        int pair = block / 2;
+        boolean firstOn = (pair & 1) == 0;
+        return (block & 1) == 0 ? firstOn : !firstOn;
+    }
+
+    private void onAbFrame(double frameTimeMs) {
+        abFramesSeen++;
+        if (abFramesSeen <= abWarmupFrames) return;
+        if (frameTimeMs <= 0.0 || frameTimeMs > MAX_FRAME_MS) return;
+
+        abBuffer[abSamples++] = frameTimeMs;
+        if (abSamples < abFramesPerBlock) return;
+
+        // Block complete: reduce to mean, p99 and 1%-low (mean of the slowest 1%)
+        Arrays.sort(abBuffer, 0, abSamples);
+        double sum = 0.0;
+        for (int i = 0; i < abSamples; i++) sum += abBuffer[i];
+        int p99Index = Math.min(abSamples - 1, (int) Math.ceil(abSamples * 0.99) - 1);
+        int worst = Math.max(1, abSamples / 100);
+        double worstSum = 0.0;
+        for (int i = abSamples - worst; i < abSamples; i++) worstSum += abBuffer[i];
+
+        boolean on = blockIsOn(abBlockIndex);
+        double[][] arm = on ? abOn : abOff;
+        int slot = on ? abOnBlocks++ : abOffBlocks++;
+        arm[0][slot] = sum / abSamples;
+        arm[1][slot] = abBuffer[p99Index];
+        arm[2][slot] = worstSum / worst;
+
+        abBlockIndex++;
+        abFramesSeen = 0;
+        abSamples = 0;
+        if (abBlockIndex >= abTotalBlocks) {
+            finishAb();
+        } else {
+            abTarget.set(blockIsOn(abBlockIndex));
+        }
+    }
+
+    private void finishAb() {
+        Random random = new Random(0x5EED);
+        AbMetric mean = bootstrap("Mean frame", abOn[0], abOff[0], random);
+        AbMetric p99 = bootstrap("p99 frame", abOn[1], abOff[1], random);
+        AbMetric low = bootstrap("1% low frame", abOn[2], abOff[2], random);
+        lastAbResult = new AbResult(abTarget.getName(), abTotalBlocks / 2, abFramesPerBlock, mean, p99, low);
+        restoreTarget();
+        for (String line : lastAbResult.describe()) {
+            CpuBoosterMod.LOGGER.info("A/B {}", line);
+        }
+    }
+
+    private void restoreTarget() {
+        try {
+            abTarget.set(abOriginalState);
+        } catch (Throwable t) {
+            CpuBoosterMod.LOGGER.warn("A/B: failed to restore {}: {}", abTarget.getName(), t.getMessage());
+        }
+        abTarget = null;
+    }
+
+    private static AbMetric bootstrap(String name, double[] on, double[] off, Random random) {
+        double onMean = average(on);
+        double offMean = average(off);
+        double[] deltas = new double[BOOTSTRAP_RESAMPLES];
+        for (int r = 0; r < BOOTSTRAP_RESAMPLES; r++) {
+            double onSum = 0.0;
+            for (int i = 0; i < on.length; i++) onSum += on[random.nextInt(on.length)];
+            double offSum = 0.0;
+            for (int i = 0; i < off.length; i++) offSum += off[random.nextInt(off.length)];
+            deltas[r] = onSum / on.length - offSum / off.length;
+        }
+        Arrays.sort(deltas);
+        double lo = deltas[(int) (BOOTSTRAP_RESAMPLES * 0.025)];
+        double hi = deltas[(int) (BOOTSTRAP_RESAMPLES * 0.975) - 1];
+        return new AbMetric(name, offMean, onMean, lo, hi);
+    }
+
+    private static double average(double[] values) {
+        if (values.length == 0) return 0.0;
+        double sum = 0.0;
+        for (double v : values) sum += v;
+        return sum / values.length;
+    }
+
+    public boolean isAbRunning() {
+        return abTarget != null;
+    }
+
+    public String getAbTargetName() {
+        return abTarget != null ? abTarget.getName() : null;
+    }
+
+    public int getAbProgress() {
+        if (abTarget == null || abTotalBlocks == 0) return 0;
+        int done = abBlockIndex * abFramesPerBlock + abSamples;
+        return Math.min(100, (done * 100) / (abTotalBlocks * abFramesPerBlock));
+    }
+
+    /**
+     * Result of the last completed A/B run, or null.
+     */
+    public AbResult getLastAbResult() {
+        return lastAbResult;
+    }
+
+    /**
+     * One frame-time metric: on minus off, in ms (negative = the target helps).
+     */
+    public static final class AbMetric {
+        public final String name;
+        public final double offMs;
+        public final double onMs;
+        public final double deltaMs;
+        public final double ciLowMs;
+        public final double ciHighMs;
+
+        AbMetric(String name, double offMs, double onMs, double ciLowMs, double ciHighMs) {
+            this.name = name;
+            this.offMs = offMs;
+            this.onMs = onMs;
+            this.deltaMs = onMs - offMs;
+            this.ciLowMs = ciLowMs;
+            this.ciHighMs = ciHighMs;
+        }
+
+        /**
+         * True if the 95% interval excludes zero.
+         */
+        public boolean isSignificant() {
+            return ciLowMs > 0.0 || ciHighMs < 0.0;
+        }
+
+        public String describe() {
+            String verdict = !isSignificant() ? "no significant change" : deltaMs < 0 ? "faster" : "slower";
+            double pct = offMs > 0 ? deltaMs / offMs * 100.0 : 0.0;
+            return String.format("%s: off %.2f ms, on %.2f ms, delta %+.2f ms (%+.1f%%) 95%% CI [%+.2f, %+.2f] - %s",
+                    name, offMs, onMs, deltaMs, pct, ciLowMs, ciHighMs, verdict);
+        }
+    }
+
+    public static final class AbResult {
+        public final String targetName;
+        public final int blocksPerArm;
+        public final int framesPerBlock;
+        public final AbMetric mean;
+        public final AbMetric p99;
+        public final AbMetric low1;
+
+        AbResult(String targetName, int blocksPerArm, int framesPerBlock, AbMetric mean, AbMetric p99, AbMetric low1) {
+            this.targetName = targetName;
+            this.blocksPerArm = blocksPerArm;
+            this.framesPerBlock = framesPerBlock;
+            this.mean = mean;
+            this.p99 = p99;
+            this.low1 = low1;
+        }
+
+        public String[] describe() {
+            return new String[] {
+                    String.format("%s (%d blocks x %d frames per arm)", targetName, blocksPerArm, framesPerBlock),
+                    mean.describe(),
+                    p99.describe(),
+                    low1.describe()
+            };
+        }
+    }
+
+    // ===== Targets =====
+
+    /**
+     * The mod's master switch (config "enabled").
+     */
+    public static AbTarget wholeModTarget() {
+        return new AbTarget() {
+            @Override
+            public String getName() { return "whole mod"; }
+
+            @Override
+            public boolean isOn() { return ConfigManager.get().enabled; }
+
+            @Override
+            public void set(boolean on) { ConfigManager.get().enabled = on; }
+        };
+    }
+
+    /**
+     * A single patch, toggled through its initialize()/disable() lifecycle.
+     * @throws IllegalArgumentException if no such patch is registered
+     */
+    public static AbTarget patchTarget(PatchManager patchManager, String id) {
+        Patch patch = patchManager.getPatch(id);
+        if (patch == null) {
+            throw new IllegalArgumentException("Unknown patch: " + id);
+        }
+        return new AbTarget() {
+            @Override
+            public String getName() { return "patch " + id; }
+
+            @Override
+            public boolean isOn() { return patchManager.getPatchState(id); }
+
+            @Override
+            public void set(boolean on) {
+                if (on == isOn()) return;
+                patchManager.setPatchState(id, on);
+                if (on) {
+                    patch.initialize();
+                } else {
+                    patch.disable();
+                }
+            }
+        };
+    }
+
+    /**
+     * A boolean field of {@link CpuBoosterConfig}, e.g. "enableEntityFreezing".
+     * The flag is flipped in memory only; the config file is not rewritten.
+     * @throws IllegalArgumentException if the field does not exist or is not boolean
+     */
+    public static AbTarget featureFlagTarget(String fieldName) {
+        Field field;
+        try {
+            field = CpuBoosterConfig.class.getField(fieldName);
+        } catch (NoSuchFieldException e) {
+            throw new IllegalArgumentException("Unknown config flag: " + fieldName);
+        }
+        if (field.getType() != boolean.class) {
+            throw new IllegalArgumentException("Not a boolean flag: " + fieldName);
+        }
+        return new AbTarget() {
+            @Override
+            public String getName() { return "flag " + fieldName; }
+
+            @Override
+            public boolean isOn() {
+                try {
+                    return field.getBoolean(ConfigManager.get());
+                } catch (IllegalAccessException e) {
+                    return false;
+                }
+            }
+
+            @Override
+            public void set(boolean on) {
+                try {
+                    field.setBoolean(ConfigManager.get(), on);
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+    }
 }
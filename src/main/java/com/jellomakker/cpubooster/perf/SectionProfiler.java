@@ -0,0 +1,97 @@
+package com.jellomakker.cpubooster.perf;
+
+/**
+ * Zero-allocation scoped profiler for the mod's own per-tick work.
+ *
+ * Sections are registered once at startup and get a fixed slot id. Each
+ * {@link #begin(int)}/{@link #end(int)} pair costs two System.nanoTime() calls
+ * plus a few array writes: per-section last, EMA (alpha = 1/16), max, call
+ * count, total and a log-linear histogram at microsecond resolution.
+ * Not thread-safe: sections must be timed on the thread that owns them.
+ */
+public class SectionProfiler {
+    public static final int MAX_SECTIONS = 32;
+    private static final int EMA_SHIFT = 4; // alpha = 1/16
+
+    private final String[] names = new String[MAX_SECTIONS];
+    private final long[] startNs = new long[MAX_SECTIONS];
+    private final long[] lastNs = new long[MAX_SECTIONS];
+    private final long[] emaNs = new long[MAX_SECTIONS];
+    private final long[] maxNs = new long[MAX_SECTIONS];
+    private final long[] calls = new long[MAX_SECTIONS];
+    private final long[] totalNs = new long[MAX_SECTIONS];
+    private final LogLinearHistogram[] histograms = new LogLinearHistogram[MAX_SECTIONS];
+    private int sectionCount = 0;
+    private volatile boolean enabled = true;
+
+    /**
+     * Register a section and return its slot id. Registering the same name twice returns the same id.
+     */
+    public synchronized int register(String name) {
+        for (int i = 0; i < sectionCount; i++) {
+            if (names[i].equals(name)) return i;
+        }
+        if (sectionCount >= MAX_SECTIONS) {
+            throw new IllegalStateException("SectionProfiler: too many sections (max " + MAX_SECTIONS + ")");
+        }
+        int id = sectionCount++;
+        names[id] = name;
+        histograms[id] = new LogLinearHistogram();
+        return id;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void begin(int id) {
+        if (!enabled) return;
+        startNs[id] = System.nanoTime();
+    }
+
+    public void end(int id) {
+        if (!enabled) return;
+        long start = startNs[id];
+        if (start == 0) return; // begin() was skipped (profiler just enabled)
+        long d = System.nanoTime() - start;
+        startNs[id] = 0;
+
+        lastNs[id] = d;
+        emaNs[id] = calls[id] == 0 ? d : emaNs[id] + ((d - emaNs[id]) >> EMA_SHIFT);
+        if (d > maxNs[id]) maxNs[id] = d;
+        calls[id]++;
+        totalNs[id] += d;
+        histograms[id].recordNanos(d);
+    }
+
+    public int getSectionCount() { return sectionCount; }
+    public String getName(int id) { return names[id]; }
+    public long getLastNanos(int id) { return lastNs[id]; }
+    public long getEmaNanos(int id) { return emaNs[id]; }
+    public long getMaxNanos(int id) { return maxNs[id]; }
+    public long getCalls(int id) { return calls[id]; }
+    public long getTotalNanos(int id) { return totalNs[id]; }
+
+    /**
+     * Percentile of a section's duration in milliseconds (microsecond resolution).
+     */
+    public double getPercentileMs(int id, double percentile) {
+        return histograms[id].getValueAtPercentile(percentile);
+    }
+
+    public void reset() {
+        for (int i = 0; i < sectionCount; i++) {
+            startNs[i] = 0;
+            lastNs[i] = 0;
+            emaNs[i] = 0;
+            maxNs[i] = 0;
+            calls[i] = 0;
+            totalNs[i] = 0;
+            histograms[i].reset();
+        }
+    }
+}
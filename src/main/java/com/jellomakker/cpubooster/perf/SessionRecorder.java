@@ -0,0 +1,207 @@
+package com.jellomakker.cpubooster.perf;
+
+import com.jellomakker.cpubooster.CpuBoosterMod;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Records per-render-frame frame, tick and GC timelines to memory-mapped files for offline analysis.
+ *
+ * Each session is a series of fixed-size segment files
+ * (config/cpubooster/recordings/session-yyyyMMdd-HHmmss-NNN.cpbrec). A segment is a
+ * 64-byte header followed by fixed-width 32-byte records written straight into a
+ * MappedByteBuffer, so appending is a handful of absolute puts with no allocation or
+ * syscalls. When a segment fills up it is flushed and the next one is mapped.
+ * Read recordings back with {@link SessionRecording}.
+ *
+ * Version 1 files were written once per client tick, so their frame column holds the
+ * ~50 ms tick interval. From version 2 there is one record per render frame; the tick
+ * and GC columns sum whatever ran since the previous record.
+ */
+public class SessionRecorder {
+    public static final File RECORDINGS_DIR = new File("config/cpubooster/recordings");
+    public static final String EXTENSION = ".cpbrec";
+
+    // Header layout
+    static final long MAGIC = 0x4350425245433031L; // "CPBREC01"
+    static final int VERSION = 2;
+    static final int VERSION_PER_TICK = 1;
+    static final int HEADER_SIZE = 64;
+    static final int HEADER_MAGIC = 0;
+    static final int HEADER_VERSION = 8;
+    static final int HEADER_RECORD_SIZE = 12;
+    static final int HEADER_START_EPOCH_MS = 16;
+    static final int HEADER_SEGMENT_INDEX = 24;
+    static final int HEADER_CAPACITY = 28;
+    static final int HEADER_RECORD_COUNT = 32;
+
+    // Record layout
+    static final int RECORD_SIZE = 32;
+    static final int REC_TIMESTAMP_NS = 0;   // long, ns since session start
+    static final int REC_FRAME_MS = 8;       // float, render frame time
+    static final int REC_TICK_MS = 12;       // float, client tick time since previous record
+    static final int REC_GC_PAUSE_MS = 16;   // float, pause time since previous record
+    static final int REC_FRAME_EMA_MS = 20;  // float, FramePacingThrottler EMA
+    static final int REC_CHUNK_BUDGET = 24;  // int, ChunkRebuildThrottler budget
+    static final int REC_FLAGS = 28;         // int, FLAG_* bits
+
+    public static final int FLAG_THROTTLING = 1;
+    public static final int FLAG_MEMORY_PRESSURE = 1 << 1;
+    public static final int FLAG_SMOOTHING = 1 << 2;
+
+    private final File directory;
+    private int segmentBytes;
+    private int recordsPerSegment;
+
+    private String sessionName = null;
+    private long sessionStartNs = 0;
+    private long sessionStartEpochMs = 0;
+    private int segmentIndex = 0;
+    private FileChannel channel = null;
+    private MappedByteBuffer buffer = null;
+    private int segmentRecords = 0;
+    private long totalRecords = 0;
+
+    public SessionRecorder(int segmentSizeMb) {
+        this(RECORDINGS_DIR, segmentSizeMb);
+    }
+
+    public SessionRecorder(File directory, int segmentSizeMb) {
+        this.directory = directory;
+        setSegmentSizeMb(segmentSizeMb);
+    }
+
+    /**
+     * Segment size (1-1024 MB). Takes effect when the next session starts.
+     */
+    public void setSegmentSizeMb(int segmentSizeMb) {
+        if (isRecording()) return;
+        int bytes = Math.max(1, Math.min(segmentSizeMb, 1024)) * 1024 * 1024;
+        this.recordsPerSegment = (bytes - HEADER_SIZE) / RECORD_SIZE;
+        this.segmentBytes = HEADER_SIZE + recordsPerSegment * RECORD_SIZE;
+    }
+
+    /**
+     * Start a new session. Returns false (and stays stopped) if the first segment can't be mapped.
+     */
+    public boolean start() {
+        if (isRecording()) return true;
+        if (!directory.exists() && !directory.mkdirs()) {
+            CpuBoosterMod.LOGGER.warn("SessionRecorder: cannot create {}", directory.getPath());
+            return false;
+        }
+        sessionStartEpochMs = System.currentTimeMillis();
+        sessionStartNs = System.nanoTime();
+        sessionName = "session-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date(sessionStartEpochMs));
+        segmentIndex = 0;
+        totalRecords = 0;
+        try {
+            openSegment();
+            CpuBoosterMod.LOGGER.info("SessionRecorder: recording {} ({} records per segment)", sessionName, recordsPerSegment);
+            return true;
+        } catch (IOException e) {
+            CpuBoosterMod.LOGGER.warn("SessionRecorder: failed to start: {}", e.getMessage());
+            closeSegment();
+            sessionName = null;
+            return false;
+        }
+    }
+
+    /**
+     * Append one record. Allocation-free except when rolling over to a new segment.
+     */
+    public void record(double frameMs, double tickMs, double gcPauseMs, double frameEmaMs, int chunkBudget, int flags) {
+        if (buffer == null) return;
+        if (segmentRecords >= recordsPerSegment) {
+            try {
+                closeSegment();
+                segmentIndex++;
+                openSegment();
+            } catch (IOException e) {
+                CpuBoosterMod.LOGGER.warn("SessionRecorder: segment rollover failed, stopping: {}", e.getMessage());
+                stop();
+                return;
+            }
+        }
+
+        int off = HEADER_SIZE + segmentRecords * RECORD_SIZE;
+        buffer.putLong(off + REC_TIMESTAMP_NS, System.nanoTime() - sessionStartNs);
+        buffer.putFloat(off + REC_FRAME_MS, (float) frameMs);
+        buffer.putFloat(off + REC_TICK_MS, (float) tickMs);
+        buffer.putFloat(off + REC_GC_PAUSE_MS, (float) gcPauseMs);
+        buffer.putFloat(off + REC_FRAME_EMA_MS, (float) frameEmaMs);
+        buffer.putInt(off + REC_CHUNK_BUDGET, chunkBudget);
+        buffer.putInt(off + REC_FLAGS, flags);
+        segmentRecords++;
+        totalRecords++;
+        // Count is published last so a crashed session is still readable up to here
+        buffer.putInt(HEADER_RECORD_COUNT, segmentRecords);
+    }
+
+    public void stop() {
+        if (!isRecording()) return;
+        closeSegment();
+        CpuBoosterMod.LOGGER.info("SessionRecorder: stopped {} after {} records ({} segments)",
+                sessionName, totalRecords, segmentIndex + 1);
+        sessionName = null;
+    }
+
+    private void openSegment() throws IOException {
+        Path path = new File(directory, segmentFileName(sessionName, segmentIndex)).toPath();
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putLong(HEADER_MAGIC, MAGIC);
+        buffer.putInt(HEADER_VERSION, VERSION);
+        buffer.putInt(HEADER_RECORD_SIZE, RECORD_SIZE);
+        buffer.putLong(HEADER_START_EPOCH_MS, sessionStartEpochMs);
+        buffer.putInt(HEADER_SEGMENT_INDEX, segmentIndex);
+        buffer.putInt(HEADER_CAPACITY, recordsPerSegment);
+        buffer.putInt(HEADER_RECORD_COUNT, 0);
+        segmentRecords = 0;
+    }
+
+    private void closeSegment() {
+        try {
+            if (buffer != null) buffer.force();
+        } catch (Throwable t) {
+            // Best effort; the OS still writes the pages back eventually
+        }
+        try {
+            if (channel != null) channel.close();
+        } catch (IOException e) {
+            CpuBoosterMod.LOGGER.debug("SessionRecorder: close failed: {}", e.getMessage());
+        }
+        buffer = null;
+        channel = null;
+    }
+
+    static String segmentFileName(String session, int index) {
+        return String.format("%s-%03d%s", session, index, EXTENSION);
+    }
+
+    public boolean isRecording() {
+        return sessionName != null;
+    }
+
+    public String getSessionName() {
+        return sessionName;
+    }
+
+    public long getTotalRecords() {
+        return totalRecords;
+    }
+
+    public int getSegmentIndex() {
+        return segmentIndex;
+    }
+}
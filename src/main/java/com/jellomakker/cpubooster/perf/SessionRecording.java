@@ -0,0 +1,157 @@
+package com.jellomakker.cpubooster.perf;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Read-only view of a session written by {@link SessionRecorder}.
+ *
+ * Every segment is mapped read-only and records are read with absolute gets,
+ * so even hours-long recordings are never copied onto the heap. Records are
+ * addressed by a flat index across all segments of the session.
+ * Not thread-safe: the segment lookup caches the last segment hit, which makes
+ * sequential scans cost one range check per record.
+ */
+public class SessionRecording {
+    private final String sessionName;
+    private final MappedByteBuffer[] segments;
+    private final long[] segmentStart; // flat index of each segment's first record
+    private final long recordCount;
+    private final long startEpochMs;
+    private final int version;
+    private int lastSegment = 0;
+
+    private SessionRecording(String sessionName, MappedByteBuffer[] segments, long[] segmentStart,
+                             long recordCount, long startEpochMs, int version) {
+        this.sessionName = sessionName;
+        this.segments = segments;
+        this.segmentStart = segmentStart;
+        this.recordCount = recordCount;
+        this.startEpochMs = startEpochMs;
+        this.version = version;
+    }
+
+    /**
+     * Names of all sessions in a recordings directory, oldest first.
+     */
+    public static List<String> listSessions(File directory) {
+        List<String> sessions = new ArrayList<>();
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(SessionRecorder.EXTENSION));
+        if (files == null) return sessions;
+        for (File f : files) {
+            String name = f.getName();
+            // Strip "-NNN.cpbrec"
+            String session = name.substring(0, name.length() - SessionRecorder.EXTENSION.length() - 4);
+            if (!sessions.contains(session)) sessions.add(session);
+        }
+        sessions.sort(null);
+        return sessions;
+    }
+
+    /**
+     * Map every segment of a session in order.
+     */
+    public static SessionRecording open(File directory, String sessionName) throws IOException {
+        List<MappedByteBuffer> buffers = new ArrayList<>();
+        for (int index = 0; ; index++) {
+            File file = new File(directory, SessionRecorder.segmentFileName(sessionName, index));
+            if (!file.exists()) break;
+            buffers.add(mapSegment(file));
+        }
+        if (buffers.isEmpty()) {
+            throw new IOException("No segments found for session " + sessionName);
+        }
+
+        MappedByteBuffer[] segments = buffers.toArray(new MappedByteBuffer[0]);
+        long[] starts = new long[segments.length];
+        long total = 0;
+        for (int i = 0; i < segments.length; i++) {
+            starts[i] = total;
+            total += segments[i].getInt(SessionRecorder.HEADER_RECORD_COUNT);
+        }
+        long epoch = segments[0].getLong(SessionRecorder.HEADER_START_EPOCH_MS);
+        int version = segments[0].getInt(SessionRecorder.HEADER_VERSION);
+        for (MappedByteBuffer segment : segments) {
+            if (segment.getInt(SessionRecorder.HEADER_VERSION) != version) {
+                throw new IOException("Mixed recording versions in session " + sessionName);
+            }
+        }
+        return new SessionRecording(sessionName, segments, starts, total, epoch, version);
+    }
+
+    private static MappedByteBuffer mapSegment(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.capacity() < SessionRecorder.HEADER_SIZE
+                    || buffer.getLong(SessionRecorder.HEADER_MAGIC) != SessionRecorder.MAGIC) {
+                throw new IOException("Not a session recording: " + file.getName());
+            }
+            int version = buffer.getInt(SessionRecorder.HEADER_VERSION);
+            if ((version != SessionRecorder.VERSION && version != SessionRecorder.VERSION_PER_TICK)
+                    || buffer.getInt(SessionRecorder.HEADER_RECORD_SIZE) != SessionRecorder.RECORD_SIZE) {
+                throw new IOException("Unsupported recording format: " + file.getName());
+            }
+            return buffer;
+        }
+    }
+
+    public String getSessionName() { return sessionName; }
+    public long getRecordCount() { return recordCount; }
+    public long getStartEpochMs() { return startEpochMs; }
+    public int getSegmentCount() { return segments.length; }
+    public int getVersion() { return version; }
+
+    /**
+     * False for version 1 sessions, which were recorded once per client tick: their
+     * frame column is the tick interval, not the render frame time.
+     */
+    public boolean isPerRenderFrame() { return version >= SessionRecorder.VERSION; }
+
+    public long getTimestampNs(long index) { return segmentFor(index).getLong(offset(index) + SessionRecorder.REC_TIMESTAMP_NS); }
+    public float getFrameMs(long index) { return segmentFor(index).getFloat(offset(index) + SessionRecorder.REC_FRAME_MS); }
+    public float getTickMs(long index) { return segmentFor(index).getFloat(offset(index) + SessionRecorder.REC_TICK_MS); }
+    public float getGcPauseMs(long index) { return segmentFor(index).getFloat(offset(index) + SessionRecorder.REC_GC_PAUSE_MS); }
+    public float getFrameEmaMs(long index) { return segmentFor(index).getFloat(offset(index) + SessionRecorder.REC_FRAME_EMA_MS); }
+    public int getChunkBudget(long index) { return segmentFor(index).getInt(offset(index) + SessionRecorder.REC_CHUNK_BUDGET); }
+    public int getFlags(long index) { return segmentFor(index).getInt(offset(index) + SessionRecorder.REC_FLAGS); }
+
+    public boolean isThrottling(long index) { return (getFlags(index) & SessionRecorder.FLAG_THROTTLING) != 0; }
+    public boolean isUnderMemoryPressure(long index) { return (getFlags(index) & SessionRecorder.FLAG_MEMORY_PRESSURE) != 0; }
+    public boolean isSmoothing(long index) { return (getFlags(index) & SessionRecorder.FLAG_SMOOTHING) != 0; }
+
+    private int segmentNumber(long index) {
+        if (index < 0 || index >= recordCount) {
+            throw new IndexOutOfBoundsException("Record " + index + " of " + recordCount);
+        }
+        long lastEnd = lastSegment + 1 < segmentStart.length ? segmentStart[lastSegment + 1] : recordCount;
+        if (index >= segmentStart[lastSegment] && index < lastEnd) {
+            return lastSegment;
+        }
+        int pos = Arrays.binarySearch(segmentStart, index);
+        if (pos >= 0) {
+            // Skip empty segments sharing the same start
+            while (pos + 1 < segmentStart.length && segmentStart[pos + 1] == index) pos++;
+            lastSegment = pos;
+        } else {
+            lastSegment = -pos - 2;
+        }
+        return lastSegment;
+    }
+
+    private MappedByteBuffer segmentFor(long index) {
+        return segments[segmentNumber(index)];
+    }
+
+    private int offset(long index) {
+        long local = index - segmentStart[segmentNumber(index)];
+        return SessionRecorder.HEADER_SIZE + (int) local * SessionRecorder.RECORD_SIZE;
+    }
+}
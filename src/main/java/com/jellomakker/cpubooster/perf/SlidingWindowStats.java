@@ -0,0 +1,168 @@
+package com.jellomakker.cpubooster.perf;
+
+/**
+ * O(1), allocation-free statistics over the last N samples.
+ *
+ * Samples live in a primitive ring buffer. Mean and variance come from a running
+ * sum and sum of squares taken relative to a shift value; every few windows the
+ * shift is moved to the current mean and the sums are recomputed exactly, which
+ * keeps floating-point drift and cancellation in check. Min and max are tracked
+ * with monotonic deques of sample sequence numbers (amortized O(1) per push).
+ * Not thread-safe.
+ */
+public class SlidingWindowStats {
+    private static final int RECENTER_WINDOWS = 8; // exact recompute every 8 window lengths
+
+    private double[] values;
+    private int capacity;
+    private int size = 0;
+    private long sequence = 0; // total samples pushed; sample s lives at values[s % capacity]
+
+    private double shift = 0.0;
+    private double sum = 0.0;   // sum of (x - shift)
+    private double sumSq = 0.0; // sum of (x - shift)^2
+    private int pushesSinceRecenter = 0;
+
+    // Monotonic deques over sequence numbers, ring-buffered
+    private long[] minDeque;
+    private int minHead = 0;
+    private int minSize = 0;
+    private long[] maxDeque;
+    private int maxHead = 0;
+    private int maxSize = 0;
+
+    public SlidingWindowStats(int capacity) {
+        setCapacity(capacity);
+    }
+
+    /**
+     * Change the window length. Clears all samples if it differs from the current one.
+     */
+    public void setCapacity(int capacity) {
+        int cap = Math.max(1, capacity);
+        if (values != null && cap == this.capacity) return;
+        this.capacity = cap;
+        this.values = new double[cap];
+        this.minDeque = new long[cap];
+        this.maxDeque = new long[cap];
+        clear();
+    }
+
+    public void push(double x) {
+        if (sequence == 0) shift = x; // center on the first sample
+        int slot = (int) (sequence % capacity);
+        if (size == capacity) {
+            double old = values[slot] - shift;
+            sum -= old;
+            sumSq -= old * old;
+        } else {
+            size++;
+        }
+        values[slot] = x;
+        double d = x - shift;
+        sum += d;
+        sumSq += d * d;
+
+        long seq = sequence++;
+        long oldest = sequence - size;
+
+        // Expire samples that left the window first: the new sample may have overwritten their slot
+        while (maxSize > 0 && maxDeque[maxHead] < oldest) {
+            maxHead = (maxHead + 1) % capacity;
+            maxSize--;
+        }
+        while (minSize > 0 && minDeque[minHead] < oldest) {
+            minHead = (minHead + 1) % capacity;
+            minSize--;
+        }
+
+        // Then drop dominated samples from the back
+        while (maxSize > 0 && values[slotOf(maxDeque[(maxHead + maxSize - 1) % capacity])] <= x) maxSize--;
+        maxDeque[(maxHead + maxSize) % capacity] = seq;
+        maxSize++;
+        while (minSize > 0 && values[slotOf(minDeque[(minHead + minSize - 1) % capacity])] >= x) minSize--;
+        minDeque[(minHead + minSize) % capacity] = seq;
+        minSize++;
+
+        if (++pushesSinceRecenter >= capacity * RECENTER_WINDOWS) {
+            recenter();
+        }
+    }
+
+    private int slotOf(long seq) {
+        return (int) (seq % capacity);
+    }
+
+    private void recenter() {
+        pushesSinceRecenter = 0;
+        if (size == 0) return;
+        double mean = getMean();
+        shift = mean;
+        double s = 0.0;
+        double sq = 0.0;
+        for (int i = 0; i < size; i++) {
+            double d = values[slotOf(sequence - 1 - i)] - mean;
+            s += d;
+            sq += d * d;
+        }
+        sum = s;
+        sumSq = sq;
+    }
+
+    public double getMean() {
+        return size == 0 ? 0.0 : shift + sum / size;
+    }
+
+    /**
+     * Population variance of the samples in the window.
+     */
+    public double getVariance() {
+        if (size == 0) return 0.0;
+        double m = sum / size;
+        return Math.max(0.0, sumSq / size - m * m);
+    }
+
+    public double getStdDev() {
+        return Math.sqrt(getVariance());
+    }
+
+    public double getMin() {
+        return minSize == 0 ? 0.0 : values[slotOf(minDeque[minHead])];
+    }
+
+    public double getMax() {
+        return maxSize == 0 ? 0.0 : values[slotOf(maxDeque[maxHead])];
+    }
+
+    /**
+     * Most recent sample, or 0 if empty.
+     */
+    public double getLast() {
+        return size == 0 ? 0.0 : values[slotOf(sequence - 1)];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    public void clear() {
+        size = 0;
+        sequence = 0;
+        shift = 0.0;
+        sum = 0.0;
+        sumSq = 0.0;
+        pushesSinceRecenter = 0;
+        minHead = 0;
+        minSize = 0;
+        maxHead = 0;
+        maxSize = 0;
+    }
+}
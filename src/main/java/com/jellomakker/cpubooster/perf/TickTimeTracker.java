@@ -2,17 +2,48 @@ package com.jellomakker.cpubooster.perf;
 
 /**
  * Tracks server tick times to measure game logic overhead.
+ * Records both the interval between ticks ({@link #markTick()}) and, when the
+ * tick start is marked, how long the tick itself ran ({@link #endTick()}).
  */
 public class TickTimeTracker {
     private final int maxSize;
     private final double[] tickTimes;
+    private final double[] tickDurations;
     private int currentIndex = 0;
     private int count = 0;
+    private int durationIndex = 0;
+    private int durationCount = 0;
     private long lastTickNs = System.nanoTime();
+    private long tickStartNs = 0;
+    private double lastTickDurationMs = 0.0;
 
     public TickTimeTracker(int maxSize) {
         this.maxSize = maxSize;
         this.tickTimes = new double[maxSize];
+        this.tickDurations = new double[maxSize];
+    }
+
+    /**
+     * Mark the start of a client tick (call from START_CLIENT_TICK).
+     */
+    public void beginTick() {
+        tickStartNs = System.nanoTime();
+    }
+
+    /**
+     * Mark the end of a client tick and record its duration.
+     * Returns the duration in ms, or 0 if the start was never marked.
+     */
+    public double endTick() {
+        if (tickStartNs == 0) return 0.0;
+        double ms = (System.nanoTime() - tickStartNs) / 1_000_000.0;
+        tickStartNs = 0;
+
+        tickDurations[durationIndex] = ms;
+        durationIndex = (durationIndex + 1) % maxSize;
+        if (durationCount < maxSize) durationCount++;
+        lastTickDurationMs = ms;
+        return ms;
     }
 
     public void markTick() {
@@ -36,6 +67,19 @@ public class TickTimeTracker {
         return sum / count;
     }
 
+    public double getLastTickDurationMs() {
+        return lastTickDurationMs;
+    }
+
+    public double getAverageTickDuration() {
+        if (durationCount == 0) return 0.0;
+        double sum = 0.0;
+        for (int i = 0; i < durationCount; i++) {
+            sum += tickDurations[i];
+        }
+        return sum / durationCount;
+    }
+
     public int getCount() {
         return count;
     }
@@ -47,6 +91,10 @@ public class TickTimeTracker {
     public void reset() {
         currentIndex = 0;
         count = 0;
+        durationIndex = 0;
+        durationCount = 0;
+        tickStartNs = 0;
+        lastTickDurationMs = 0.0;
         lastTickNs = System.nanoTime();
     }
 }
@@ -0,0 +1,184 @@
+package com.jellomakker.cpubooster.replay;
+
+import com.jellomakker.cpubooster.perf.SessionRecording;
+
+import java.util.Random;
+
+/**
+ * A sequence of frames to replay: frame time, wall time elapsed since the previous
+ * frame, GC pause time reported during the frame and whether memory pressure was active.
+ * Either wraps a {@link SessionRecording} or is generated synthetically from a seed.
+ */
+public abstract class FrameTrace {
+    public abstract String getName();
+
+    public abstract int length();
+
+    public abstract double getFrameMs(int index);
+
+    /**
+     * Wall time since the previous frame; the virtual clock advances by this much.
+     */
+    public double getElapsedMs(int index) {
+        return getFrameMs(index);
+    }
+
+    public double getGcPauseMs(int index) {
+        return 0.0;
+    }
+
+    /**
+     * Memory pressure cooldown active during the frame (recorded sessions only).
+     */
+    public boolean isUnderMemoryPressure(int index) {
+        return false;
+    }
+
+    /**
+     * Replay a recorded session. Elapsed time comes from the recorded timestamps.
+     * Only sessions recorded per render frame can be replayed: version 1 sessions hold
+     * tick intervals in the frame column, which the frame-driven controllers never see
+     * at runtime.
+     */
+    public static FrameTrace of(SessionRecording recording) {
+        if (!recording.isPerRenderFrame()) {
+            throw new IllegalArgumentException("Recording " + recording.getSessionName()
+                    + " was recorded per client tick (version " + recording.getVersion()
+                    + "); its frame times are tick intervals and cannot be replayed");
+        }
+        if (recording.getRecordCount() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Recording too long to replay: " + recording.getRecordCount());
+        }
+        int n = (int) recording.getRecordCount();
+        return new FrameTrace() {
+            @Override
+            public String getName() { return recording.getSessionName(); }
+
+            @Override
+            public int length() { return n; }
+
+            @Override
+            public double getFrameMs(int index) { return recording.getFrameMs(index); }
+
+            @Override
+            public double getElapsedMs(int index) {
+                if (index == 0) return getFrameMs(0);
+                return (recording.getTimestampNs(index) - recording.getTimestampNs(index - 1)) / 1_000_000.0;
+            }
+
+            @Override
+            public double getGcPauseMs(int index) { return recording.getGcPauseMs(index); }
+
+            @Override
+            public boolean isUnderMemoryPressure(int index) { return recording.isUnderMemoryPressure(index); }
+        };
+    }
+
+    /**
+     * Wrap precomputed frame and GC pause arrays (gcPauseMs may be null).
+     */
+    public static FrameTrace of(String name, double[] frameMs, double[] gcPauseMs) {
+        return new FrameTrace() {
+            @Override
+            public String getName() { return name; }
+
+            @Override
+            public int length() { return frameMs.length; }
+
+            @Override
+            public double getFrameMs(int index) { return frameMs[index]; }
+
+            @Override
+            public double getGcPauseMs(int index) { return gcPauseMs != null ? gcPauseMs[index] : 0.0; }
+        };
+    }
+
+    // ===== Synthetic traces (same seed = same trace) =====
+
+    /**
+     * Steady frame times with Gaussian jitter.
+     */
+    public static FrameTrace steady(int frames, double baseMs, double jitterMs, long seed) {
+        Random random = new Random(seed);
+        double[] ft = new double[frames];
+        for (int i = 0; i < frames; i++) {
+            ft[i] = jittered(random, baseMs, jitterMs);
+        }
+        return of("steady", ft, null);
+    }
+
+    /**
+     * Steady frames with an isolated spike every {@code interval} frames.
+     */
+    public static FrameTrace spikes(int frames, double baseMs, double spikeMs, int interval, long seed) {
+        Random random = new Random(seed);
+        double[] ft = new double[frames];
+        for (int i = 0; i < frames; i++) {
+            ft[i] = (i > 0 && i % interval == 0) ? spikeMs : jittered(random, baseMs, baseMs * 0.05);
+        }
+        return of("spikes", ft, null);
+    }
+
+    /**
+     * Steady frames with randomly placed GC pauses that stretch the frame they land in.
+     * @param pauseChance probability per frame of a pause
+     */
+    public static FrameTrace gcPauses(int frames, double baseMs, double pauseMs, double pauseChance, long seed) {
+        Random random = new Random(seed);
+        double[] ft = new double[frames];
+        double[] gc = new double[frames];
+        for (int i = 0; i < frames; i++) {
+            ft[i] = jittered(random, baseMs, baseMs * 0.05);
+            if (random.nextDouble() < pauseChance) {
+                double pause = pauseMs * (0.5 + random.nextDouble());
+                gc[i] = pause;
+                ft[i] += pause;
+            }
+        }
+        return of("gc", ft, gc);
+    }
+
+    /**
+     * Load that ramps linearly from {@code fromMs} to {@code toMs} and back down.
+     */
+    public static FrameTrace ramp(int frames, double fromMs, double toMs, long seed) {
+        Random random = new Random(seed);
+        double[] ft = new double[frames];
+        int half = Math.max(1, frames / 2);
+        for (int i = 0; i < frames; i++) {
+            double t = i < half ? (double) i / half : (double) (frames - i) / half;
+            double base = fromMs + (toMs - fromMs) * t;
+            ft[i] = jittered(random, base, base * 0.05);
+        }
+        return of("ramp", ft, null);
+    }
+
+    /**
+     * Render frames as the mod sees them at runtime: steady frames with a client tick
+     * every 50 ms of game time, run inside whichever frame crosses the tick boundary
+     * and adding its cost to that frame. At 60 FPS every third frame or so is a tick
+     * frame. This is what the frame-driven controllers are fed from the render hook.
+     * @param tickMs average cost of one client tick
+     */
+    public static FrameTrace renderLoop(int frames, double baseMs, double tickMs, long seed) {
+        Random random = new Random(seed);
+        double[] ft = new double[frames];
+        double elapsedMs = 0.0;
+        double nextTickMs = 0.0;
+        for (int i = 0; i < frames; i++) {
+            double frame = jittered(random, baseMs, baseMs * 0.05);
+            // Vanilla runs at most 10 catch-up ticks per frame
+            for (int t = 0; t < 10 && elapsedMs >= nextTickMs; t++) {
+                frame += jittered(random, tickMs, tickMs * 0.2);
+                nextTickMs += 50.0;
+            }
+            ft[i] = frame;
+            elapsedMs += frame;
+        }
+        return of("runtime", ft, null);
+    }
+
+    private static double jittered(Random random, double baseMs, double jitterMs) {
+        return Math.max(0.5, baseMs + random.nextGaussian() * jitterMs);
+    }
+}
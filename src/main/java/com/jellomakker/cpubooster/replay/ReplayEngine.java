@@ -0,0 +1,131 @@
+package com.jellomakker.cpubooster.replay;
+
+import com.google.gson.Gson;
+import com.jellomakker.cpubooster.config.CpuBoosterConfig;
+import com.jellomakker.cpubooster.metrics.GcTelemetry;
+import com.jellomakker.cpubooster.optimize.ChunkRebuildController;
+import com.jellomakker.cpubooster.optimize.ChunkRebuildLimiter;
+import com.jellomakker.cpubooster.optimize.ChunkRebuildThrottler;
+import com.jellomakker.cpubooster.optimize.DynamicResolutionScaler;
+import com.jellomakker.cpubooster.optimize.FramePacingThrottler;
+import com.jellomakker.cpubooster.optimize.FrameTimeVarianceOptimizer;
+import com.jellomakker.cpubooster.optimize.StutterSmoother;
+
+/**
+ * Headless replay of a frame trace through the adaptive controller stack.
+ *
+ * Fresh controllers are built on a {@link VirtualClock} and fed each render frame in
+ * the same order as CpuBoosterMod.onRenderFrame: smoother, pacing throttler, then the
+ * rebuild controller, whose admission resets every frame. The same trace and config
+ * always produce the same decisions. No Minecraft client is needed.
+ * The closed-loop {@link ChunkRebuildController} runs alongside the legacy chunk
+ * throttles on the same demand, so the two can be compared on one trace.
+ * The config is copied; the StutterSmoother GC hint is always disabled because a
+ * replay must not trigger real collections.
+ */
+public class ReplayEngine {
+    private static final Gson GSON = new Gson();
+    private static final double DEFAULT_MAX_REACTION_MS = 2000.0;
+
+    private final CpuBoosterConfig cfg;
+    private int rebuildRequestsPerFrame = 4;
+    private double maxReactionMs = DEFAULT_MAX_REACTION_MS;
+
+    public ReplayEngine(CpuBoosterConfig config) {
+        this.cfg = GSON.fromJson(GSON.toJson(config), CpuBoosterConfig.class);
+        this.cfg.gcHintEnabled = false;
+    }
+
+    /**
+     * Simulated chunk rebuild demand (nominal-cost rebuilds) presented each frame to both the
+     * token-bucket limiter and the rebuild controller.
+     */
+    public void setRebuildRequestsPerFrame(int requests) {
+        this.rebuildRequestsPerFrame = Math.max(0, requests);
+    }
+
+    /**
+     * A controller that hasn't engaged this long after a spike onset counts as missed.
+     */
+    public void setMaxReactionMs(double ms) {
+        this.maxReactionMs = ms;
+    }
+
+    public ReplayResult run(FrameTrace trace) {
+        VirtualClock clock = new VirtualClock();
+        FramePacingThrottler pacing = new FramePacingThrottler(clock);
+        StutterSmoother smoother = new StutterSmoother(clock);
+        ChunkRebuildLimiter limiter = new ChunkRebuildLimiter(clock);
+        ChunkRebuildThrottler chunkThrottler = new ChunkRebuildThrottler();
+        ChunkRebuildController controller = new ChunkRebuildController();
+        FrameTimeVarianceOptimizer variance = new FrameTimeVarianceOptimizer();
+        DynamicResolutionScaler scaler = new DynamicResolutionScaler();
+
+        pacing.updateConfig(cfg.frameTimeTargetMs, cfg.spikeThresholdMs, cfg.throttleCooldownMs);
+        limiter.updateConfig(cfg.maxChunkRebuildsPerSecondNormal, cfg.maxChunkRebuildsPerSecondThrottled);
+        chunkThrottler.setAdaptiveEnabled(cfg.adaptiveChunkThrottle);
+        chunkThrottler.setMaxChunkBuildsPerTick(cfg.maxChunkBuildsPerTick);
+        controller.updateConfig(cfg);
+
+        int frames = trace.length();
+        ReplayResult result = new ReplayResult(trace.getName(), frames, rebuildRequestsPerFrame, maxReactionMs);
+        long gcSequence = 0;
+
+        for (int i = 0; i < frames; i++) {
+            double frameMs = trace.getFrameMs(i);
+            clock.advanceMs(trace.getElapsedMs(i));
+
+            double gcMs = trace.getGcPauseMs(i);
+            if (gcMs > 0.0) {
+                GcTelemetry.GcPause pause = new GcTelemetry.GcPause(gcSequence++, "replay", "end of minor GC",
+                        "replay", clock.millis(), Math.round(gcMs), 0L, 0L, 0L, clock.nanoTime());
+                smoother.onGcPause(pause, cfg);
+            }
+
+            smoother.onFrame(frameMs, cfg);
+            chunkThrottler.onFrameTime(frameMs);
+            if (cfg.adaptiveThrottlingEnabled) {
+                limiter.setThrottleMode(pacing.onFrameTime(frameMs));
+            }
+            boolean pressure = cfg.memoryPressureEnabled && trace.isUnderMemoryPressure(i);
+            if (pressure) {
+                limiter.setThrottleMode(true);
+            }
+            controller.update(frameMs, cfg.adaptiveThrottlingEnabled && pacing.isThrottlingActive(), pressure);
+            if (cfg.enableFrameTimeVarianceOptimizer) {
+                variance.onFrame(frameMs, cfg);
+            }
+            if (cfg.enableResolutionScaling) {
+                scaler.onFrame(frameMs, cfg);
+            }
+
+            int granted = 0;
+            int controllerGranted = 0;
+            for (int r = 0; r < rebuildRequestsPerFrame; r++) {
+                if (limiter.canRebuild()) granted++;
+                if (controller.tryAdmit()) controllerGranted++;
+            }
+
+            int engaged = 0;
+            if (pacing.isThrottlingActive()) engaged |= 1 << ReplayResult.PACING;
+            if (smoother.isSmoothing()) engaged |= 1 << ReplayResult.SMOOTHER;
+            if (limiter.isThrottleMode()) engaged |= 1 << ReplayResult.LIMITER;
+            if (chunkThrottler.getChunkBudget() < cfg.maxChunkBuildsPerTick) engaged |= 1 << ReplayResult.CHUNK_BUDGET;
+            if (variance.isDeferralActive()) engaged |= 1 << ReplayResult.VARIANCE;
+            if (scaler.isScalingActive()) engaged |= 1 << ReplayResult.RESOLUTION;
+            if (controller.isLimiting()) engaged |= 1 << ReplayResult.REBUILD_CONTROLLER;
+
+            result.timeNs[i] = clock.nanoTime();
+            result.frameMs[i] = (float) frameMs;
+            result.engaged[i] = engaged;
+            result.chunkBudget[i] = chunkThrottler.getChunkBudget();
+            result.rebuildsGranted[i] = granted;
+            result.controllerBudgetMs[i] = (float) controller.getBudgetMs();
+            result.controllerGranted[i] = controllerGranted;
+            result.resolutionScale[i] = (float) scaler.getCurrentScale();
+        }
+
+        result.summarize(cfg.spikeThresholdMs);
+        return result;
+    }
+}
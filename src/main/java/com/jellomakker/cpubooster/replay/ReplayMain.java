@@ -0,0 +1,129 @@
+package com.jellomakker.cpubooster.replay;
+
+import com.google.gson.Gson;
+import com.jellomakker.cpubooster.config.CpuBoosterConfig;
+import com.jellomakker.cpubooster.perf.SessionRecorder;
+import com.jellomakker.cpubooster.perf.SessionRecording;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+/**
+ * Command-line entry point for the replay harness (run with `gradlew replay -PreplayArgs="..."`).
+ *
+ * Options:
+ *   --list                      list recorded sessions
+ *   --recording <session>       replay a recorded session (per render frame, version 2+)
+ *   --dir <path>                recordings directory (default config/cpubooster/recordings)
+ *   --synthetic <kind>          steady | spikes | gc | ramp | runtime (default spikes)
+ *   --frames <n>                synthetic trace length (default 6000)
+ *   --seed <n>                  synthetic trace seed (default 1)
+ *   --config <file>             config JSON to replay with (default: built-in defaults)
+ *   --requests <n>              simulated chunk rebuild requests per frame (default 4)
+ *   --csv <file>                write per-frame decisions
+ */
+public class ReplayMain {
+    public static void main(String[] args) throws IOException {
+        File dir = SessionRecorder.RECORDINGS_DIR;
+        String session = null;
+        String synthetic = "spikes";
+        int frames = 6000;
+        long seed = 1;
+        File configFile = null;
+        File csvFile = null;
+        int requests = 4;
+        boolean list = false;
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--list")) {
+                list = true;
+            } else if (arg.equals("--recording")) {
+                session = value(args, ++i, arg);
+            } else if (arg.equals("--dir")) {
+                dir = new File(value(args, ++i, arg));
+            } else if (arg.equals("--synthetic")) {
+                synthetic = value(args, ++i, arg);
+            } else if (arg.equals("--frames")) {
+                frames = Integer.parseInt(value(args, ++i, arg));
+            } else if (arg.equals("--seed")) {
+                seed = Long.parseLong(value(args, ++i, arg));
+            } else if (arg.equals("--config")) {
+                configFile = new File(value(args, ++i, arg));
+            } else if (arg.equals("--requests")) {
+                requests = Integer.parseInt(value(args, ++i, arg));
+            } else if (arg.equals("--csv")) {
+                csvFile = new File(value(args, ++i, arg));
+            } else {
+                throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+
+        if (list) {
+            for (String name : SessionRecording.listSessions(dir)) {
+                System.out.println(name + describe(dir, name));
+            }
+            return;
+        }
+
+        CpuBoosterConfig cfg = new CpuBoosterConfig();
+        if (configFile != null) {
+            try (Reader reader = new FileReader(configFile)) {
+                CpuBoosterConfig loaded = new Gson().fromJson(reader, CpuBoosterConfig.class);
+                if (loaded != null) cfg = loaded;
+            }
+        }
+
+        FrameTrace trace;
+        if (session != null) {
+            trace = FrameTrace.of(SessionRecording.open(dir, session));
+        } else {
+            trace = synthetic(synthetic, frames, seed, cfg);
+        }
+
+        ReplayEngine engine = new ReplayEngine(cfg);
+        engine.setRebuildRequestsPerFrame(requests);
+        ReplayResult result = engine.run(trace);
+
+        System.out.print(result.getSummary());
+        if (csvFile != null) {
+            try (Writer out = new FileWriter(csvFile)) {
+                result.writeCsv(out);
+            }
+            System.out.println("Decisions written to " + csvFile.getPath());
+        }
+    }
+
+    private static FrameTrace synthetic(String kind, int frames, long seed, CpuBoosterConfig cfg) {
+        double base = cfg.frameTimeTargetMs;
+        if (kind.equals("steady")) return FrameTrace.steady(frames, base, base * 0.1, seed);
+        if (kind.equals("spikes")) return FrameTrace.spikes(frames, base, cfg.spikeThresholdMs * 2.0, 200, seed);
+        if (kind.equals("gc")) return FrameTrace.gcPauses(frames, base, cfg.spikeThresholdMs, 0.005, seed);
+        if (kind.equals("ramp")) return FrameTrace.ramp(frames, base * 0.75, base * 3.0, seed);
+        if (kind.equals("runtime")) return FrameTrace.renderLoop(frames, base * 0.7, base * 0.25, seed);
+        throw new IllegalArgumentException("Unknown synthetic trace: " + kind);
+    }
+
+    /**
+     * Flags sessions that can't be replayed, e.g. old per-tick recordings.
+     */
+    private static String describe(File dir, String session) {
+        try {
+            SessionRecording recording = SessionRecording.open(dir, session);
+            return recording.isPerRenderFrame() ? "" : "  (per-tick recording, not replayable)";
+        } catch (IOException e) {
+            return "  (unreadable: " + e.getMessage() + ")";
+        }
+    }
+
+    private static String value(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + option);
+        }
+        return args[index];
+    }
+}
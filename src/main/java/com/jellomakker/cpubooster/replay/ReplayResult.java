@@ -0,0 +1,254 @@
+package com.jellomakker.cpubooster.replay;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * Per-frame controller decisions from one replay, plus summary metrics.
+ *
+ * Each controller has an "engaged" state per frame (throttling, smoothing,
+ * budget below max, ...). From those the summary derives:
+ * - engaged time: virtual ms each controller spent engaged
+ * - oscillation: direction reversals and total variation of the chunk budget, the rebuild
+ *   controller's ms budget (moves under 0.05 ms ignored) and the resolution scale
+ * - reaction latency: ms from a spike onset (frame over the spike threshold after a
+ *   non-spike frame) until each controller engaged, if it wasn't already
+ */
+public class ReplayResult {
+    public static final int PACING = 0;
+    public static final int SMOOTHER = 1;
+    public static final int LIMITER = 2;
+    public static final int CHUNK_BUDGET = 3;
+    public static final int VARIANCE = 4;
+    public static final int RESOLUTION = 5;
+    public static final int REBUILD_CONTROLLER = 6;
+    public static final int CONTROLLER_COUNT = 7;
+
+    private static final String[] CONTROLLER_NAMES = {
+            "framePacingThrottler", "stutterSmoother", "chunkRebuildLimiter",
+            "chunkRebuildThrottler", "varianceOptimizer", "resolutionScaler",
+            "chunkRebuildController"
+    };
+    private static final double CONTROLLER_HYSTERESIS_MS = 0.05;
+
+    final String traceName;
+    final int frames;
+    final long[] timeNs;
+    final float[] frameMs;
+    final int[] engaged;      // bit per controller
+    final int[] chunkBudget;
+    final int[] rebuildsGranted;
+    final float[] resolutionScale;
+    final float[] controllerBudgetMs;
+    final int[] controllerGranted;
+    final int rebuildRequestsPerFrame;
+    final double maxReactionMs;
+
+    // Summary
+    final double[] engagedMs = new double[CONTROLLER_COUNT];
+    final int[] reactions = new int[CONTROLLER_COUNT];
+    final int[] missedReactions = new int[CONTROLLER_COUNT];
+    final double[] reactionSumMs = new double[CONTROLLER_COUNT];
+    final double[] reactionMaxMs = new double[CONTROLLER_COUNT];
+    int spikeOnsets = 0;
+    double totalMs = 0.0;
+    int budgetChanges = 0;
+    int budgetReversals = 0;
+    long budgetVariation = 0;
+    int scaleReversals = 0;
+    double scaleVariation = 0.0;
+    long totalGranted = 0;
+    int controllerReversals = 0;
+    double controllerVariation = 0.0;
+    double controllerBudgetSumMs = 0.0;
+    long totalControllerGranted = 0;
+
+    ReplayResult(String traceName, int frames, int rebuildRequestsPerFrame, double maxReactionMs) {
+        this.traceName = traceName;
+        this.frames = frames;
+        this.timeNs = new long[frames];
+        this.frameMs = new float[frames];
+        this.engaged = new int[frames];
+        this.chunkBudget = new int[frames];
+        this.rebuildsGranted = new int[frames];
+        this.resolutionScale = new float[frames];
+        this.controllerBudgetMs = new float[frames];
+        this.controllerGranted = new int[frames];
+        this.rebuildRequestsPerFrame = rebuildRequestsPerFrame;
+        this.maxReactionMs = maxReactionMs;
+    }
+
+    /**
+     * Derive the summary metrics once every frame has been filled in.
+     */
+    void summarize(double spikeThresholdMs) {
+        int lastBudgetDir = 0;
+        int lastScaleDir = 0;
+        int lastControllerDir = 0;
+        double controllerPivot = frames > 0 ? controllerBudgetMs[0] : 0.0;
+        for (int i = 0; i < frames; i++) {
+            double elapsed = i == 0 ? frameMs[0] : (timeNs[i] - timeNs[i - 1]) / 1_000_000.0;
+            totalMs += elapsed;
+            totalGranted += rebuildsGranted[i];
+            totalControllerGranted += controllerGranted[i];
+            controllerBudgetSumMs += controllerBudgetMs[i];
+            for (int c = 0; c < CONTROLLER_COUNT; c++) {
+                if (isEngaged(i, c)) engagedMs[c] += elapsed;
+            }
+
+            if (i > 0) {
+                int db = Integer.compare(chunkBudget[i], chunkBudget[i - 1]);
+                if (db != 0) {
+                    budgetChanges++;
+                    budgetVariation += Math.abs(chunkBudget[i] - chunkBudget[i - 1]);
+                    if (lastBudgetDir != 0 && db != lastBudgetDir) budgetReversals++;
+                    lastBudgetDir = db;
+                }
+                int ds = Float.compare(resolutionScale[i], resolutionScale[i - 1]);
+                if (ds != 0) {
+                    scaleVariation += Math.abs(resolutionScale[i] - resolutionScale[i - 1]);
+                    if (lastScaleDir != 0 && ds != lastScaleDir) scaleReversals++;
+                    lastScaleDir = ds;
+                }
+                controllerVariation += Math.abs(controllerBudgetMs[i] - controllerBudgetMs[i - 1]);
+                // Direction changes only count once the budget has moved past the hysteresis
+                // from the last turning point, so jitter around a level isn't an oscillation
+                double move = controllerBudgetMs[i] - controllerPivot;
+                if (Math.abs(move) >= CONTROLLER_HYSTERESIS_MS) {
+                    int dc = move > 0 ? 1 : -1;
+                    if (lastControllerDir != 0 && dc != lastControllerDir) controllerReversals++;
+                    lastControllerDir = dc;
+                    controllerPivot = controllerBudgetMs[i];
+                }
+            }
+
+            boolean spike = frameMs[i] > spikeThresholdMs;
+            boolean onset = spike && (i == 0 || frameMs[i - 1] <= spikeThresholdMs);
+            if (onset) {
+                spikeOnsets++;
+                measureReactions(i);
+            }
+        }
+    }
+
+    private void measureReactions(int onset) {
+        for (int c = 0; c < CONTROLLER_COUNT; c++) {
+            // Already engaged before the spike: nothing to react to
+            if (onset > 0 && isEngaged(onset - 1, c)) continue;
+            double latency = -1.0;
+            for (int j = onset; j < frames; j++) {
+                double since = (timeNs[j] - timeNs[onset]) / 1_000_000.0;
+                if (since > maxReactionMs) break;
+                if (isEngaged(j, c)) {
+                    latency = since;
+                    break;
+                }
+            }
+            if (latency < 0) {
+                missedReactions[c]++;
+            } else {
+                reactions[c]++;
+                reactionSumMs[c] += latency;
+                reactionMaxMs[c] = Math.max(reactionMaxMs[c], latency);
+            }
+        }
+    }
+
+    public boolean isEngaged(int frame, int controller) {
+        return (engaged[frame] & (1 << controller)) != 0;
+    }
+
+    public static String getControllerName(int controller) {
+        return CONTROLLER_NAMES[controller];
+    }
+
+    public String getTraceName() { return traceName; }
+    public int getFrameCount() { return frames; }
+    public double getTotalMs() { return totalMs; }
+    public int getChunkBudget(int frame) { return chunkBudget[frame]; }
+    public int getRebuildsGranted(int frame) { return rebuildsGranted[frame]; }
+    public double getResolutionScale(int frame) { return resolutionScale[frame]; }
+    public double getControllerBudgetMs(int frame) { return controllerBudgetMs[frame]; }
+    public int getControllerGranted(int frame) { return controllerGranted[frame]; }
+
+    public double getEngagedMs(int controller) { return engagedMs[controller]; }
+
+    public double getEngagedFraction(int controller) {
+        return totalMs > 0 ? engagedMs[controller] / totalMs : 0.0;
+    }
+
+    public int getSpikeOnsets() { return spikeOnsets; }
+    public int getReactions(int controller) { return reactions[controller]; }
+    public int getMissedReactions(int controller) { return missedReactions[controller]; }
+
+    public double getMeanReactionMs(int controller) {
+        return reactions[controller] > 0 ? reactionSumMs[controller] / reactions[controller] : 0.0;
+    }
+
+    public double getMaxReactionMs(int controller) { return reactionMaxMs[controller]; }
+
+    public int getBudgetChanges() { return budgetChanges; }
+    public int getBudgetReversals() { return budgetReversals; }
+    public long getBudgetVariation() { return budgetVariation; }
+    public int getScaleReversals() { return scaleReversals; }
+    public double getScaleVariation() { return scaleVariation; }
+    public long getTotalRebuildsGranted() { return totalGranted; }
+    public int getControllerReversals() { return controllerReversals; }
+    public double getControllerVariation() { return controllerVariation; }
+    public long getTotalControllerGranted() { return totalControllerGranted; }
+
+    public double getMeanControllerBudgetMs() {
+        return frames > 0 ? controllerBudgetSumMs / frames : 0.0;
+    }
+
+    /**
+     * One CSV row per frame with every controller's decision.
+     */
+    public void writeCsv(Writer out) throws IOException {
+        StringBuilder sb = new StringBuilder("frame,timeMs,frameMs");
+        for (int c = 0; c < CONTROLLER_COUNT; c++) {
+            sb.append(',').append(CONTROLLER_NAMES[c]);
+        }
+        sb.append(",chunkBudget,rebuildsGranted,resolutionScale,controllerBudgetMs,controllerGranted\n");
+        out.write(sb.toString());
+        for (int i = 0; i < frames; i++) {
+            sb.setLength(0);
+            sb.append(i).append(',')
+                    .append(String.format(Locale.ROOT, "%.3f", timeNs[i] / 1_000_000.0)).append(',')
+                    .append(String.format(Locale.ROOT, "%.3f", frameMs[i]));
+            for (int c = 0; c < CONTROLLER_COUNT; c++) {
+                sb.append(',').append(isEngaged(i, c) ? 1 : 0);
+            }
+            sb.append(',').append(chunkBudget[i])
+                    .append(',').append(rebuildsGranted[i])
+                    .append(',').append(String.format(Locale.ROOT, "%.3f", resolutionScale[i]))
+                    .append(',').append(String.format(Locale.ROOT, "%.3f", controllerBudgetMs[i]))
+                    .append(',').append(controllerGranted[i])
+                    .append('\n');
+            out.write(sb.toString());
+        }
+    }
+
+    public String getSummary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "Replay '%s': %d frames, %.1fs virtual time, %d spike onsets%n",
+                traceName, frames, totalMs / 1000.0, spikeOnsets));
+        sb.append(String.format(Locale.ROOT, "%-24s %10s %7s %10s %10s %7s%n",
+                "controller", "engagedMs", "share", "meanReact", "maxReact", "missed"));
+        for (int c = 0; c < CONTROLLER_COUNT; c++) {
+            sb.append(String.format(Locale.ROOT, "%-24s %10.0f %6.1f%% %8.1fms %8.1fms %7d%n",
+                    CONTROLLER_NAMES[c], engagedMs[c], getEngagedFraction(c) * 100.0,
+                    getMeanReactionMs(c), reactionMaxMs[c], missedReactions[c]));
+        }
+        sb.append(String.format(Locale.ROOT, "Chunk budget: %d changes, %d reversals, total variation %d%n",
+                budgetChanges, budgetReversals, budgetVariation));
+        sb.append(String.format(Locale.ROOT, "Resolution scale: %d reversals, total variation %.2f%n",
+                scaleReversals, scaleVariation));
+        sb.append(String.format(Locale.ROOT, "Rebuild controller: mean budget %.2f ms, %d reversals, total variation %.2f ms%n",
+                getMeanControllerBudgetMs(), controllerReversals, controllerVariation));
+        sb.append(String.format(Locale.ROOT, "Rebuilds granted: %d (limiter) / %d (controller) of %d requested%n",
+                totalGranted, totalControllerGranted, (long) frames * rebuildRequestsPerFrame));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,28 @@
+package com.jellomakker.cpubooster.replay;
+
+import com.jellomakker.cpubooster.perf.Clock;
+
+/**
+ * Manually advanced clock for deterministic replays. Starts at zero.
+ */
+public class VirtualClock implements Clock {
+    private long nowNs = 0;
+
+    public void advanceNanos(long nanos) {
+        if (nanos > 0) nowNs += nanos;
+    }
+
+    public void advanceMs(double ms) {
+        advanceNanos((long) (ms * 1_000_000.0));
+    }
+
+    @Override
+    public long nanoTime() {
+        return nowNs;
+    }
+
+    @Override
+    public long millis() {
+        return nowNs / 1_000_000L;
+    }
+}
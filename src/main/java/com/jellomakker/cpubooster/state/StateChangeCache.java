@@ -9,6 +9,8 @@ public class StateChangeCache {
     private double lastCamY = Double.NaN;
     private double lastCamZ = Double.NaN;
     private float lastFov = Float.NaN;
+    private float lastYaw = Float.NaN;
+    private float lastPitch = Float.NaN;
     private int lastWidth = -1;
     private int lastHeight = -1;
 
@@ -23,6 +25,15 @@ public class StateChangeCache {
     }
 
     public boolean hasSignificantChange(double camX, double camY, double camZ, float fov, int width, int height) {
+        return hasSignificantChange(camX, camY, camZ, Float.NaN, Float.NaN, fov, width, height);
+    }
+
+    /**
+     * Same as above, but a camera turn of more than the rotation threshold (degrees) also counts.
+     * NaN yaw/pitch skip the rotation check.
+     */
+    public boolean hasSignificantChange(double camX, double camY, double camZ, float yaw, float pitch,
+            float fov, int width, int height) {
         if (!enabled) return true;
         double dx = camX - lastCamX;
         double dy = camY - lastCamY;
@@ -31,10 +42,24 @@ public class StateChangeCache {
         boolean camMoved = Double.isNaN(lastCamX) || dist2 > cameraDeltaThreshold;
         boolean fovChanged = Float.isNaN(lastFov) || Math.abs(fov - lastFov) > rotationDeltaThreshold;
         boolean sizeChanged = width != lastWidth || height != lastHeight;
-        if (camMoved || fovChanged || sizeChanged) {
+        boolean rotated = false;
+        if (!Float.isNaN(yaw) && !Float.isNaN(pitch)) {
+            rotated = Float.isNaN(lastYaw)
+                    || Math.abs(wrapDegrees(yaw - lastYaw)) > rotationDeltaThreshold
+                    || Math.abs(pitch - lastPitch) > rotationDeltaThreshold;
+        }
+        if (camMoved || fovChanged || sizeChanged || rotated) {
             lastCamX = camX; lastCamY = camY; lastCamZ = camZ; lastFov = fov; lastWidth = width; lastHeight = height;
+            if (!Float.isNaN(yaw)) { lastYaw = yaw; lastPitch = pitch; }
             return true;
         }
         return false;
     }
+
+    private static float wrapDegrees(float degrees) {
+        float d = degrees % 360.0f;
+        if (d >= 180.0f) d -= 360.0f;
+        if (d < -180.0f) d += 360.0f;
+        return d;
+    }
 }